@@ -86,6 +86,23 @@ public class ClientProperties {
      */
     private boolean registerOnce = true;
 
+    /**
+     * Push the status to the admin server instead of letting it poll the health endpoint.
+     */
+    private boolean pushStatus = false;
+
+    /**
+     * Time interval the health is checked for status changes to push.
+     */
+    @DurationUnit(ChronoUnit.MILLIS)
+    private Duration pushStatusPeriod = Duration.ofMillis(1_000L);
+
+    /**
+     * Time interval the status is pushed even if it hasn't changed.
+     */
+    @DurationUnit(ChronoUnit.MILLIS)
+    private Duration heartbeatPeriod = Duration.ofMillis(60_000L);
+
     /**
      * Enable Spring Boot Admin Client.
      */
@@ -21,6 +21,7 @@ import de.codecentric.boot.admin.client.registration.ApplicationRegistrator;
 import de.codecentric.boot.admin.client.registration.DefaultApplicationFactory;
 import de.codecentric.boot.admin.client.registration.RegistrationApplicationListener;
 import de.codecentric.boot.admin.client.registration.ServletApplicationFactory;
+import de.codecentric.boot.admin.client.registration.StatusPusher;
 import de.codecentric.boot.admin.client.registration.metadata.CompositeMetadataContributor;
 import de.codecentric.boot.admin.client.registration.metadata.MetadataContributor;
 import de.codecentric.boot.admin.client.registration.metadata.StartupDateMetadataContributor;
@@ -31,10 +32,14 @@ import javax.servlet.ServletContext;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.actuate.autoconfigure.endpoint.web.WebEndpointAutoConfiguration;
 import org.springframework.boot.actuate.autoconfigure.endpoint.web.WebEndpointProperties;
+import org.springframework.boot.actuate.autoconfigure.health.HealthEndpointAutoConfiguration;
 import org.springframework.boot.actuate.autoconfigure.web.server.ManagementServerProperties;
 import org.springframework.boot.actuate.endpoint.web.PathMappedEndpoints;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.boot.autoconfigure.web.client.RestTemplateAutoConfiguration;
@@ -48,13 +53,18 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
 
 import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 
 @Configuration
 @ConditionalOnWebApplication
 @Conditional(SpringBootAdminClientEnabledCondition.class)
-@AutoConfigureAfter({WebEndpointAutoConfiguration.class, RestTemplateAutoConfiguration.class})
+@AutoConfigureAfter({
+    WebEndpointAutoConfiguration.class,
+    RestTemplateAutoConfiguration.class,
+    HealthEndpointAutoConfiguration.class
+})
 @EnableConfigurationProperties({ClientProperties.class, InstanceProperties.class, ServerProperties.class, ManagementServerProperties.class})
 public class SpringBootAdminClientAutoConfiguration {
 
@@ -110,6 +120,27 @@ public class SpringBootAdminClientAutoConfiguration {
     public ApplicationRegistrator registrator(ClientProperties client,
                                               ApplicationFactory applicationFactory,
                                               RestTemplateBuilder restTemplBuilder) {
+        return new ApplicationRegistrator(createRestTemplate(client, restTemplBuilder), client, applicationFactory);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(HealthEndpoint.class)
+    @ConditionalOnProperty(prefix = "spring.boot.admin.client", name = "push-status")
+    public StatusPusher statusPusher(ClientProperties client,
+                                     ApplicationRegistrator registrator,
+                                     HealthEndpoint healthEndpoint,
+                                     RestTemplateBuilder restTemplBuilder) {
+        StatusPusher pusher = new StatusPusher(createRestTemplate(client, restTemplBuilder),
+            client,
+            registrator,
+            healthEndpoint
+        );
+        pusher.setHeartbeatPeriod(client.getHeartbeatPeriod());
+        return pusher;
+    }
+
+    private static RestTemplate createRestTemplate(ClientProperties client, RestTemplateBuilder restTemplBuilder) {
         RestTemplateBuilder builder = restTemplBuilder.messageConverters(new MappingJackson2HttpMessageConverter())
                                                       .requestFactory(SimpleClientHttpRequestFactory.class)
                                                       .setConnectTimeout(client.getConnectTimeout())
@@ -117,17 +148,20 @@ public class SpringBootAdminClientAutoConfiguration {
         if (client.getUsername() != null) {
             builder = builder.basicAuthentication(client.getUsername(), client.getPassword());
         }
-        return new ApplicationRegistrator(builder.build(), client, applicationFactory);
+        return builder.build();
     }
 
     @Bean
     @ConditionalOnMissingBean
     public RegistrationApplicationListener registrationListener(ClientProperties client,
-                                                                ApplicationRegistrator registrator) {
+                                                                ApplicationRegistrator registrator,
+                                                                ObjectProvider<StatusPusher> statusPusher) {
         RegistrationApplicationListener listener = new RegistrationApplicationListener(registrator);
         listener.setAutoRegister(client.isAutoRegistration());
         listener.setAutoDeregister(client.isAutoDeregistration());
         listener.setRegisterPeriod(client.getPeriod());
+        listener.setStatusPusher(statusPusher.getIfAvailable());
+        listener.setStatusPushPeriod(client.getPushStatusPeriod());
         return listener;
     }
 
@@ -43,8 +43,13 @@ public class RegistrationApplicationListener implements InitializingBean, Dispos
     private boolean autoDeregister = false;
     private boolean autoRegister = true;
     private Duration registerPeriod = Duration.ofSeconds(10);
+    private Duration statusPushPeriod = Duration.ofSeconds(1);
+    @Nullable
+    private StatusPusher statusPusher;
     @Nullable
     private volatile ScheduledFuture<?> scheduledTask;
+    @Nullable
+    private volatile ScheduledFuture<?> scheduledPushTask;
 
     public RegistrationApplicationListener(ApplicationRegistrator registrator) {
         this(registrator, registrationTaskScheduler());
@@ -91,6 +96,11 @@ public class RegistrationApplicationListener implements InitializingBean, Dispos
 
         scheduledTask = taskScheduler.scheduleAtFixedRate(registrator::register, registerPeriod);
         LOGGER.debug("Scheduled registration task for every {}ms", registerPeriod);
+
+        if (statusPusher != null) {
+            scheduledPushTask = taskScheduler.scheduleWithFixedDelay(statusPusher::push, statusPushPeriod);
+            LOGGER.debug("Scheduled status push task for every {}ms", statusPushPeriod);
+        }
     }
 
     public void stopRegisterTask() {
@@ -98,6 +108,10 @@ public class RegistrationApplicationListener implements InitializingBean, Dispos
             scheduledTask.cancel(true);
             LOGGER.debug("Canceled registration task");
         }
+        if (scheduledPushTask != null && !scheduledPushTask.isDone()) {
+            scheduledPushTask.cancel(true);
+            LOGGER.debug("Canceled status push task");
+        }
     }
 
     public void setAutoDeregister(boolean autoDeregister) {
@@ -112,6 +126,17 @@ public class RegistrationApplicationListener implements InitializingBean, Dispos
         this.registerPeriod = registerPeriod;
     }
 
+    /**
+     * @param statusPusher pushes the status along with the registration, {@code null} to let the server poll it.
+     */
+    public void setStatusPusher(@Nullable StatusPusher statusPusher) {
+        this.statusPusher = statusPusher;
+    }
+
+    public void setStatusPushPeriod(Duration statusPushPeriod) {
+        this.statusPushPeriod = statusPushPeriod;
+    }
+
     @Override
     public void afterPropertiesSet() {
         taskScheduler.afterPropertiesSet();
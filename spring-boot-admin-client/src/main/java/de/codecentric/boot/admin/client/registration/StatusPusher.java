@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.client.registration;
+
+import de.codecentric.boot.admin.client.config.ClientProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Pushes the status of the client application to spring-boot-admin-server, so the server doesn't need to poll the
+ * health endpoint. The status is pushed when it changes and, as heartbeat, at least once per heartbeat period. The
+ * server polls the application again if two heartbeats are missed.
+ */
+public class StatusPusher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatusPusher.class);
+    private static final HttpHeaders HTTP_HEADERS = createHttpHeaders();
+    private final RestTemplate template;
+    private final ClientProperties client;
+    private final ApplicationRegistrator registrator;
+    private final HealthEndpoint healthEndpoint;
+    private Duration heartbeatPeriod = Duration.ofMinutes(1L);
+    @Nullable
+    private String lastPushedId;
+    @Nullable
+    private String lastPushedStatus;
+    private long lastPushedMillis = 0L;
+
+    public StatusPusher(RestTemplate template,
+                        ClientProperties client,
+                        ApplicationRegistrator registrator,
+                        HealthEndpoint healthEndpoint) {
+        this.template = template;
+        this.client = client;
+        this.registrator = registrator;
+        this.healthEndpoint = healthEndpoint;
+    }
+
+    private static HttpHeaders createHttpHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    /**
+     * Checks the health of the client application and pushes the status if it has changed or the heartbeat is due.
+     * Must not be called concurrently.
+     *
+     * @return true if the status has been pushed to at least one admin server
+     */
+    public boolean push() {
+        String id = this.registrator.getRegisteredId();
+        if (id == null) {
+            return false;
+        }
+        String status = this.healthEndpoint.health().getStatus().getCode();
+        long now = System.currentTimeMillis();
+        if (id.equals(this.lastPushedId) &&
+            status.equals(this.lastPushedStatus) &&
+            now - this.lastPushedMillis < this.heartbeatPeriod.toMillis()) {
+            return false;
+        }
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("status", status);
+        body.put("heartbeatInterval", this.heartbeatPeriod.toString());
+        boolean isPushSuccessful = false;
+        for (String adminUrl : this.client.getAdminUrl()) {
+            if (this.push(adminUrl + "/" + id + "/status", body)) {
+                isPushSuccessful = true;
+                if (this.client.isRegisterOnce()) {
+                    break;
+                }
+            }
+        }
+
+        if (isPushSuccessful) {
+            this.lastPushedId = id;
+            this.lastPushedStatus = status;
+            this.lastPushedMillis = now;
+        }
+        return isPushSuccessful;
+    }
+
+    protected boolean push(String url, Map<String, Object> body) {
+        try {
+            ResponseEntity<Void> response = this.template.exchange(url,
+                HttpMethod.POST,
+                new HttpEntity<>(body, HTTP_HEADERS),
+                Void.class
+            );
+            if (response.getStatusCode().is2xxSuccessful()) {
+                LOGGER.debug("Pushed status {} to {}", body.get("status"), url);
+                return true;
+            }
+            LOGGER.debug("Failed to push status to {}. Response: {}", url, response);
+        } catch (Exception ex) {
+            LOGGER.debug("Failed to push status to {}: {}", url, ex.getMessage());
+        }
+        return false;
+    }
+
+    public void setHeartbeatPeriod(Duration heartbeatPeriod) {
+        this.heartbeatPeriod = heartbeatPeriod;
+    }
+}
@@ -17,10 +17,13 @@
 package de.codecentric.boot.admin.client.config;
 
 import de.codecentric.boot.admin.client.registration.ApplicationRegistrator;
+import de.codecentric.boot.admin.client.registration.StatusPusher;
 
 import org.junit.Test;
 import org.springframework.boot.actuate.autoconfigure.endpoint.EndpointAutoConfiguration;
 import org.springframework.boot.actuate.autoconfigure.endpoint.web.WebEndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.health.HealthEndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.health.HealthIndicatorAutoConfiguration;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.autoconfigure.web.client.RestTemplateAutoConfiguration;
 import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
@@ -35,6 +38,8 @@ public class SpringBootAdminClientAutoConfigurationTest {
         AutoConfigurations.of(
             EndpointAutoConfiguration.class,
             WebEndpointAutoConfiguration.class,
+            HealthIndicatorAutoConfiguration.class,
+            HealthEndpointAutoConfiguration.class,
             WebMvcAutoConfiguration.class,
             DispatcherServletAutoConfiguration.class,
             RestTemplateAutoConfiguration.class,
@@ -52,6 +57,15 @@ public class SpringBootAdminClientAutoConfigurationTest {
                      .run(context -> assertThat(context).hasSingleBean(ApplicationRegistrator.class));
     }
 
+    @Test
+    public void pushStatus() {
+        contextRunner.withPropertyValues("spring.boot.admin.client.url:http://localhost:8081")
+                     .run(context -> assertThat(context).doesNotHaveBean(StatusPusher.class));
+        contextRunner.withPropertyValues("spring.boot.admin.client.url:http://localhost:8081",
+            "spring.boot.admin.client.push-status:true"
+        ).run(context -> assertThat(context).hasSingleBean(StatusPusher.class));
+    }
+
     @Test
     public void disabled() {
         contextRunner.withPropertyValues("spring.boot.admin.client.url:http://localhost:8081",
@@ -95,6 +95,23 @@ public class RegistrationApplicationListenerTest {
         verify(task).cancel(true);
     }
 
+    @Test
+    public void should_schedule_and_cancel_status_push_task() {
+        ApplicationRegistrator registrator = mock(ApplicationRegistrator.class);
+        ThreadPoolTaskScheduler scheduler = mock(ThreadPoolTaskScheduler.class);
+        RegistrationApplicationListener listener = new RegistrationApplicationListener(registrator, scheduler);
+        listener.setStatusPusher(mock(StatusPusher.class));
+
+        ScheduledFuture<?> task = mock(ScheduledFuture.class);
+        when(scheduler.scheduleWithFixedDelay(isA(Runnable.class), eq(Duration.ofSeconds(1)))).then(invocation -> task);
+
+        listener.startRegisterTask();
+        verify(scheduler).scheduleWithFixedDelay(isA(Runnable.class), eq(Duration.ofSeconds(1)));
+
+        listener.stopRegisterTask();
+        verify(task).cancel(true);
+    }
+
     @Test
     public void should_not_deregister_when_not_autoDeregister() {
         ApplicationRegistrator registrator = mock(ApplicationRegistrator.class);
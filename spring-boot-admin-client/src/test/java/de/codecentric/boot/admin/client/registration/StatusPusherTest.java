@@ -0,0 +1,129 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.client.registration;
+
+import de.codecentric.boot.admin.client.config.ClientProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StatusPusherTest {
+    private RestTemplate restTemplate;
+    private ApplicationRegistrator registrator;
+    private HealthEndpoint healthEndpoint;
+    private StatusPusher pusher;
+
+    @Before
+    public void setup() {
+        restTemplate = mock(RestTemplate.class);
+        registrator = mock(ApplicationRegistrator.class);
+        healthEndpoint = mock(HealthEndpoint.class);
+        when(healthEndpoint.health()).thenReturn(Health.up().build());
+        when(restTemplate.exchange(isA(String.class), eq(HttpMethod.POST), isA(HttpEntity.class),
+            eq(Void.class))).thenReturn(new ResponseEntity<>(HttpStatus.NO_CONTENT));
+
+        ClientProperties client = new ClientProperties(new MockEnvironment());
+        client.setUrl(new String[]{"http://sba:8080", "http://sba2:8080"});
+        pusher = new StatusPusher(restTemplate, client, registrator, healthEndpoint);
+        pusher.setHeartbeatPeriod(Duration.ofMinutes(1L));
+    }
+
+    @Test
+    public void should_not_push_when_not_registered() {
+        assertThat(pusher.push()).isFalse();
+        verify(restTemplate, never()).exchange(any(String.class), any(HttpMethod.class), any(HttpEntity.class),
+            eq(Void.class));
+    }
+
+    @Test
+    public void should_push_status_changes() {
+        when(registrator.getRegisteredId()).thenReturn("-id-");
+
+        assertThat(pusher.push()).isTrue();
+        Map<String, Object> body = new HashMap<>();
+        body.put("status", "UP");
+        body.put("heartbeatInterval", "PT1M");
+        verify(restTemplate).exchange(eq("http://sba:8080/instances/-id-/status"), eq(HttpMethod.POST),
+            eq(new HttpEntity<>(body, createHeaders())), eq(Void.class));
+
+        //unchanged status is not pushed until the heartbeat is due
+        clearInvocations(restTemplate);
+        assertThat(pusher.push()).isFalse();
+        verify(restTemplate, never()).exchange(any(String.class), any(HttpMethod.class), any(HttpEntity.class),
+            eq(Void.class));
+
+        //changed status is pushed immediately
+        when(healthEndpoint.health()).thenReturn(Health.down().build());
+        assertThat(pusher.push()).isTrue();
+        body.put("status", "DOWN");
+        verify(restTemplate).exchange(eq("http://sba:8080/instances/-id-/status"), eq(HttpMethod.POST),
+            eq(new HttpEntity<>(body, createHeaders())), eq(Void.class));
+    }
+
+    @Test
+    public void should_push_heartbeat() {
+        when(registrator.getRegisteredId()).thenReturn("-id-");
+        pusher.setHeartbeatPeriod(Duration.ZERO);
+
+        assertThat(pusher.push()).isTrue();
+        assertThat(pusher.push()).isTrue();
+    }
+
+    @Test
+    public void should_retry_failed_push() {
+        when(registrator.getRegisteredId()).thenReturn("-id-");
+        when(restTemplate.exchange(isA(String.class), eq(HttpMethod.POST), isA(HttpEntity.class),
+            eq(Void.class))).thenThrow(new RestClientException("Error"));
+
+        assertThat(pusher.push()).isFalse();
+
+        when(restTemplate.exchange(isA(String.class), eq(HttpMethod.POST), isA(HttpEntity.class),
+            eq(Void.class))).thenReturn(new ResponseEntity<>(HttpStatus.NO_CONTENT));
+        assertThat(pusher.push()).isTrue();
+    }
+
+    private static HttpHeaders createHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return headers;
+    }
+}
@@ -111,9 +111,7 @@ public class InstanceDiscoveryListener {
     }
 
     protected Mono<Void> removeStaleInstances(Set<InstanceId> registeredInstanceIds) {
-        return repository.findAll()
-                         .filter(Instance::isRegistered)
-                         .filter(instance -> SOURCE.equals(instance.getRegistration().getSource()))
+        return repository.findBySource(SOURCE)
                          .map(Instance::getId)
                          .filter(id -> !registeredInstanceIds.contains(id))
                          .doOnNext(id -> log.info("Instance ({}) missing in DiscoveryClient services ", id))
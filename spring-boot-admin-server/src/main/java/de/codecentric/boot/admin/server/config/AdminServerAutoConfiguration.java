@@ -17,17 +17,27 @@
 package de.codecentric.boot.admin.server.config;
 
 import de.codecentric.boot.admin.server.domain.entities.InstanceRepository;
+import de.codecentric.boot.admin.server.domain.entities.InstanceValuePool;
+import de.codecentric.boot.admin.server.domain.entities.SnapshotCheckpointStore;
 import de.codecentric.boot.admin.server.domain.entities.SnapshottingInstanceRepository;
 import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.eventstore.BatchingInstanceEventStore;
+import de.codecentric.boot.admin.server.eventstore.ConcurrentMapEventStore;
+import de.codecentric.boot.admin.server.eventstore.FileEventStore;
 import de.codecentric.boot.admin.server.eventstore.InMemoryEventStore;
 import de.codecentric.boot.admin.server.eventstore.InstanceEventStore;
 import de.codecentric.boot.admin.server.services.EndpointDetectionTrigger;
 import de.codecentric.boot.admin.server.services.EndpointDetector;
+import de.codecentric.boot.admin.server.services.EndpointResponseCache;
+import de.codecentric.boot.admin.server.services.EndpointResponseCacheEvictionTrigger;
 import de.codecentric.boot.admin.server.services.HashingInstanceUrlIdGenerator;
 import de.codecentric.boot.admin.server.services.InfoUpdateTrigger;
 import de.codecentric.boot.admin.server.services.InfoUpdater;
 import de.codecentric.boot.admin.server.services.InstanceIdGenerator;
+import de.codecentric.boot.admin.server.services.InstanceOwnership;
 import de.codecentric.boot.admin.server.services.InstanceRegistry;
+import de.codecentric.boot.admin.server.services.StatusPollingPolicy;
+import de.codecentric.boot.admin.server.services.StatusPushReceiver;
 import de.codecentric.boot.admin.server.services.StatusUpdateTrigger;
 import de.codecentric.boot.admin.server.services.StatusUpdater;
 import de.codecentric.boot.admin.server.services.endpoints.ChainingStrategy;
@@ -39,13 +49,17 @@ import de.codecentric.boot.admin.server.web.client.HttpHeadersProvider;
 import de.codecentric.boot.admin.server.web.client.InstanceExchangeFilterFunction;
 import de.codecentric.boot.admin.server.web.client.InstanceWebClient;
 
+import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.reactivestreams.Publisher;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -93,19 +107,76 @@ public class AdminServerAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public StatusUpdater statusUpdater(InstanceRepository instanceRepository, InstanceWebClient instanceWebClient) {
-        return new StatusUpdater(instanceRepository, instanceWebClient);
+    public EndpointResponseCache endpointResponseCache() {
+        return new EndpointResponseCache();
     }
 
     @Bean(initMethod = "start", destroyMethod = "stop")
     @ConditionalOnMissingBean
-    public StatusUpdateTrigger statusUpdateTrigger(StatusUpdater statusUpdater, Publisher<InstanceEvent> events) {
-        StatusUpdateTrigger trigger = new StatusUpdateTrigger(statusUpdater, events);
+    public EndpointResponseCacheEvictionTrigger cacheEvictionTrigger(EndpointResponseCache endpointResponseCache,
+                                                                     Publisher<InstanceEvent> events) {
+        return new EndpointResponseCacheEvictionTrigger(endpointResponseCache, events);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public StatusUpdater statusUpdater(InstanceRepository instanceRepository,
+                                       InstanceWebClient instanceWebClient,
+                                       EndpointResponseCache endpointResponseCache) {
+        return new StatusUpdater(instanceRepository, instanceWebClient, endpointResponseCache);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnMissingBean
+    public StatusUpdateTrigger statusUpdateTrigger(StatusUpdater statusUpdater,
+                                                   Publisher<InstanceEvent> events,
+                                                   InstanceRepository instanceRepository,
+                                                   ObjectProvider<InstanceOwnership> ownership,
+                                                   ObjectProvider<StatusPushReceiver> statusPushReceiver) {
+        StatusUpdateTrigger trigger = new StatusUpdateTrigger(statusUpdater, events, instanceRepository);
+        ownership.ifAvailable(trigger::setOwnership);
+        statusPushReceiver.ifAvailable(trigger::setStatusPushReceiver);
         trigger.setUpdateInterval(adminServerProperties.getMonitor().getPeriod());
         trigger.setStatusLifetime(adminServerProperties.getMonitor().getStatusLifetime());
+        trigger.setMaxConcurrentUpdates(adminServerProperties.getMonitor().getMaxConcurrentStatusUpdates());
+        AdminServerProperties.AdaptivePollingProperties adaptive = adminServerProperties.getMonitor().getAdaptive();
+        if (adaptive.isEnabled()) {
+            trigger.setPollingPolicy(createPollingPolicy(adaptive));
+        }
         return trigger;
     }
 
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "spring.boot.admin.monitor.status-push", name = "enabled")
+    public StatusPushReceiver statusPushReceiver(InstanceRepository instanceRepository) {
+        StatusPushReceiver receiver = new StatusPushReceiver(instanceRepository);
+        receiver.setMaxHeartbeatInterval(adminServerProperties.getMonitor().getStatusPush().getMaxHeartbeatInterval());
+        return receiver;
+    }
+
+    static StatusPollingPolicy createPollingPolicy(AdminServerProperties.AdaptivePollingProperties properties) {
+        StatusPollingPolicy policy = new StatusPollingPolicy();
+        policy.setTransitionInterval(properties.getTransitionInterval());
+        policy.setTransitionChecks(properties.getTransitionChecks());
+        policy.setStableAfter(properties.getStableAfter());
+        policy.setDefaultLimits(new StatusPollingPolicy.Limits(properties.getStableInterval(),
+            properties.getMaxOfflineInterval()
+        ));
+        policy.setApplicationLimits(toLimits(properties.getApplications()));
+        policy.setTagLimits(toLimits(properties.getTags()));
+        return policy;
+    }
+
+    private static Map<String, StatusPollingPolicy.Limits> toLimits(
+        Map<String, AdminServerProperties.PollingLimitProperties> properties) {
+        Map<String, StatusPollingPolicy.Limits> limits = new HashMap<>();
+        properties.forEach((key, value) -> limits.put(key,
+            new StatusPollingPolicy.Limits(value.getStableInterval(), value.getMaxOfflineInterval())
+        ));
+        return limits;
+    }
+
     @Bean
     @ConditionalOnMissingBean
     public EndpointDetector endpointDetector(InstanceRepository instanceRepository,
@@ -120,32 +191,105 @@ public class AdminServerAutoConfiguration {
     @Bean(initMethod = "start", destroyMethod = "stop")
     @ConditionalOnMissingBean
     public EndpointDetectionTrigger endpointDetectionTrigger(EndpointDetector endpointDetector,
-                                                             Publisher<InstanceEvent> events) {
-        return new EndpointDetectionTrigger(endpointDetector, events);
+                                                             Publisher<InstanceEvent> events,
+                                                             ObjectProvider<InstanceOwnership> ownership) {
+        EndpointDetectionTrigger trigger = new EndpointDetectionTrigger(endpointDetector, events);
+        ownership.ifAvailable(trigger::setOwnership);
+        return trigger;
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public InfoUpdater infoUpdater(InstanceRepository instanceRepository, InstanceWebClient instanceWebClient) {
-        return new InfoUpdater(instanceRepository, instanceWebClient);
+    public InfoUpdater infoUpdater(InstanceRepository instanceRepository,
+                                   InstanceWebClient instanceWebClient,
+                                   EndpointResponseCache endpointResponseCache) {
+        return new InfoUpdater(instanceRepository, instanceWebClient, endpointResponseCache);
     }
 
     @Bean(initMethod = "start", destroyMethod = "stop")
     @ConditionalOnMissingBean
-    public InfoUpdateTrigger infoUpdateTrigger(InfoUpdater infoUpdater, Publisher<InstanceEvent> events) {
-        return new InfoUpdateTrigger(infoUpdater, events);
+    public InfoUpdateTrigger infoUpdateTrigger(InfoUpdater infoUpdater,
+                                               Publisher<InstanceEvent> events,
+                                               ObjectProvider<InstanceOwnership> ownership) {
+        InfoUpdateTrigger trigger = new InfoUpdateTrigger(infoUpdater, events);
+        ownership.ifAvailable(trigger::setOwnership);
+        return trigger;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(InstanceEventStore.class)
+    @ConditionalOnProperty(prefix = "spring.boot.admin.event-store.file", name = "enabled")
+    public FileEventStore fileEventStore() {
+        AdminServerProperties.FileEventStoreProperties file = adminServerProperties.getEventStore().getFile();
+        FileEventStore eventStore = new FileEventStore(100,
+            Paths.get(file.getDirectory()),
+            (int) file.getSegmentSize().toBytes(),
+            file.getMaxSegments(),
+            file.getSyncInterval()
+        );
+        applyLogSizeLimits(eventStore, adminServerProperties.getEventStore());
+        return eventStore;
     }
 
     @Bean
     @ConditionalOnMissingBean(InstanceEventStore.class)
     public InMemoryEventStore eventStore() {
-        return new InMemoryEventStore();
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        applyLogSizeLimits(eventStore, adminServerProperties.getEventStore());
+        return eventStore;
+    }
+
+    /**
+     * Not an autowire candidate, as only the instance repository appends through it and every other component uses
+     * the event store directly.
+     */
+    @Bean(destroyMethod = "close", autowireCandidate = false)
+    @ConditionalOnProperty(prefix = "spring.boot.admin.event-store.batching", name = "enabled")
+    public BatchingInstanceEventStore batchingInstanceEventStore(InstanceEventStore eventStore) {
+        AdminServerProperties.BatchingEventStoreProperties batching = adminServerProperties.getEventStore()
+                                                                                           .getBatching();
+        return new BatchingInstanceEventStore(eventStore, batching.getMaxSize(), batching.getWindow());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public InstanceValuePool instanceValuePool() {
+        return new InstanceValuePool();
     }
 
     @Bean(initMethod = "start", destroyMethod = "stop")
     @ConditionalOnMissingBean(InstanceRepository.class)
-    public SnapshottingInstanceRepository instanceRepository(InstanceEventStore eventStore) {
-        return new SnapshottingInstanceRepository(eventStore);
+    public SnapshottingInstanceRepository instanceRepository(InstanceEventStore eventStore,
+                                                             InstanceValuePool valuePool) {
+        SnapshottingInstanceRepository repository = new SnapshottingInstanceRepository(
+            adminServerProperties.getEventStore().getBatching().isEnabled() ?
+                batchingInstanceEventStore(eventStore) :
+                eventStore);
+        AdminServerProperties.SnapshotCheckpointProperties checkpoint = adminServerProperties.getSnapshotCheckpoint();
+        if (checkpoint.isEnabled()) {
+            repository.setCheckpointStore(new SnapshotCheckpointStore(Paths.get(checkpoint.getFile())));
+            repository.setCheckpointInterval(checkpoint.getInterval());
+        }
+        AdminServerProperties.SnapshotHistoryProperties history = adminServerProperties.getSnapshotHistory();
+        if (history.isEnabled()) {
+            repository.setHistory(history.getRetention(),
+                history.getInterval(),
+                history.getMaxEventSize().toBytes()
+            );
+        }
+        repository.setValuePool(valuePool);
+        repository.setProjectionLanes(adminServerProperties.getSnapshotProjection().getLanes());
+        repository.setParallelReplay(adminServerProperties.getSnapshotProjection().isParallelReplay());
+        AdminServerProperties.PurgeProperties purge = adminServerProperties.getPurge();
+        if (purge.isEnabled()) {
+            repository.setPurgeDeregisteredAfter(purge.getDeregisteredTtl());
+            repository.setPurgeInterval(purge.getInterval());
+        }
+        AdminServerProperties.CommandMailboxProperties commandMailbox = adminServerProperties.getCommandMailbox();
+        if (commandMailbox.isEnabled()) {
+            repository.setCommandTimeout(commandMailbox.getTimeout());
+        }
+        return repository;
     }
 
     @Bean
@@ -162,4 +306,14 @@ public class AdminServerAutoConfiguration {
                                 .filters(filters -> filters.addAll(additionalFilters))
                                 .build();
     }
+
+    static void applyLogSizeLimits(ConcurrentMapEventStore eventStore,
+                                   AdminServerProperties.EventStoreProperties properties) {
+        if (properties.getMaxLogSizePerInstance() != null) {
+            eventStore.setMaxLogBytesPerAggregate(properties.getMaxLogSizePerInstance().toBytes());
+        }
+        if (properties.getMaxLogSize() != null) {
+            eventStore.setMaxLogBytes(properties.getMaxLogSize().toBytes());
+        }
+    }
 }
@@ -16,13 +16,20 @@
 
 package de.codecentric.boot.admin.server.config;
 
+import de.codecentric.boot.admin.server.domain.entities.InstanceRepository;
 import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
 import de.codecentric.boot.admin.server.domain.values.InstanceId;
 import de.codecentric.boot.admin.server.eventstore.HazelcastEventStore;
 import de.codecentric.boot.admin.server.eventstore.InstanceEventStore;
+import de.codecentric.boot.admin.server.services.HazelcastInstanceOwnership;
+import de.codecentric.boot.admin.server.services.HazelcastStatusPushReceiver;
+import de.codecentric.boot.admin.server.services.InstanceOwnership;
+import de.codecentric.boot.admin.server.services.StatusPushReceiver;
+import de.codecentric.boot.admin.server.utils.serialization.HazelcastSerializers;
 
 import java.util.List;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -32,8 +39,10 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnSingleCandi
 import org.springframework.boot.autoconfigure.hazelcast.HazelcastAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import com.hazelcast.config.Config;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.IMap;
+import com.hazelcast.core.ITopic;
 
 @Configuration
 @ConditionalOnBean(AdminServerMarkerConfiguration.Marker.class)
@@ -46,10 +55,67 @@ public class AdminServerHazelcastAutoConfiguration {
     @Value("${spring.boot.admin.hazelcast.event-store:spring-boot-admin-event-store}")
     private String mapName = "spring-boot-admin-event-store";
 
+    @Value("${spring.boot.admin.hazelcast.append-mode:REPLACE}")
+    private HazelcastEventStore.AppendMode appendMode = HazelcastEventStore.AppendMode.REPLACE;
+
+    @Value("${spring.boot.admin.hazelcast.event-topic-enabled:false}")
+    private boolean eventTopicEnabled = false;
+
+    @Value("${spring.boot.admin.hazelcast.event-topic:spring-boot-admin-event-topic}")
+    private String topicName = "spring-boot-admin-event-topic";
+
+    @Value("${spring.boot.admin.hazelcast.event-sequence:spring-boot-admin-event-sequence}")
+    private String sequenceName = "spring-boot-admin-event-sequence";
+
+    @Value("${spring.boot.admin.hazelcast.status-push-leases:spring-boot-admin-status-push-leases}")
+    private String leasesMapName = "spring-boot-admin-status-push-leases";
+
     @Bean
     @ConditionalOnMissingBean(InstanceEventStore.class)
-    public HazelcastEventStore eventStore(HazelcastInstance hazelcastInstance) {
+    public HazelcastEventStore eventStore(HazelcastInstance hazelcastInstance,
+                                          AdminServerProperties adminServerProperties) {
         IMap<InstanceId, List<InstanceEvent>> map = hazelcastInstance.getMap(mapName);
-        return new HazelcastEventStore(map);
+        ITopic<List<InstanceEvent>> topic = eventTopicEnabled ? hazelcastInstance.getReliableTopic(topicName) : null;
+        HazelcastEventStore eventStore = new HazelcastEventStore(100,
+            map,
+            appendMode,
+            topic,
+            hazelcastInstance.getAtomicLong(sequenceName)
+        );
+        AdminServerAutoConfiguration.applyLogSizeLimits(eventStore, adminServerProperties.getEventStore());
+        return eventStore;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(InstanceOwnership.class)
+    @ConditionalOnProperty(prefix = "spring.boot.admin.hazelcast", name = "partitioned-polling", matchIfMissing = true)
+    public HazelcastInstanceOwnership instanceOwnership(HazelcastInstance hazelcastInstance) {
+        return new HazelcastInstanceOwnership(hazelcastInstance);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(StatusPushReceiver.class)
+    @ConditionalOnProperty(prefix = "spring.boot.admin.monitor.status-push", name = "enabled")
+    public StatusPushReceiver statusPushReceiver(HazelcastInstance hazelcastInstance,
+                                                 InstanceRepository instanceRepository,
+                                                 AdminServerProperties adminServerProperties) {
+        IMap<InstanceId, Long> leases = hazelcastInstance.getMap(leasesMapName);
+        StatusPushReceiver receiver = new HazelcastStatusPushReceiver(instanceRepository, leases);
+        receiver.setMaxHeartbeatInterval(adminServerProperties.getMonitor().getStatusPush().getMaxHeartbeatInterval());
+        return receiver;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.boot.admin.hazelcast", name = "serializers")
+    public static BeanPostProcessor adminServerHazelcastSerializersPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof Config) {
+                    HazelcastSerializers.register(((Config) bean).getSerializationConfig());
+                }
+                return bean;
+            }
+        };
     }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.config;
+
+import de.codecentric.boot.admin.server.eventstore.InstanceEventStore;
+import de.codecentric.boot.admin.server.eventstore.JdbcEventStore;
+
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnSingleCandidate;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+@ConditionalOnBean(AdminServerMarkerConfiguration.Marker.class)
+@ConditionalOnClass(JdbcTemplate.class)
+@ConditionalOnSingleCandidate(DataSource.class)
+@ConditionalOnProperty(prefix = "spring.boot.admin.event-store.jdbc", name = "enabled")
+@AutoConfigureBefore({AdminServerAutoConfiguration.class, AdminServerHazelcastAutoConfiguration.class})
+@AutoConfigureAfter(DataSourceAutoConfiguration.class)
+public class AdminServerJdbcAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public JdbcEventStoreSchemaInitializer jdbcEventStoreSchemaInitializer(DataSource dataSource,
+                                                                           ResourceLoader resourceLoader,
+                                                                           AdminServerProperties properties) {
+        return new JdbcEventStoreSchemaInitializer(dataSource,
+            resourceLoader,
+            properties.getEventStore().getJdbc()
+        );
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean(InstanceEventStore.class)
+    public JdbcEventStore jdbcEventStore(DataSource dataSource,
+                                         AdminServerProperties adminServerProperties,
+                                         JdbcEventStoreSchemaInitializer schemaInitializer) {
+        AdminServerProperties.JdbcEventStoreProperties jdbc = adminServerProperties.getEventStore().getJdbc();
+        return new JdbcEventStore(100,
+            dataSource,
+            jdbc.getPollInterval(),
+            jdbc.getPollBatchSize(),
+            jdbc.getGapTimeout()
+        );
+    }
+}
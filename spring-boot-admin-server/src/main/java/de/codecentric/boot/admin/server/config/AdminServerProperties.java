@@ -24,8 +24,13 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceInitializationMode;
+import org.springframework.boot.convert.DataSizeUnit;
 import org.springframework.boot.convert.DurationUnit;
+import org.springframework.util.unit.DataSize;
+import org.springframework.util.unit.DataUnit;
 
 import static java.util.Arrays.asList;
 
@@ -42,6 +47,18 @@ public class AdminServerProperties {
 
     private InstanceProxyProperties instanceProxy = new InstanceProxyProperties();
 
+    private EventStoreProperties eventStore = new EventStoreProperties();
+
+    private SnapshotCheckpointProperties snapshotCheckpoint = new SnapshotCheckpointProperties();
+
+    private SnapshotHistoryProperties snapshotHistory = new SnapshotHistoryProperties();
+
+    private SnapshotProjectionProperties snapshotProjection = new SnapshotProjectionProperties();
+
+    private CommandMailboxProperties commandMailbox = new CommandMailboxProperties();
+
+    private PurgeProperties purge = new PurgeProperties();
+
     /**
      * The metadata keys which should be sanitized when serializing to json
      */
@@ -73,6 +90,11 @@ public class AdminServerProperties {
         @DurationUnit(ChronoUnit.MILLIS)
         private Duration statusLifetime = Duration.ofMillis(10_000L);
 
+        /**
+         * Maximum number of scheduled status updates running at the same time.
+         */
+        private int maxConcurrentStatusUpdates = 256;
+
         /**
          * Connect timeout when querying the instances' status and info.
          */
@@ -94,6 +116,292 @@ public class AdminServerProperties {
          * Number of retries per endpointId. Defaults to default-retry.
          */
         private Map<String, Integer> retries = new HashMap<>();
+
+        private AdaptivePollingProperties adaptive = new AdaptivePollingProperties();
+
+        private StatusPushProperties statusPush = new StatusPushProperties();
+    }
+
+    @lombok.Data
+    public static class StatusPushProperties {
+        /**
+         * Accepts the statuses pushed by the instances, which then aren't polled as long as their heartbeats arrive.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Upper bound for the heartbeat interval of instances pushing their status. An instance which stops pushing
+         * is polled again after at most twice this interval.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration maxHeartbeatInterval = Duration.ofMillis(300_000L);
+    }
+
+    @lombok.Data
+    public static class AdaptivePollingProperties {
+        /**
+         * Adapts the interval between the status updates of an instance to its status history.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Interval of the quick re-checks after a status change.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration transitionInterval = Duration.ofMillis(2_000L);
+
+        /**
+         * Number of quick re-checks after a status change.
+         */
+        private int transitionChecks = 3;
+
+        /**
+         * Time after which an UP instance is considered stable.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration stableAfter = Duration.ofMillis(600_000L);
+
+        /**
+         * Interval of the status updates of stable instances.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration stableInterval = Duration.ofMillis(60_000L);
+
+        /**
+         * Maximum interval the status updates of OFFLINE instances are backed off to.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration maxOfflineInterval = Duration.ofMillis(300_000L);
+
+        /**
+         * Limits per application name.
+         */
+        private Map<String, PollingLimitProperties> applications = new HashMap<>();
+
+        /**
+         * Limits per tag, given as key:value.
+         */
+        private Map<String, PollingLimitProperties> tags = new HashMap<>();
+    }
+
+    @lombok.Data
+    public static class PollingLimitProperties {
+        /**
+         * Interval of the status updates of stable instances. Defaults to the global setting.
+         */
+        @Nullable
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration stableInterval;
+
+        /**
+         * Maximum interval the status updates of OFFLINE instances are backed off to. Defaults to the global setting.
+         */
+        @Nullable
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration maxOfflineInterval;
+    }
+
+    @lombok.Data
+    public static class EventStoreProperties {
+        /**
+         * Maximum estimated size of the event log per instance. Superseded events are dropped when exceeded. No
+         * limit when unset.
+         */
+        @DataSizeUnit(DataUnit.KILOBYTES)
+        private DataSize maxLogSizePerInstance;
+
+        /**
+         * Maximum estimated size of all event logs. The log appended to is compacted when exceeded. No limit when
+         * unset.
+         */
+        @DataSizeUnit(DataUnit.MEGABYTES)
+        private DataSize maxLogSize;
+
+        private FileEventStoreProperties file = new FileEventStoreProperties();
+
+        private JdbcEventStoreProperties jdbc = new JdbcEventStoreProperties();
+
+        private BatchingEventStoreProperties batching = new BatchingEventStoreProperties();
+    }
+
+    @lombok.Data
+    public static class BatchingEventStoreProperties {
+        /**
+         * Collects the appended events of all instances and commits them together.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of appends committed together.
+         */
+        private int maxSize = 256;
+
+        /**
+         * Time window to collect the appends in.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration window = Duration.ofMillis(5L);
+    }
+
+    @lombok.Data
+    public static class FileEventStoreProperties {
+        /**
+         * Enables the file-backed event store, which keeps the event log over restarts.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Directory to store the event log segments in.
+         */
+        private String directory = "spring-boot-admin-events";
+
+        /**
+         * Size of a single event log segment.
+         */
+        @DataSizeUnit(DataUnit.MEGABYTES)
+        private DataSize segmentSize = DataSize.ofMegabytes(16L);
+
+        /**
+         * Number of segments which triggers the compaction of the event log.
+         */
+        private int maxSegments = 8;
+
+        /**
+         * Time interval to force the appended events to disk.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration syncInterval = Duration.ofMillis(1_000L);
+    }
+
+    @lombok.Data
+    public static class JdbcEventStoreProperties {
+        /**
+         * Enables the event store keeping the event log in the application's DataSource. Servers sharing the
+         * database share the registered instances.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Database schema initialization mode.
+         */
+        private DataSourceInitializationMode initializeSchema = DataSourceInitializationMode.EMBEDDED;
+
+        /**
+         * Path to the SQL file to use to initialize the database schema.
+         */
+        private String schema = "classpath:META-INF/spring-boot-admin-server/jdbc/schema-@@platform@@.sql";
+
+        /**
+         * Time interval to poll for events appended by other servers.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration pollInterval = Duration.ofMillis(1_000L);
+
+        /**
+         * Maximum number of events read per poll.
+         */
+        private int pollBatchSize = 500;
+
+        /**
+         * Time to wait for a missing sequence number to be committed, before skipping it.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration gapTimeout = Duration.ofMillis(10_000L);
+    }
+
+    @lombok.Data
+    public static class SnapshotCheckpointProperties {
+        /**
+         * Enables checkpoints of the instance snapshots, so only newer events need to be replayed on startup.
+         */
+        private boolean enabled = false;
+
+        /**
+         * File to store the checkpoint in.
+         */
+        private String file = "spring-boot-admin-snapshots.bin";
+
+        /**
+         * Time interval to write the checkpoint.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration interval = Duration.ofMillis(60_000L);
+    }
+
+    @lombok.Data
+    public static class SnapshotHistoryProperties {
+        /**
+         * Keeps periodic checkpoints of the snapshots, so the instances can be queried as they were at a point
+         * in time.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Time interval to checkpoint the instance snapshots.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration interval = Duration.ofMillis(300_000L);
+
+        /**
+         * Time to keep the checkpoints.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration retention = Duration.ofHours(6L);
+
+        /**
+         * Maximum estimated size of the events kept between the checkpoints. The oldest checkpoints are dropped
+         * when exceeded.
+         */
+        @DataSizeUnit(DataUnit.MEGABYTES)
+        private DataSize maxEventSize = DataSize.ofMegabytes(16L);
+    }
+
+    @lombok.Data
+    public static class SnapshotProjectionProperties {
+        /**
+         * Number of lanes the events are applied to the instance snapshots on. The events of one instance are always
+         * applied in order, the events of different instances are applied in parallel if there is more than one lane.
+         */
+        private int lanes = 1;
+
+        /**
+         * Replays the event log on startup in parallel, partitioned by instance.
+         */
+        private boolean parallelReplay = false;
+    }
+
+    @lombok.Data
+    public static class CommandMailboxProperties {
+        /**
+         * Serializes the updates of an instance on this server, instead of retrying them on conflicts.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Time after which a running update is cancelled, so the following updates of the instance aren't held up.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration timeout = Duration.ofSeconds(30L);
+    }
+
+    @lombok.Data
+    public static class PurgeProperties {
+        /**
+         * Enables removing the event logs and snapshots of deregistered instances.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Time to keep deregistered instances before purging them.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration deregisteredTtl = Duration.ofMillis(3_600_000L);
+
+        /**
+         * Time interval to check for deregistered instances to purge.
+         */
+        @DurationUnit(ChronoUnit.MILLIS)
+        private Duration interval = Duration.ofMillis(60_000L);
     }
 
     @lombok.Data
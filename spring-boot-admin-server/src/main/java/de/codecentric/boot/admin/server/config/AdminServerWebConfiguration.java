@@ -16,10 +16,12 @@
 
 package de.codecentric.boot.admin.server.config;
 
+import de.codecentric.boot.admin.server.domain.entities.SnapshottingInstanceRepository;
 import de.codecentric.boot.admin.server.domain.values.Registration;
 import de.codecentric.boot.admin.server.eventstore.InstanceEventPublisher;
 import de.codecentric.boot.admin.server.eventstore.InstanceEventStore;
 import de.codecentric.boot.admin.server.services.InstanceRegistry;
+import de.codecentric.boot.admin.server.services.StatusPushReceiver;
 import de.codecentric.boot.admin.server.utils.jackson.RegistrationBeanSerializerModifier;
 import de.codecentric.boot.admin.server.utils.jackson.RegistrationDeserializer;
 import de.codecentric.boot.admin.server.utils.jackson.SanitizingMapSerializer;
@@ -28,6 +30,7 @@ import de.codecentric.boot.admin.server.web.InstancesController;
 import de.codecentric.boot.admin.server.web.client.InstanceWebClient;
 import de.codecentric.boot.admin.server.web.servlet.InstancesProxyController;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
@@ -57,15 +60,22 @@ public class AdminServerWebConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public InstancesController instancesController(InstanceRegistry instanceRegistry, InstanceEventStore eventStore) {
-        return new InstancesController(instanceRegistry, eventStore);
+    public InstancesController instancesController(InstanceRegistry instanceRegistry,
+                                                   InstanceEventStore eventStore,
+                                                   ObjectProvider<StatusPushReceiver> statusPushReceiver) {
+        return new InstancesController(instanceRegistry, eventStore, statusPushReceiver.getIfAvailable());
     }
 
     @Bean
     @ConditionalOnMissingBean
     public ApplicationsController applicationsController(InstanceRegistry instanceRegistry,
-                                                         InstanceEventPublisher eventPublisher) {
-        return new ApplicationsController(instanceRegistry, eventPublisher);
+                                                         InstanceEventPublisher eventPublisher,
+                                                         ObjectProvider<SnapshottingInstanceRepository> snapshots) {
+        SnapshottingInstanceRepository repository = snapshots.getIfAvailable();
+        return new ApplicationsController(instanceRegistry,
+            eventPublisher,
+            repository != null ? repository.getApplications() : null
+        );
     }
 
     @Configuration
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.config;
+
+import javax.sql.DataSource;
+import org.springframework.boot.jdbc.AbstractDataSourceInitializer;
+import org.springframework.boot.jdbc.DataSourceInitializationMode;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * Initializes the table of the {@link de.codecentric.boot.admin.server.eventstore.JdbcEventStore}, using the schema
+ * script matching the database platform.
+ */
+public class JdbcEventStoreSchemaInitializer extends AbstractDataSourceInitializer {
+    private final AdminServerProperties.JdbcEventStoreProperties properties;
+
+    public JdbcEventStoreSchemaInitializer(DataSource dataSource,
+                                           ResourceLoader resourceLoader,
+                                           AdminServerProperties.JdbcEventStoreProperties properties) {
+        super(dataSource, resourceLoader);
+        this.properties = properties;
+    }
+
+    @Override
+    protected DataSourceInitializationMode getMode() {
+        return this.properties.getInitializeSchema();
+    }
+
+    @Override
+    protected String getSchemaLocation() {
+        return this.properties.getSchema();
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.domain.entities;
+
+import de.codecentric.boot.admin.server.domain.values.BuildVersion;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+
+import static de.codecentric.boot.admin.server.domain.values.StatusInfo.STATUS_RESTRICTED;
+import static de.codecentric.boot.admin.server.domain.values.StatusInfo.STATUS_UNKNOWN;
+import static de.codecentric.boot.admin.server.domain.values.StatusInfo.STATUS_UP;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Read model of the registered instances grouped by application. It is updated with every changed instance snapshot
+ * and keeps the status counts, the build versions and the aggregate status of the application up to date, so an
+ * update doesn't need to look at the other instances of the application.
+ */
+public final class ApplicationProjection {
+    private final ConcurrentMap<String, Group> groups = new ConcurrentHashMap<>();
+    private final DirectProcessor<String> changes = DirectProcessor.create();
+    private final FluxSink<String> changesSink = this.changes.sink();
+
+    /**
+     * Moves the instance from the application of the old snapshot to the application of the new one. The changes are
+     * not published, as this is called while the snapshot is computed; use {@link #publish(Collection)} afterwards.
+     *
+     * @param id       the instance
+     * @param previous the previous snapshot or {@code null} if there was none
+     * @param current  the current snapshot or {@code null} if the snapshot has been removed
+     * @param changed  the names of the changed applications are added to
+     */
+    void update(InstanceId id, @Nullable Instance previous, @Nullable Instance current, Collection<String> changed) {
+        String previousName = getName(previous);
+        String currentName = getName(current);
+        if (previousName != null && !previousName.equals(currentName)) {
+            this.groups.computeIfPresent(previousName, (name, group) -> group.remove(id) ? group : null);
+            changed.add(previousName);
+        }
+        if (current != null && currentName != null) {
+            this.groups.compute(currentName, (name, group) -> {
+                Group result = group != null ? group : new Group(name);
+                result.put(id, current);
+                return result;
+            });
+            changed.add(currentName);
+        }
+    }
+
+    /**
+     * Emits the changed applications to the subscribers of {@link #getChanges()}.
+     *
+     * @param changed the names of the changed applications
+     */
+    void publish(Collection<String> changed) {
+        changed.forEach(this.changesSink::next);
+    }
+
+    /**
+     * @return the names of the applications changed, emitted after the change has been applied to the projection.
+     */
+    public Flux<String> getChanges() {
+        return this.changes.onBackpressureBuffer();
+    }
+
+    /**
+     * @param name the name of the application
+     * @return the application or {@code null} if no instance of this application is registered.
+     */
+    @Nullable
+    public Application get(String name) {
+        Group group = this.groups.get(name);
+        return group != null ? group.toApplication() : null;
+    }
+
+    /**
+     * @return all applications with at least one registered instance.
+     */
+    public List<Application> getAll() {
+        List<Application> applications = new ArrayList<>(this.groups.size());
+        for (Group group : this.groups.values()) {
+            applications.add(group.toApplication());
+        }
+        return applications;
+    }
+
+    @Nullable
+    private static String getName(@Nullable Instance instance) {
+        if (instance == null || !instance.isRegistered()) {
+            return null;
+        }
+        return instance.getRegistration().getName();
+    }
+
+    /**
+     * The state of an application at the time it was read.
+     */
+    @lombok.Data
+    public static class Application {
+        private final String name;
+        private final String status;
+        private final Instant statusTimestamp;
+        @Nullable
+        private final BuildVersion minBuildVersion;
+        @Nullable
+        private final BuildVersion maxBuildVersion;
+        private final Map<String, Integer> statusCounts;
+        private final List<Instance> instances;
+    }
+
+    /**
+     * The mutable state of one application. All access is guarded by the group's monitor.
+     */
+    private static final class Group {
+        private final String name;
+        private final Map<InstanceId, Instance> instances = new LinkedHashMap<>();
+        private final Map<String, SortedCounts<Instant>> statuses = new HashMap<>();
+        private final SortedCounts<BuildVersion> buildVersions = new SortedCounts<>();
+        private String status = STATUS_UNKNOWN;
+        private Instant statusTimestamp = Instant.EPOCH;
+
+        private Group(String name) {
+            this.name = name;
+        }
+
+        private synchronized void put(InstanceId id, Instance instance) {
+            Instance previous = this.instances.put(id, instance);
+            if (previous != null) {
+                this.subtract(previous);
+            }
+            this.add(instance);
+            this.updateStatus();
+        }
+
+        /**
+         * @return {@code true} if instances are left in the group.
+         */
+        private synchronized boolean remove(InstanceId id) {
+            Instance previous = this.instances.remove(id);
+            if (previous != null) {
+                this.subtract(previous);
+                this.updateStatus();
+            }
+            return !this.instances.isEmpty();
+        }
+
+        private void add(Instance instance) {
+            this.statuses.computeIfAbsent(instance.getStatusInfo().getStatus(), s -> new SortedCounts<>())
+                         .add(instance.getStatusTimestamp());
+            if (instance.getBuildVersion() != null) {
+                this.buildVersions.add(instance.getBuildVersion());
+            }
+        }
+
+        private void subtract(Instance instance) {
+            String instanceStatus = instance.getStatusInfo().getStatus();
+            SortedCounts<Instant> timestamps = this.statuses.get(instanceStatus);
+            if (timestamps != null && timestamps.remove(instance.getStatusTimestamp())) {
+                this.statuses.remove(instanceStatus);
+            }
+            if (instance.getBuildVersion() != null) {
+                this.buildVersions.remove(instance.getBuildVersion());
+            }
+        }
+
+        /**
+         * Derives the aggregate status from the statuses present, using the latest timestamp per status. A mix of
+         * {@code UP} and other statuses is {@code RESTRICTED}, otherwise the most severe status wins.
+         */
+        private void updateStatus() {
+            if (this.statuses.isEmpty()) {
+                this.status = STATUS_UNKNOWN;
+                this.statusTimestamp = Instant.EPOCH;
+            } else if (this.statuses.size() == 1) {
+                Map.Entry<String, SortedCounts<Instant>> entry = this.statuses.entrySet().iterator().next();
+                this.status = entry.getKey();
+                this.statusTimestamp = entry.getValue().last();
+            } else if (this.statuses.containsKey(STATUS_UP)) {
+                Instant oldestNonUp = null;
+                for (Map.Entry<String, SortedCounts<Instant>> entry : this.statuses.entrySet()) {
+                    Instant latest = entry.getValue().last();
+                    if (!STATUS_UP.equals(entry.getKey()) && (oldestNonUp == null || latest.isBefore(oldestNonUp))) {
+                        oldestNonUp = latest;
+                    }
+                }
+                Instant latestUp = this.statuses.get(STATUS_UP).last();
+                this.status = STATUS_RESTRICTED;
+                this.statusTimestamp = oldestNonUp != null && oldestNonUp.isAfter(latestUp) ? oldestNonUp : latestUp;
+            } else {
+                String mostSevere = null;
+                for (String candidate : this.statuses.keySet()) {
+                    if (mostSevere == null || StatusInfo.severity().compare(candidate, mostSevere) < 0) {
+                        mostSevere = candidate;
+                    }
+                }
+                this.status = mostSevere;
+                this.statusTimestamp = this.statuses.get(mostSevere).last();
+            }
+        }
+
+        private synchronized Application toApplication() {
+            Map<String, Integer> statusCounts = new HashMap<>();
+            this.statuses.forEach((s, timestamps) -> statusCounts.put(s, timestamps.size()));
+            return new Application(this.name,
+                this.status,
+                this.statusTimestamp,
+                this.buildVersions.isEmpty() ? null : this.buildVersions.first(),
+                this.buildVersions.isEmpty() ? null : this.buildVersions.last(),
+                unmodifiableMap(statusCounts),
+                unmodifiableList(new ArrayList<>(this.instances.values()))
+            );
+        }
+    }
+
+    /**
+     * Sorted multiset, keeping the smallest and largest value available while values are removed.
+     */
+    private static final class SortedCounts<T extends Comparable<? super T>> {
+        private final TreeMap<T, Integer> counts = new TreeMap<>();
+        private int size = 0;
+
+        private void add(T value) {
+            this.counts.merge(value, 1, Integer::sum);
+            this.size++;
+        }
+
+        /**
+         * @return {@code true} if no values are left.
+         */
+        private boolean remove(T value) {
+            Integer count = this.counts.get(value);
+            if (count != null) {
+                if (count == 1) {
+                    this.counts.remove(value);
+                } else {
+                    this.counts.put(value, count - 1);
+                }
+                this.size--;
+            }
+            return this.size == 0;
+        }
+
+        private T first() {
+            return this.counts.firstKey();
+        }
+
+        private T last() {
+            return this.counts.lastKey();
+        }
+
+        private int size() {
+            return this.size;
+        }
+
+        private boolean isEmpty() {
+            return this.size == 0;
+        }
+    }
+}
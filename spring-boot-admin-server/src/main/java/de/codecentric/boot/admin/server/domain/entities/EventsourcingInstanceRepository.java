@@ -20,14 +20,20 @@ import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
 import de.codecentric.boot.admin.server.domain.values.InstanceId;
 import de.codecentric.boot.admin.server.eventstore.InstanceEventStore;
 import de.codecentric.boot.admin.server.eventstore.OptimisticLockingException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.retry.Retry;
 
 import java.time.Duration;
-import java.util.concurrent.atomic.AtomicReference;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
-import java.util.function.Supplier;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,15 +42,22 @@ import org.slf4j.LoggerFactory;
  *
  * @author Johannes Edmeier
  */
-public class EventsourcingInstanceRepository implements InstanceRepository {
+public class EventsourcingInstanceRepository implements InstanceRepository, MeterBinder {
     private static final Logger log = LoggerFactory.getLogger(EventsourcingInstanceRepository.class);
     private final InstanceEventStore eventStore;
+    private final AtomicLong retries = new AtomicLong();
     private final Retry<?> retryOnOptimisticLockException = Retry.anyOf(OptimisticLockingException.class)
                                                                  .fixedBackoff(Duration.ofMillis(50L))
                                                                  .retryMax(10)
-                                                                 .doOnRetry(ctx -> log.debug(
-                                                                     "Retrying after OptimisticLockingException",
-                                                                     ctx.exception()));
+                                                                 .doOnRetry(ctx -> {
+                                                                     retries.incrementAndGet();
+                                                                     log.debug(
+                                                                         "Retrying after OptimisticLockingException",
+                                                                         ctx.exception()
+                                                                     );
+                                                                 });
+    @Nullable
+    private InstanceCommandMailbox commandMailbox;
 
     public EventsourcingInstanceRepository(InstanceEventStore eventStore) {
         this.eventStore = eventStore;
@@ -59,16 +72,50 @@ public class EventsourcingInstanceRepository implements InstanceRepository {
     public Flux<Instance> findAll() {
         return eventStore.findAll()
                          .groupBy(InstanceEvent::getInstance)
-                         .flatMap(f -> f.reduce(Instance.create(f.key()), Instance::apply));
+                         .flatMap(f -> f.collectList().map(events -> Instance.create(f.key()).apply(events)));
+    }
+
+    @Override
+    public boolean isHistorySupported() {
+        return true;
+    }
+
+    /**
+     * Replays the events up to the given time. As the event store only keeps a limited log per instance, older
+     * states may not be available anymore: if events of an instance have been compacted away (i.e. its versions
+     * have a gap) before the given time, the query fails with a {@link HistoryNotRetainedException}.
+     */
+    @Override
+    public Flux<Instance> findAll(Instant at) {
+        return eventStore.findAll()
+                         .groupBy(InstanceEvent::getInstance)
+                         .flatMap(f -> f.collectList().flatMap(events -> replay(f.key(), events, at)));
+    }
+
+    private static Mono<Instance> replay(InstanceId id, List<InstanceEvent> events, Instant at) {
+        List<InstanceEvent> replayed = new ArrayList<>(events.size());
+        long expectedVersion = 0L;
+        for (InstanceEvent event : events) {
+            if (event.getVersion() != expectedVersion) {
+                //the missing events may have happened before the given time
+                return Mono.error(new HistoryNotRetainedException(
+                    "The events of " + id + " before " + at + " aren't retained anymore"));
+            }
+            if (event.getTimestamp().isAfter(at)) {
+                break;
+            }
+            replayed.add(event);
+            expectedVersion++;
+        }
+        return replayed.isEmpty() ? Mono.empty() : Mono.just(Instance.create(id).apply(replayed));
     }
 
     @Override
     public Mono<Instance> find(InstanceId id) {
-        //hmm a simple reduce doesn't return empty when not found...
-        return eventStore.find(id).collect((Supplier<AtomicReference<Instance>>) AtomicReference::new, (ref, event) -> {
-            Instance instance = ref.get() != null ? ref.get() : Instance.create(id);
-            ref.set(instance.apply(event));
-        }).flatMap(ref -> Mono.justOrEmpty(ref.get()));
+        return eventStore.find(id)
+                         .collectList()
+                         .filter(events -> !events.isEmpty())
+                         .map(events -> Instance.create(id).apply(events));
     }
 
     @Override
@@ -78,20 +125,60 @@ public class EventsourcingInstanceRepository implements InstanceRepository {
 
     @Override
     public Mono<Instance> compute(InstanceId id, BiFunction<InstanceId, Instance, Mono<Instance>> remappingFunction) {
-        return this.find(id)
-                   .flatMap(application -> remappingFunction.apply(id, application))
-                   .switchIfEmpty(Mono.defer(() -> remappingFunction.apply(id, null)))
-                   .flatMap(this::save)
-                   .retryWhen(retryOnOptimisticLockException);
+        return this.serialize(id, this.find(id)
+                                      .flatMap(application -> remappingFunction.apply(id, application))
+                                      .switchIfEmpty(Mono.defer(() -> remappingFunction.apply(id, null)))
+                                      .flatMap(this::save)
+                                      .retryWhen(retryOnOptimisticLockException));
     }
 
     @Override
     public Mono<Instance> computeIfPresent(InstanceId id,
                                            BiFunction<InstanceId, Instance, Mono<Instance>> remappingFunction) {
-        return this.find(id)
-                   .flatMap(application -> remappingFunction.apply(id, application))
-                   .flatMap(this::save)
-                   .retryWhen(retryOnOptimisticLockException);
+        return this.serialize(id, this.find(id)
+                                      .flatMap(application -> remappingFunction.apply(id, application))
+                                      .flatMap(this::save)
+                                      .retryWhen(retryOnOptimisticLockException));
+    }
+
+    /**
+     * Enables the serialization of {@code compute} and {@code computeIfPresent} per instance. The commands of an
+     * instance are chained and run one after another, so concurrent updates of an instance on this server don't
+     * conflict and don't need to be retried. Conflicts with other servers (e.g. in a cluster) are still retried.
+     *
+     * @param timeout the time after which a running command is cancelled, {@code null} to disable the serialization.
+     */
+    public void setCommandTimeout(@Nullable Duration timeout) {
+        InstanceCommandMailbox previous = this.commandMailbox;
+        this.commandMailbox = timeout != null ? new InstanceCommandMailbox(timeout) : null;
+        if (previous != null) {
+            previous.dispose();
+        }
+    }
+
+    public void stop() {
+        InstanceCommandMailbox mailbox = this.commandMailbox;
+        if (mailbox != null) {
+            mailbox.dispose();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("spring.boot.admin.instances.compute.retries", this.retries, AtomicLong::get)
+                       .description("Number of compute commands retried after an optimistic locking conflict")
+                       .register(registry);
+        FunctionCounter.builder("spring.boot.admin.instances.compute.serialized",
+            this,
+            repository -> repository.commandMailbox != null ? repository.commandMailbox.getSerializedCount() : 0L
+        )
+                       .description("Number of compute commands queued behind a pending command of the instance")
+                       .register(registry);
+    }
+
+    private Mono<Instance> serialize(InstanceId id, Mono<Instance> command) {
+        InstanceCommandMailbox mailbox = this.commandMailbox;
+        return mailbox != null ? mailbox.submit(id, command) : command;
     }
 
     protected final InstanceEventStore getEventStore() {
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2014-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.domain.entities;
+
+/**
+ * Thrown when the instances are queried at a point in time which isn't retained anymore (e.g. the event logs have
+ * been compacted since).
+ */
+public class HistoryNotRetainedException extends RuntimeException {
+
+    public HistoryNotRetainedException(String message) {
+        super(message);
+    }
+}
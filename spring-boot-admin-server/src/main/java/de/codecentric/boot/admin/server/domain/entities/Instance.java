@@ -40,6 +40,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.UnaryOperator;
 import javax.annotation.Nullable;
 import org.springframework.util.Assert;
 
@@ -120,6 +121,34 @@ public class Instance implements Serializable {
         return new Instance(id);
     }
 
+    /**
+     * Restores a previously persisted instance. The build version and tags are derived from the registration and
+     * info the same way applying the events does.
+     */
+    static Instance restore(InstanceId id,
+                            long version,
+                            @Nullable Registration registration,
+                            boolean registered,
+                            StatusInfo statusInfo,
+                            Instant statusTimestamp,
+                            Info info,
+                            Endpoints endpoints) {
+        boolean hasRegistration = registered && registration != null;
+        Map<String, ?> metaData = hasRegistration ? registration.getMetadata() : emptyMap();
+        return new Instance(id,
+            version,
+            registration,
+            registered,
+            statusInfo,
+            statusTimestamp,
+            info,
+            endpoints,
+            hasRegistration ? updateBuildVersion(metaData, info.getValues()) : null,
+            hasRegistration ? updateTags(metaData, info.getValues()) : Tags.empty(),
+            emptyList()
+        );
+    }
+
     public Instance register(Registration registration) {
         Assert.notNull(registration, "'registration' must not be null");
         if (!this.isRegistered()) {
@@ -179,6 +208,11 @@ public class Instance implements Serializable {
         return this.registration;
     }
 
+    @Nullable
+    Registration getRegistrationOrNull() {
+        return this.registration;
+    }
+
     List<InstanceEvent> getUnsavedEvents() {
         return unmodifiableList(this.unsavedEvents);
     }
@@ -198,13 +232,63 @@ public class Instance implements Serializable {
         );
     }
 
+    /**
+     * Replaces the values of the instance with their pooled copies. The values shared with the previous snapshot
+     * have been pooled before, so they aren't looked up again.
+     *
+     * @param pool     the pool to intern the values with
+     * @param previous the previous snapshot of the instance or {@code null}
+     * @return the instance holding the pooled values
+     */
+    Instance internValues(InstanceValuePool pool, @Nullable Instance previous) {
+        Registration internedRegistration = this.registration != null ?
+            internValue(this.registration, previous != null ? previous.registration : null, pool::intern) :
+            null;
+        Info internedInfo = internValue(this.info, previous != null ? previous.info : null, pool::intern);
+        Endpoints internedEndpoints = internValue(this.endpoints,
+            previous != null ? previous.endpoints : null,
+            pool::intern
+        );
+        Tags internedTags = internValue(this.tags, previous != null ? previous.tags : null, pool::intern);
+        if (internedRegistration == this.registration &&
+            internedInfo == this.info &&
+            internedEndpoints == this.endpoints &&
+            internedTags == this.tags) {
+            return this;
+        }
+        return new Instance(this.id,
+            this.version,
+            internedRegistration,
+            this.registered,
+            this.statusInfo,
+            this.statusTimestamp,
+            internedInfo,
+            internedEndpoints,
+            this.buildVersion,
+            internedTags,
+            this.unsavedEvents
+        );
+    }
+
+    private static <T> T internValue(T value, @Nullable T previous, UnaryOperator<T> intern) {
+        return value == previous ? value : intern.apply(value);
+    }
+
+    /**
+     * Applies all events at once. The events are folded into a mutable replay state, so only a single instance is
+     * created and the derived values (endpoints including health, build version and tags) are computed once. The
+     * result is the same as applying the events one by one.
+     */
     Instance apply(Collection<InstanceEvent> events) {
         Assert.notNull(events, "'events' must not be null");
-        Instance instance = this;
+        if (events.size() == 1) {
+            return this.apply(events.iterator().next());
+        }
+        Replay replay = new Replay(this);
         for (InstanceEvent event : events) {
-            instance = instance.apply(event);
+            replay.apply(event);
         }
-        return instance;
+        return replay.build();
     }
 
     Instance apply(InstanceEvent event) {
@@ -314,6 +398,102 @@ public class Instance implements Serializable {
         return this;
     }
 
+    private static final class Replay {
+        private final Instance origin;
+        private long version;
+        @Nullable
+        private Registration registration;
+        private boolean registered;
+        private StatusInfo statusInfo;
+        private Instant statusTimestamp;
+        private Info info;
+        private Endpoints endpoints;
+        @Nullable
+        private BuildVersion buildVersion;
+        private Tags tags;
+        private boolean derivedStale = false;
+        private boolean changed = false;
+
+        private Replay(Instance origin) {
+            this.origin = origin;
+            this.version = origin.version;
+            this.registration = origin.registration;
+            this.registered = origin.registered;
+            this.statusInfo = origin.statusInfo;
+            this.statusTimestamp = origin.statusTimestamp;
+            this.info = origin.info;
+            this.endpoints = origin.endpoints;
+            this.buildVersion = origin.buildVersion;
+            this.tags = origin.tags;
+        }
+
+        private void apply(InstanceEvent event) {
+            Assert.notNull(event, "'event' must not be null");
+            Assert.isTrue(this.origin.id.equals(event.getInstance()), "'event' must refer the same instance");
+            Assert.isTrue(this.version + 1L == event.getVersion(),
+                () -> "Event " + event.getVersion() + " doesn't match exptected version " + (this.version + 1L)
+            );
+
+            if (event instanceof InstanceRegisteredEvent) {
+                this.registration = ((InstanceRegisteredEvent) event).getRegistration();
+                this.registered = true;
+                this.statusInfo = StatusInfo.ofUnknown();
+                this.statusTimestamp = event.getTimestamp();
+                this.info = Info.empty();
+                this.endpoints = Endpoints.empty();
+                this.derivedStale = true;
+            } else if (event instanceof InstanceRegistrationUpdatedEvent) {
+                this.registration = ((InstanceRegistrationUpdatedEvent) event).getRegistration();
+                this.derivedStale = true;
+            } else if (event instanceof InstanceStatusChangedEvent) {
+                this.statusInfo = ((InstanceStatusChangedEvent) event).getStatusInfo();
+                this.statusTimestamp = event.getTimestamp();
+            } else if (event instanceof InstanceEndpointsDetectedEvent) {
+                this.endpoints = ((InstanceEndpointsDetectedEvent) event).getEndpoints();
+            } else if (event instanceof InstanceInfoChangedEvent) {
+                this.info = ((InstanceInfoChangedEvent) event).getInfo();
+                this.derivedStale = true;
+            } else if (event instanceof InstanceDeregisteredEvent) {
+                this.registered = false;
+                this.statusInfo = StatusInfo.ofUnknown();
+                this.statusTimestamp = event.getTimestamp();
+                this.info = Info.empty();
+                this.endpoints = Endpoints.empty();
+                this.buildVersion = null;
+                this.tags = Tags.empty();
+                this.derivedStale = false;
+            } else {
+                //unknown events don't change the instance, not even its version
+                return;
+            }
+            this.version = event.getVersion();
+            this.changed = true;
+        }
+
+        private Instance build() {
+            if (!this.changed) {
+                return this.origin;
+            }
+            if (this.derivedStale) {
+                Map<String, ?> metaData = this.registration != null ? this.registration.getMetadata() : emptyMap();
+                this.buildVersion = updateBuildVersion(metaData, this.info.getValues());
+                this.tags = updateTags(metaData, this.info.getValues());
+            }
+            return new Instance(this.origin.id,
+                this.version,
+                this.registration,
+                this.registered,
+                this.statusInfo,
+                this.statusTimestamp,
+                this.info,
+                this.endpoints,
+                this.buildVersion,
+                this.tags,
+                this.origin.unsavedEvents
+            );
+        }
+    }
+
     private long nextVersion() {
         return this.version + 1L;
     }
@@ -330,12 +510,12 @@ public class Instance implements Serializable {
 
     @Nullable
     @SafeVarargs
-    private final BuildVersion updateBuildVersion(Map<String, ?>... sources) {
+    private static BuildVersion updateBuildVersion(Map<String, ?>... sources) {
         return Arrays.stream(sources).map(BuildVersion::from).filter(Objects::nonNull).findFirst().orElse(null);
     }
 
     @SafeVarargs
-    private final Tags updateTags(Map<String, ?>... sources) {
+    private static Tags updateTags(Map<String, ?>... sources) {
         return Arrays.stream(sources).map(source -> Tags.from(source, "tags")).reduce(Tags.empty(), Tags::append);
     }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.domain.entities;
+
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Serializes the commands (e.g. {@code compute}) per instance. Each command is chained to the tail of the previous
+ * command of the same instance and subscribed to after that one has terminated, so two commands for the same instance
+ * never run concurrently and can't conflict with each other. Commands of other instances are not affected. A command
+ * running longer than the timeout is cancelled with a {@link java.util.concurrent.TimeoutException}, so it can't hold
+ * up the following commands forever.
+ */
+final class InstanceCommandMailbox {
+    private static final Logger log = LoggerFactory.getLogger(InstanceCommandMailbox.class);
+    private final ConcurrentMap<InstanceId, MonoProcessor<Void>> tails = new ConcurrentHashMap<>();
+    private final MonoProcessor<Void> disposed = MonoProcessor.create();
+    private final AtomicLong serialized = new AtomicLong();
+    private final Duration timeout;
+
+    InstanceCommandMailbox(Duration timeout) {
+        Assert.isTrue(!timeout.isNegative() && !timeout.isZero(), "'timeout' must be greater than 0");
+        this.timeout = timeout;
+    }
+
+    /**
+     * Queues the command for the instance. The command is subscribed to after all commands submitted before for the
+     * same instance have terminated.
+     *
+     * @param id      the instance the command is for
+     * @param command the command
+     * @param <T>     the result type
+     * @return the result of the command
+     */
+    <T> Mono<T> submit(InstanceId id, Mono<T> command) {
+        return Mono.defer(() -> {
+            MonoProcessor<Void> tail = MonoProcessor.create();
+            MonoProcessor<Void> previous = this.tails.put(id, tail);
+            Mono<T> run = command.timeout(this.timeout);
+            if (previous != null && !previous.isTerminated()) {
+                //without the mailbox this command would have raced with the pending one
+                this.serialized.incrementAndGet();
+                log.trace("Queueing command for instance {}", id);
+                run = previous.or(this.disposed).then(run);
+            }
+            return run.doFinally(s -> {
+                tail.onComplete();
+                this.tails.remove(id, tail);
+            });
+        });
+    }
+
+    /**
+     * Releases the commands waiting for their predecessors, e.g. on shutdown.
+     */
+    void dispose() {
+        this.disposed.onComplete();
+        this.tails.clear();
+    }
+
+    /**
+     * @return the number of commands which had to wait for a pending command of the same instance.
+     */
+    long getSerializedCount() {
+        return this.serialized.get();
+    }
+
+    /**
+     * @return the number of instances with pending commands.
+     */
+    int getPendingCount() {
+        return this.tails.size();
+    }
+}
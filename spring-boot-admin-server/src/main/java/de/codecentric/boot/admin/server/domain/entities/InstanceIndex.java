@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.domain.entities;
+
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+import static java.util.Collections.emptySet;
+
+/**
+ * Secondary index of the instance snapshots, mapping the keys derived from an instance (e.g. the application name) to
+ * the ids of the instances. Only registered instances are indexed.
+ */
+final class InstanceIndex<K> {
+    private final ConcurrentMap<K, Set<InstanceId>> ids = new ConcurrentHashMap<>();
+    private final Function<Instance, Collection<K>> keyExtractor;
+
+    InstanceIndex(Function<Instance, Collection<K>> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * Moves the instance from the keys of the old snapshot to the keys of the new one.
+     *
+     * @param id       the instance
+     * @param previous the previous snapshot or {@code null} if there was none
+     * @param current  the current snapshot or {@code null} if the snapshot has been removed
+     */
+    void update(InstanceId id, @Nullable Instance previous, @Nullable Instance current) {
+        Collection<K> previousKeys = this.getKeys(previous);
+        Collection<K> currentKeys = this.getKeys(current);
+        for (K key : previousKeys) {
+            if (!currentKeys.contains(key)) {
+                this.ids.computeIfPresent(key, (k, set) -> {
+                    set.remove(id);
+                    return set.isEmpty() ? null : set;
+                });
+            }
+        }
+        for (K key : currentKeys) {
+            if (!previousKeys.contains(key)) {
+                this.ids.compute(key, (k, set) -> {
+                    Set<InstanceId> result = set != null ? set : ConcurrentHashMap.newKeySet();
+                    result.add(id);
+                    return result;
+                });
+            }
+        }
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the ids of the instances with this key. The index may be modified concurrently, so callers must check
+     * the snapshots they resolve.
+     */
+    Set<InstanceId> get(K key) {
+        return this.ids.getOrDefault(key, emptySet());
+    }
+
+    private Collection<K> getKeys(@Nullable Instance instance) {
+        if (instance == null || !instance.isRegistered()) {
+            return emptySet();
+        }
+        return this.keyExtractor.apply(instance);
+    }
+}
@@ -20,6 +20,7 @@ import de.codecentric.boot.admin.server.domain.values.InstanceId;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.function.BiFunction;
 
 /**
@@ -42,6 +43,24 @@ public interface InstanceRepository {
      */
     Flux<Instance> findAll();
 
+    /**
+     * @return whether the repository supports querying past states using {@link #findAll(Instant)}.
+     */
+    default boolean isHistorySupported() {
+        return false;
+    }
+
+    /**
+     * @param at the point in time
+     * @return all instances in the repository as they were at the given time; an {@link
+     * UnsupportedOperationException} if the history isn't supported (see {@link #isHistorySupported()}) or a {@link
+     * HistoryNotRetainedException} if the state at the given time isn't retained anymore.
+     */
+    default Flux<Instance> findAll(Instant at) {
+        return Flux.error(new UnsupportedOperationException(
+            "Querying past states is not supported by " + getClass().getSimpleName()));
+    }
+
     /**
      * @param id the instances id
      * @return the instance with the specified id;
@@ -54,6 +73,30 @@ public interface InstanceRepository {
      */
     Flux<Instance> findByName(String name);
 
+    /**
+     * @param status the instances status
+     * @return all registered instances with the specified status;
+     */
+    default Flux<Instance> findByStatus(String status) {
+        return findAll().filter(a -> a.isRegistered() && status.equals(a.getStatusInfo().getStatus()));
+    }
+
+    /**
+     * @param key   the tag key
+     * @param value the tag value
+     * @return all registered instances having the specified tag;
+     */
+    default Flux<Instance> findByTag(String key, String value) {
+        return findAll().filter(a -> a.isRegistered() && value.equals(a.getTags().getValues().get(key)));
+    }
+
+    /**
+     * @param source the source of the registration
+     * @return all registered instances registered by the specified source;
+     */
+    default Flux<Instance> findBySource(String source) {
+        return findAll().filter(a -> a.isRegistered() && source.equals(a.getRegistration().getSource()));
+    }
 
     /**
      * Updates the instance associated with the id using the remapping function.
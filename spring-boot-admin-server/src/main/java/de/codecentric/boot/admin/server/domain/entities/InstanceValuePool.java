@@ -0,0 +1,189 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.domain.entities;
+
+import de.codecentric.boot.admin.server.domain.values.Endpoint;
+import de.codecentric.boot.admin.server.domain.values.Endpoints;
+import de.codecentric.boot.admin.server.domain.values.Info;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.Tags;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+import javax.annotation.Nullable;
+
+/**
+ * Weak pool of the values held by the instance snapshots. Replicas of an application usually have equal info, tags,
+ * endpoint ids and metadata, so interning them lets the snapshots share a single copy. Pooled values are released by
+ * the garbage collector as soon as nothing references them anymore.
+ * <p>
+ * Values missing in the pool are rebuilt from interned parts first, so e.g. two infos differing in a single entry
+ * still share the equal nested {@code build} and {@code git} maps. As the pooled values are shared across snapshots,
+ * only immutable values are pooled: nested maps and lists are copied into unmodifiable ones, values of other types
+ * are kept as they are. The pool is backed by a {@link ConcurrentHashMap}, so snapshots updated in parallel don't
+ * contend on a single lock.
+ */
+public class InstanceValuePool {
+    private final ConcurrentMap<PooledValue, PooledValue> pool = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> released = new ReferenceQueue<>();
+
+    public Info intern(Info info) {
+        if (info.getValues().isEmpty()) {
+            return info;
+        }
+        return intern(info, i -> Info.from(internValues(i.getValues())));
+    }
+
+    public Tags intern(Tags tags) {
+        if (tags.getValues().isEmpty()) {
+            return tags;
+        }
+        return intern(tags, t -> Tags.from(internValues(t.getValues())));
+    }
+
+    public Endpoints intern(Endpoints endpoints) {
+        if (!endpoints.iterator().hasNext()) {
+            return endpoints;
+        }
+        return intern(endpoints, e -> {
+            List<Endpoint> interned = new ArrayList<>();
+            for (Endpoint endpoint : e) {
+                interned.add(internValue(Endpoint.of(internValue(endpoint.getId()), endpoint.getUrl())));
+            }
+            return Endpoints.of(interned);
+        });
+    }
+
+    public Registration intern(Registration registration) {
+        return intern(registration, r -> Registration.copyOf(r)
+                                                     .name(internValue(r.getName()))
+                                                     .source(r.getSource() != null ? internValue(r.getSource()) : null)
+                                                     .clearMetadata()
+                                                     .metadata(internValues(r.getMetadata()))
+                                                     .build());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> Map<String, V> internValues(Map<String, V> values) {
+        Map<String, V> interned = new LinkedHashMap<>(values.size() * 4 / 3 + 1);
+        values.forEach((key, value) -> interned.put(internValue(key), value != null ? (V) internNested(value) : null));
+        return interned;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object internNested(Object value) {
+        if (value instanceof Map) {
+            return intern((Map<String, Object>) value, m -> Collections.unmodifiableMap(internValues(m)));
+        }
+        if (value instanceof List) {
+            return intern((List<Object>) value, l -> {
+                List<Object> interned = new ArrayList<>(l.size());
+                l.forEach(element -> interned.add(element != null ? internNested(element) : null));
+                return Collections.unmodifiableList(interned);
+            });
+        }
+        return isImmutable(value) ? internValue(value) : value;
+    }
+
+    private static boolean isImmutable(Object value) {
+        return value instanceof String ||
+               value instanceof Boolean ||
+               value instanceof Integer ||
+               value instanceof Long ||
+               value instanceof Double ||
+               value instanceof BigInteger ||
+               value instanceof BigDecimal;
+    }
+
+    private <T> T intern(T value, UnaryOperator<T> rebuild) {
+        T canonical = this.get(value);
+        return canonical != null ? canonical : this.internValue(rebuild.apply(value));
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private <T> T get(T value) {
+        PooledValue pooled = this.pool.get(new PooledValue(value, null));
+        return pooled != null ? (T) pooled.get() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T internValue(T value) {
+        this.expungeReleased();
+        PooledValue candidate = new PooledValue(value, this.released);
+        while (true) {
+            PooledValue pooled = this.pool.putIfAbsent(candidate, candidate);
+            if (pooled == null) {
+                return value;
+            }
+            Object canonical = pooled.get();
+            if (canonical != null) {
+                return (T) canonical;
+            }
+            //the pooled value has just been released, so replace it
+            this.pool.remove(pooled, pooled);
+        }
+    }
+
+    private void expungeReleased() {
+        Reference<?> reference;
+        while ((reference = this.released.poll()) != null) {
+            this.pool.remove(reference, reference);
+        }
+    }
+
+    /**
+     * Weak reference to a pooled value, comparing equal to references to equal values. A released reference is only
+     * equal to itself, so it can still be removed from the pool.
+     */
+    private static final class PooledValue extends WeakReference<Object> {
+        private final int hash;
+
+        private PooledValue(Object value, @Nullable ReferenceQueue<Object> queue) {
+            super(value, queue);
+            this.hash = value.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof PooledValue)) {
+                return false;
+            }
+            Object value = this.get();
+            return value != null && value.equals(((PooledValue) obj).get());
+        }
+    }
+}
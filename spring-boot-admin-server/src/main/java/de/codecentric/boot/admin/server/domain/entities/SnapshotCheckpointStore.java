@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.domain.entities;
+
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec.readEndpoints;
+import static de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec.readInfo;
+import static de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec.readInstanceId;
+import static de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec.readInstant;
+import static de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec.readRegistration;
+import static de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec.readStatusInfo;
+import static de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec.readVersion;
+import static de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec.writeEndpoints;
+import static de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec.writeInfo;
+import static de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec.writeInstanceId;
+import static de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec.writeInstant;
+import static de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec.writeRegistration;
+import static de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec.writeStatusInfo;
+import static de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec.writeVersion;
+import static java.util.Collections.emptyMap;
+
+/**
+ * Stores checkpoints of the instance snapshots in a single binary file. Each instance is written with its version,
+ * so only the events after the checkpointed version need to be replayed on startup.
+ */
+public class SnapshotCheckpointStore {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotCheckpointStore.class);
+    private static final int MAGIC = 0x53424143;
+    private static final int FORMAT_VERSION = 1;
+    private final Path file;
+
+    public SnapshotCheckpointStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the checkpointed instances or an empty map if there is no readable checkpoint.
+     */
+    public Map<InstanceId, Instance> load() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                log.warn("Ignoring checkpoint {} with unknown format", this.file);
+                return emptyMap();
+            }
+            readVersion(in);
+            int size = in.readInt();
+            Map<InstanceId, Instance> instances = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                Instance instance = readInstance(in);
+                instances.put(instance.getId(), instance);
+            }
+            return instances;
+        } catch (NoSuchFileException ex) {
+            return emptyMap();
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Ignoring unreadable checkpoint {}", this.file, ex);
+            return emptyMap();
+        }
+    }
+
+    /**
+     * Writes a new checkpoint. The checkpoint is written to a temporary file first and then moved, so a crash
+     * while writing doesn't destroy the last checkpoint.
+     *
+     * @param instances the instances to checkpoint
+     * @throws IOException if the checkpoint couldn't be written
+     */
+    public void save(Collection<Instance> instances) throws IOException {
+        Path parent = this.file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tempFile = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeVersion(out);
+            out.writeInt(instances.size());
+            for (Instance instance : instances) {
+                writeInstance(out, instance);
+            }
+        }
+        Files.move(tempFile, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeInstance(DataOutputStream out, Instance instance) throws IOException {
+        writeInstanceId(out, instance.getId());
+        out.writeLong(instance.getVersion());
+        out.writeBoolean(instance.isRegistered());
+        Registration registration = instance.getRegistrationOrNull();
+        out.writeBoolean(registration != null);
+        if (registration != null) {
+            writeRegistration(out, registration);
+        }
+        writeStatusInfo(out, instance.getStatusInfo());
+        writeInstant(out, instance.getStatusTimestamp());
+        writeInfo(out, instance.getInfo());
+        writeEndpoints(out, instance.getEndpoints());
+    }
+
+    private static Instance readInstance(DataInputStream in) throws IOException {
+        InstanceId id = readInstanceId(in);
+        long version = in.readLong();
+        boolean registered = in.readBoolean();
+        Registration registration = in.readBoolean() ? readRegistration(in) : null;
+        return Instance.restore(id,
+            version,
+            registration,
+            registered,
+            readStatusInfo(in),
+            readInstant(in),
+            readInfo(in),
+            readEndpoints(in)
+        );
+    }
+}
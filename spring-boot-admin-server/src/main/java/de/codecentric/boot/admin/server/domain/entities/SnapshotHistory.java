@@ -0,0 +1,256 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.domain.entities;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps periodic checkpoints of the instance snapshots together with the events applied after each checkpoint, so the
+ * instances can be restored as they were at a point in time. A query starts from the latest checkpoint before that
+ * time and replays only the events recorded since, instead of the whole event log.
+ * <p>
+ * Only every {@value #FULL_CHECKPOINT_INTERVAL}th checkpoint copies all snapshots; the others hold just the snapshots
+ * changed since the previous checkpoint. As the instances are immutable, the checkpoints only hold references and
+ * share the instances with the snapshots.
+ * <p>
+ * The recorded events are limited to {@code maxEventBytes} (estimated by their binary encoding). When exceeded, the
+ * oldest segments are dropped together with their full checkpoint, even if they are within the retention. If only
+ * the segments since the latest full checkpoint are left, no more events are recorded for the current segment (the
+ * time since then isn't retained) and the next checkpoint is a full one, so the older segments can be dropped then.
+ */
+final class SnapshotHistory {
+    static final int FULL_CHECKPOINT_INTERVAL = 10;
+    private static final Logger log = LoggerFactory.getLogger(SnapshotHistory.class);
+    private final TreeMap<Instant, Segment> segments = new TreeMap<>();
+    private final Duration retention;
+    private final long maxEventBytes;
+    private int checkpointsSinceFull = 0;
+    private long eventBytes = 0L;
+    private boolean fullCheckpointDue = false;
+
+    SnapshotHistory(Duration retention, long maxEventBytes) {
+        this.retention = retention;
+        this.maxEventBytes = maxEventBytes;
+    }
+
+    /**
+     * Starts a new segment with a checkpoint of the snapshots and drops the segments older than the retention.
+     *
+     * @param timestamp the time of the checkpoint
+     * @param snapshots the current snapshots
+     */
+    synchronized void checkpoint(Instant timestamp, Map<InstanceId, Instance> snapshots) {
+        Map.Entry<Instant, Segment> last = this.segments.lastEntry();
+        if (last == null || this.fullCheckpointDue || ++this.checkpointsSinceFull >= FULL_CHECKPOINT_INTERVAL) {
+            this.segments.put(timestamp, new Segment(true, new HashMap<>(snapshots)));
+            this.checkpointsSinceFull = 0;
+            this.fullCheckpointDue = false;
+        } else {
+            Map<InstanceId, Instance> changed = new HashMap<>(last.getValue().changed.size() * 4 / 3 + 1);
+            for (InstanceId id : last.getValue().changed) {
+                //removed snapshots are kept as null
+                changed.put(id, snapshots.get(id));
+            }
+            this.segments.put(timestamp, new Segment(false, changed));
+        }
+
+        //the segments are only dropped together with their full checkpoint
+        Instant oldest = timestamp.minus(this.retention);
+        Instant firstRetained = this.segments.headMap(oldest, true)
+                                             .descendingMap()
+                                             .entrySet()
+                                             .stream()
+                                             .filter(entry -> entry.getValue().full)
+                                             .map(Map.Entry::getKey)
+                                             .findFirst()
+                                             .orElse(null);
+        if (firstRetained != null) {
+            this.drop(firstRetained);
+        }
+    }
+
+    /**
+     * Marks the snapshot of the instance as changed since the last checkpoint. Changes before the first checkpoint are
+     * ignored.
+     *
+     * @param id the changed instance
+     */
+    synchronized void changed(InstanceId id) {
+        if (!this.segments.isEmpty()) {
+            this.segments.lastEntry().getValue().changed.add(id);
+        }
+    }
+
+    /**
+     * Records an event applied to the snapshots. Events before the first checkpoint are ignored.
+     *
+     * @param event the applied event
+     */
+    synchronized void record(InstanceEvent event) {
+        if (this.segments.isEmpty()) {
+            return;
+        }
+        Segment segment = this.segments.lastEntry().getValue();
+        if (segment.notRecordedSince != null) {
+            return;
+        }
+        long size = BinaryValueCodec.sizeOf(event);
+        if (this.eventBytes + size > this.maxEventBytes && !this.dropOldest(size)) {
+            log.debug("Event budget of the history exhausted, not recording events until the next checkpoint");
+            segment.notRecordedSince = event.getTimestamp();
+            this.fullCheckpointDue = true;
+            return;
+        }
+        segment.events.add(event);
+        segment.eventBytes += size;
+        this.eventBytes += size;
+    }
+
+    /**
+     * Drops the oldest segments together with their full checkpoint until the given bytes fit into the budget.
+     *
+     * @return whether the bytes fit into the budget
+     */
+    private boolean dropOldest(long bytes) {
+        while (this.eventBytes + bytes > this.maxEventBytes) {
+            Instant nextFull = this.segments.tailMap(this.segments.firstKey(), false)
+                                            .entrySet()
+                                            .stream()
+                                            .filter(entry -> entry.getValue().full)
+                                            .map(Map.Entry::getKey)
+                                            .findFirst()
+                                            .orElse(null);
+            if (nextFull == null) {
+                return false;
+            }
+            this.drop(nextFull);
+        }
+        return true;
+    }
+
+    private void drop(Instant before) {
+        Map<Instant, Segment> dropped = this.segments.headMap(before, false);
+        for (Segment segment : dropped.values()) {
+            this.eventBytes -= segment.eventBytes;
+        }
+        dropped.clear();
+    }
+
+    /**
+     * @param timestamp the point in time
+     * @return the instances as they were at the given time or {@code null} if the time is before the oldest
+     * checkpoint or the events at that time haven't been recorded.
+     */
+    @Nullable
+    List<Instance> at(Instant timestamp) {
+        Map<InstanceId, Instance> base;
+        Map<InstanceId, List<InstanceEvent>> delta = new LinkedHashMap<>();
+        synchronized (this) {
+            Map.Entry<Instant, Segment> entry = this.segments.floorEntry(timestamp);
+            if (entry == null) {
+                return null;
+            }
+            Instant notRecordedSince = entry.getValue().notRecordedSince;
+            if (notRecordedSince != null && !timestamp.isBefore(notRecordedSince)) {
+                return null;
+            }
+            base = this.restore(entry.getKey());
+            for (InstanceEvent event : entry.getValue().events) {
+                if (!event.getTimestamp().isAfter(timestamp)) {
+                    delta.computeIfAbsent(event.getInstance(), id -> new ArrayList<>()).add(event);
+                }
+            }
+        }
+
+        delta.forEach((id, events) -> {
+            Instance instance = base.get(id);
+            Instance origin = instance != null ? instance : Instance.create(id);
+            //events applied while the checkpoint was taken may be contained in the checkpoint already
+            events.removeIf(event -> event.getVersion() <= origin.getVersion());
+            if (!events.isEmpty()) {
+                try {
+                    base.put(id, origin.apply(events));
+                } catch (IllegalArgumentException ex) {
+                    log.debug("Couldn't replay the history of instance {}", id, ex);
+                }
+            }
+        });
+        return new ArrayList<>(base.values());
+    }
+
+    /**
+     * Restores the snapshots of a checkpoint by applying the changed snapshots of all checkpoints since the previous
+     * full checkpoint.
+     */
+    private Map<InstanceId, Instance> restore(Instant checkpoint) {
+        Map.Entry<Instant, Segment> full = this.segments.floorEntry(checkpoint);
+        while (!full.getValue().full) {
+            full = this.segments.lowerEntry(full.getKey());
+        }
+        Map<InstanceId, Instance> instances = new HashMap<>(full.getValue().instances);
+        for (Segment segment : this.segments.subMap(full.getKey(), false, checkpoint, true).values()) {
+            segment.instances.forEach((id, instance) -> {
+                if (instance != null) {
+                    instances.put(id, instance);
+                } else {
+                    instances.remove(id);
+                }
+            });
+        }
+        return instances;
+    }
+
+    synchronized int size() {
+        return this.segments.size();
+    }
+
+    synchronized long getEventBytes() {
+        return this.eventBytes;
+    }
+
+    private static final class Segment {
+        private final boolean full;
+        private final Map<InstanceId, Instance> instances;
+        private final Set<InstanceId> changed = new HashSet<>();
+        private final List<InstanceEvent> events = new ArrayList<>();
+        private long eventBytes = 0L;
+        @Nullable
+        private Instant notRecordedSince;
+
+        private Segment(boolean full, Map<InstanceId, Instance> instances) {
+            this.full = full;
+            this.instances = instances;
+        }
+    }
+}
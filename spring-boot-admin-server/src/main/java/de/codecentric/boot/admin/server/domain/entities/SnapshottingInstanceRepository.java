@@ -19,16 +19,41 @@ package de.codecentric.boot.admin.server.domain.entities;
 import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
 import de.codecentric.boot.admin.server.domain.values.InstanceId;
 import de.codecentric.boot.admin.server.eventstore.InstanceEventStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
 
 /**
  * InstanceRepository storing instances using an event log.
@@ -38,47 +63,514 @@ import org.slf4j.LoggerFactory;
 public class SnapshottingInstanceRepository extends EventsourcingInstanceRepository {
     private static final Logger log = LoggerFactory.getLogger(SnapshottingInstanceRepository.class);
     private final ConcurrentMap<InstanceId, Instance> snapshots = new ConcurrentHashMap<>();
+    private final InstanceIndex<String> nameIndex = new InstanceIndex<>(
+        instance -> singleton(instance.getRegistration().getName()));
+    private final InstanceIndex<String> statusIndex = new InstanceIndex<>(
+        instance -> singleton(instance.getStatusInfo().getStatus()));
+    private final InstanceIndex<Map.Entry<String, String>> tagIndex = new InstanceIndex<>(
+        instance -> instance.getTags().getValues().entrySet());
+    private final InstanceIndex<String> sourceIndex = new InstanceIndex<>(instance -> {
+        String source = instance.getRegistration().getSource();
+        return source != null ? singleton(source) : emptySet();
+    });
+    private final ApplicationProjection applications = new ApplicationProjection();
+    private final ConcurrentMap<InstanceId, Integer> pending = new ConcurrentHashMap<>();
     @Nullable
     private Disposable subscription;
+    @Nullable
+    private Disposable checkpointSubscription;
+    @Nullable
+    private Disposable purgeSubscription;
+    @Nullable
+    private Disposable historySubscription;
+    @Nullable
+    private SnapshotHistory history;
+    private Duration historyInterval = Duration.ofMinutes(1L);
+    @Nullable
+    private SnapshotCheckpointStore checkpointStore;
+    private Duration checkpointInterval = Duration.ofMinutes(1L);
+    @Nullable
+    private Duration purgeDeregisteredAfter;
+    private Duration purgeInterval = Duration.ofMinutes(1L);
+    private int projectionLanes = 1;
+    private AtomicLongArray laneDepths = new AtomicLongArray(1);
+    @Nullable
+    private Scheduler projectionScheduler;
+    private boolean parallelReplay = false;
+    @Nullable
+    private InstanceValuePool valuePool;
+    private volatile Duration startupDuration = Duration.ZERO;
+    private volatile long startupEvents = 0L;
 
     public SnapshottingInstanceRepository(InstanceEventStore eventStore) {
         super(eventStore);
     }
 
+    /**
+     * Returns the snapshots. Instances with events still queued on a projection lane are rebuilt from the event
+     * store, so a caller reacting to a published event doesn't read the snapshot from before that event.
+     */
     @Override
     public Flux<Instance> findAll() {
-        return Mono.fromSupplier(this.snapshots::values).flatMapIterable(Function.identity());
+        return Flux.defer(() -> {
+            if (this.pending.isEmpty()) {
+                return Flux.fromIterable(this.snapshots.values());
+            }
+            Set<InstanceId> pendingIds = new HashSet<>(this.pending.keySet());
+            return Flux.fromIterable(this.snapshots.values())
+                       .filter(instance -> !pendingIds.contains(instance.getId()))
+                       .concatWith(Flux.fromIterable(pendingIds).concatMap(super::find));
+        });
     }
 
     @Override
     public Mono<Instance> find(InstanceId id) {
-        return Mono.defer(() -> Mono.justOrEmpty(this.snapshots.get(id)));
+        return Mono.defer(() -> this.pending.containsKey(id) ?
+            super.find(id) :
+            Mono.justOrEmpty(this.snapshots.get(id)));
+    }
+
+    /**
+     * Past states are only supported with the snapshot history enabled (see {@link #setHistory}).
+     */
+    @Override
+    public boolean isHistorySupported() {
+        return this.history != null;
+    }
+
+    /**
+     * Restores the instances from the snapshot history, if the time is within the retained history. Otherwise the
+     * whole event log is replayed, which fails if the events before the time have been compacted.
+     */
+    @Override
+    public Flux<Instance> findAll(Instant at) {
+        return Flux.defer(() -> {
+            SnapshotHistory snapshotHistory = this.history;
+            if (snapshotHistory == null) {
+                return Flux.error(new UnsupportedOperationException("The snapshot history is not enabled"));
+            }
+            List<Instance> instances = snapshotHistory.at(at);
+            return instances != null ? Flux.fromIterable(instances) : super.findAll(at);
+        });
     }
 
     @Override
     public Flux<Instance> findByName(String name) {
-        return this.findAll().filter(a -> a.isRegistered() && name.equals(a.getRegistration().getName()));
+        return this.findIndexed(this.nameIndex, name, a -> name.equals(a.getRegistration().getName()));
+    }
+
+    @Override
+    public Flux<Instance> findByStatus(String status) {
+        return this.findIndexed(this.statusIndex, status, a -> status.equals(a.getStatusInfo().getStatus()));
+    }
+
+    @Override
+    public Flux<Instance> findByTag(String key, String value) {
+        return this.findIndexed(this.tagIndex,
+            new AbstractMap.SimpleImmutableEntry<>(key, value),
+            a -> value.equals(a.getTags().getValues().get(key))
+        );
+    }
+
+    @Override
+    public Flux<Instance> findBySource(String source) {
+        return this.findIndexed(this.sourceIndex, source, a -> source.equals(a.getRegistration().getSource()));
+    }
+
+    /**
+     * Resolves the ids from the index. As the index is updated after the snapshot, the snapshots are checked against
+     * the query again. Instances with pending events aren't indexed yet and are rebuilt from the event store.
+     */
+    private <K> Flux<Instance> findIndexed(InstanceIndex<K> index, K key, Predicate<Instance> predicate) {
+        return Flux.defer(() -> {
+            Set<InstanceId> pendingIds = this.pending.isEmpty() ? emptySet() : new HashSet<>(this.pending.keySet());
+            Flux<Instance> indexed = Flux.fromIterable(index.get(key)).handle((id, sink) -> {
+                Instance instance = pendingIds.contains(id) ? null : this.snapshots.get(id);
+                if (instance != null && instance.isRegistered() && predicate.test(instance)) {
+                    sink.next(instance);
+                }
+            });
+            if (pendingIds.isEmpty()) {
+                return indexed;
+            }
+            return indexed.concatWith(Flux.fromIterable(pendingIds)
+                                          .concatMap(super::find)
+                                          .filter(instance -> instance.isRegistered() && predicate.test(instance)));
+        });
+    }
+
+    /**
+     * @return the registered instances grouped by application, kept up to date with the snapshots.
+     */
+    public ApplicationProjection getApplications() {
+        return this.applications;
     }
 
     public void start() {
-        this.subscription = this.getEventStore()
-                                .findAll()
-                                .concatWith(this.getEventStore())
-                                .concatMap(this::updateSnapshot)
-                                .subscribe();
+        long started = System.nanoTime();
+        if (this.projectionLanes > 1) {
+            this.projectionScheduler = Schedulers.newParallel("snapshot-projection", this.projectionLanes);
+        }
+        Set<InstanceId> restored = this.restoreCheckpoint();
+        AtomicLong replayed = new AtomicLong();
+        Flux<InstanceEvent> history = this.getEventStore()
+                                          .findAll()
+                                          .filter(event -> this.isNotCheckpointed(event, restored))
+                                          .doOnNext(event -> replayed.incrementAndGet());
+        Mono<Void> replay = (this.parallelReplay ? this.replayParallel(history) : this.project(history).then())
+                                .thenMany(Flux.defer(() -> Flux.fromIterable(restored)))
+                                .concatMap(this::rehydrateUnconfirmed)
+                                .then(Mono.fromRunnable(() -> {
+                                    this.checkpointHistory();
+                                    this.startupDuration = Duration.ofNanos(System.nanoTime() - started);
+                                    this.startupEvents = replayed.get();
+                                    log.info("Restored {} instance snapshots from {} events in {} ({} events/s)",
+                                        this.snapshots.size(),
+                                        this.startupEvents,
+                                        this.startupDuration,
+                                        Math.round(this.getStartupEventRate())
+                                    );
+                                }));
+        //the snapshots are restored before start() returns, so components started afterwards (e.g. the
+        //StatusUpdateTrigger) find the restored instances
+        replay.block();
+        this.subscription = this.project(Flux.from(this.getEventStore())).subscribe();
+
+        if (this.purgeDeregisteredAfter != null) {
+            Scheduler scheduler = Schedulers.newSingle("instance-purge");
+            this.purgeSubscription = Flux.interval(this.purgeInterval, scheduler)
+                                         .concatMap(i -> this.purgeDeregistered().onErrorResume(ex -> {
+                                             log.warn("Unexpected error while purging deregistered instances", ex);
+                                             return Mono.empty();
+                                         }))
+                                         .doFinally(s -> scheduler.dispose())
+                                         .subscribe();
+        }
+
+        if (this.history != null) {
+            Scheduler scheduler = Schedulers.newSingle("snapshot-history");
+            this.historySubscription = Flux.interval(this.historyInterval, scheduler)
+                                           .doOnNext(i -> this.checkpointHistory())
+                                           .onErrorContinue((ex, value) -> log.warn(
+                                               "Unexpected error while taking the snapshot history",
+                                               ex
+                                           ))
+                                           .doFinally(s -> scheduler.dispose())
+                                           .subscribe();
+        }
+
+        if (this.checkpointStore != null) {
+            Scheduler scheduler = Schedulers.newSingle("snapshot-checkpoint");
+            this.checkpointSubscription = Flux.interval(this.checkpointInterval, scheduler)
+                                              .doOnNext(i -> this.checkpoint())
+                                              .onErrorContinue((ex, value) -> log.warn(
+                                                  "Unexpected error while writing the snapshot checkpoint",
+                                                  ex
+                                              ))
+                                              .doFinally(s -> scheduler.dispose())
+                                              .subscribe();
+        }
     }
 
+    @Override
     public void stop() {
+        if (this.purgeSubscription != null) {
+            this.purgeSubscription.dispose();
+        }
+        if (this.historySubscription != null) {
+            this.historySubscription.dispose();
+        }
+        if (this.checkpointSubscription != null) {
+            this.checkpointSubscription.dispose();
+            this.checkpoint();
+        }
         if (this.subscription != null) {
             this.subscription.dispose();
         }
+        if (this.projectionScheduler != null) {
+            this.projectionScheduler.dispose();
+        }
+        super.stop();
     }
 
-    protected Mono<Void> updateSnapshot(InstanceEvent event) {
-        return Mono.<Void>fromRunnable(() -> snapshots.compute(event.getInstance(), (key, old) -> {
+    /**
+     * Writes the current snapshots to the checkpoint store (if configured).
+     */
+    public void checkpoint() {
+        if (this.checkpointStore == null) {
+            return;
+        }
+        try {
+            this.checkpointStore.save(new ArrayList<>(this.snapshots.values()));
+            log.debug("Checkpointed {} instance snapshots", this.snapshots.size());
+        } catch (IOException ex) {
+            log.warn("Couldn't write the snapshot checkpoint", ex);
+        }
+    }
+
+    /**
+     * Removes the logs and snapshots of deregistered instances after the given time. With Hazelcast each member purges
+     * the logs using conditional removes, so concurrent purges and re-registrations are safe.
+     *
+     * @param purgeDeregisteredAfter time to keep deregistered instances, {@code null} to keep them forever.
+     */
+    public void setPurgeDeregisteredAfter(@Nullable Duration purgeDeregisteredAfter) {
+        this.purgeDeregisteredAfter = purgeDeregisteredAfter;
+    }
+
+    public void setPurgeInterval(Duration purgeInterval) {
+        this.purgeInterval = purgeInterval;
+    }
+
+    /**
+     * Purges the event logs of the instances deregistered longer than the configured time. Afterwards the snapshots
+     * of all deregistered instances whose log is gone are removed.
+     *
+     * @return completes when the purge is finished.
+     */
+    public Mono<Void> purgeDeregistered() {
+        Duration retention = this.purgeDeregisteredAfter;
+        if (retention == null) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> this.getEventStore().purgeDeregistered(Instant.now().minus(retention)).count())
+                   .doOnNext(count -> log.debug("Purged event logs of {} deregistered instances", count))
+                   .thenMany(Flux.defer(() -> Flux.fromIterable(this.snapshots.values())))
+                   .filter(instance -> !instance.isRegistered())
+                   .concatMap(instance -> this.getEventStore()
+                                              .find(instance.getId())
+                                              .hasElements()
+                                              .filter(hasEvents -> !hasEvents)
+                                              .map(hasEvents -> instance.getId()))
+                   .doOnNext(id -> this.computeSnapshot(id,
+                       (key, old) -> old == null || old.isRegistered() ? old : null
+                   ))
+                   .count()
+                   .doOnNext(count -> log.debug("Purged snapshots of {} deregistered instances", count))
+                   .then();
+    }
+
+    /**
+     * Keeps checkpoints of the snapshots taken every {@code interval} for the given retention, so the instances can
+     * be queried as they were at a point in time using {@link #findAll(Instant)}.
+     *
+     * @param retention     time to keep the history, {@code null} to disable the history.
+     * @param interval      time between two copies of the snapshots
+     * @param maxEventBytes maximum estimated size of the events kept by the history
+     */
+    public void setHistory(@Nullable Duration retention, Duration interval, long maxEventBytes) {
+        this.history = retention != null ? new SnapshotHistory(retention, maxEventBytes) : null;
+        this.historyInterval = interval;
+    }
+
+    private void checkpointHistory() {
+        if (this.history != null) {
+            this.history.checkpoint(Instant.now(), this.snapshots);
+        }
+    }
+
+    public void setCheckpointStore(@Nullable SnapshotCheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+    }
+
+    public void setCheckpointInterval(Duration checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Sets the number of lanes the events are applied on. The events are distributed by instance id, so the events
+     * of one instance are applied in order while different instances are updated in parallel. With a single lane
+     * (default) the events are applied on the thread publishing them. While an instance has events queued on a lane
+     * it is read from the event store instead of the snapshot.
+     *
+     * @param projectionLanes the number of lanes
+     */
+    public void setProjectionLanes(int projectionLanes) {
+        Assert.isTrue(projectionLanes > 0, "'projectionLanes' must be greater than 0");
+        this.projectionLanes = projectionLanes;
+        this.laneDepths = new AtomicLongArray(projectionLanes);
+    }
+
+    /**
+     * Replays the event log on startup in parallel. The log is partitioned by instance and each instance is rebuilt
+     * from its events at once on a fork/join pool sized to the available processors. As the instances are
+     * independent, the result is the same as replaying the events one by one.
+     *
+     * @param parallelReplay whether to replay in parallel
+     */
+    public void setParallelReplay(boolean parallelReplay) {
+        this.parallelReplay = parallelReplay;
+    }
+
+    /**
+     * Interns the values of the snapshots, so the snapshots of replicas with equal info, tags, endpoints and metadata
+     * share a single copy of them.
+     *
+     * @param valuePool the pool to intern the values with, {@code null} to keep the values as they are.
+     */
+    public void setValuePool(@Nullable InstanceValuePool valuePool) {
+        this.valuePool = valuePool;
+    }
+
+    /**
+     * @return the time it took to restore the snapshots on startup.
+     */
+    public Duration getStartupDuration() {
+        return this.startupDuration;
+    }
+
+    /**
+     * @return the number of events replayed on startup.
+     */
+    public long getStartupEvents() {
+        return this.startupEvents;
+    }
+
+    /**
+     * @return the events replayed per second on startup.
+     */
+    public double getStartupEventRate() {
+        long nanos = this.startupDuration.toNanos();
+        return nanos > 0L ? this.startupEvents * 1e9 / nanos : 0.0;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        super.bindTo(registry);
+        Gauge.builder("spring.boot.admin.snapshots.startup.events",
+            this,
+            SnapshottingInstanceRepository::getStartupEvents
+        ).description("Number of events replayed to restore the instance snapshots on startup").register(registry);
+        Gauge.builder("spring.boot.admin.snapshots.startup.rate",
+            this,
+            SnapshottingInstanceRepository::getStartupEventRate
+        ).description("Events per second replayed on startup").baseUnit("events/s").register(registry);
+        TimeGauge.builder("spring.boot.admin.snapshots.startup",
+            this,
+            TimeUnit.MILLISECONDS,
+            repository -> repository.getStartupDuration().toMillis()
+        ).description("Time it took to restore the instance snapshots on startup").register(registry);
+        for (int i = 0; i < this.projectionLanes; i++) {
+            int lane = i;
+            Gauge.builder("spring.boot.admin.snapshots.lane.depth", this, repository -> repository.laneDepths.get(lane))
+                 .tag("lane", String.valueOf(lane))
+                 .description("Number of events waiting to be applied to the instance snapshots")
+                 .register(registry);
+        }
+    }
+
+    /**
+     * Applies the events to the snapshots, using multiple lanes if configured.
+     */
+    private Flux<Void> project(Flux<InstanceEvent> events) {
+        Scheduler scheduler = this.projectionScheduler;
+        if (scheduler == null) {
+            return this.projectLane(events, 0, Function.identity());
+        }
+        return events.doOnNext(event -> this.pending.merge(event.getInstance(), 1, Integer::sum))
+                     .groupBy(event -> Math.floorMod(event.getInstance().hashCode(), this.projectionLanes))
+                     .flatMap(lane -> this.projectLane(lane, lane.key(), queued -> queued.publishOn(scheduler)),
+                         this.projectionLanes
+                     );
+    }
+
+    /**
+     * Partitions the events by instance and rebuilds the snapshots of the instances in parallel.
+     */
+    private Mono<Void> replayParallel(Flux<InstanceEvent> events) {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        return events.collectMultimap(InstanceEvent::getInstance).flatMapMany(partitions -> {
+            Scheduler scheduler = Schedulers.fromExecutorService(new ForkJoinPool(parallelism));
+            return Flux.fromIterable(partitions.entrySet())
+                       .parallel(parallelism)
+                       .runOn(scheduler)
+                       .flatMap(partition -> this.replaySnapshot(partition.getKey(), partition.getValue()))
+                       .sequential()
+                       .doFinally(s -> scheduler.dispose());
+        }).then();
+    }
+
+    private Mono<Void> replaySnapshot(InstanceId instanceId, Collection<InstanceEvent> events) {
+        return Mono.<Void>fromRunnable(() -> this.computeSnapshot(instanceId, (key, old) -> {
             Instance instance = old != null ? old : Instance.create(key);
-            return instance.apply(event);
+            return instance.apply(events);
         })).onErrorResume(ex -> {
+            log.warn("Error while replaying the events of {}. Recomputing instance snapshot from event history.",
+                instanceId,
+                ex
+            );
+            return recomputeSnapshot(instanceId);
+        });
+    }
+
+    private Flux<Void> projectLane(Flux<InstanceEvent> events,
+                                   int lane,
+                                   Function<Flux<InstanceEvent>, Flux<InstanceEvent>> dispatch) {
+        return dispatch.apply(events.doOnNext(event -> this.laneDepths.incrementAndGet(lane)))
+                       .concatMap(event -> this.updateSnapshot(event).doFinally(s -> {
+                           this.laneDepths.decrementAndGet(lane);
+                           this.pending.computeIfPresent(event.getInstance(),
+                               (id, count) -> count > 1 ? count - 1 : null
+                           );
+                       }));
+    }
+
+    private Set<InstanceId> restoreCheckpoint() {
+        if (this.checkpointStore == null) {
+            return emptySet();
+        }
+        Map<InstanceId, Instance> checkpoint = this.checkpointStore.load();
+        checkpoint.forEach((id, instance) -> this.computeSnapshot(id, (key, old) -> instance));
+        log.debug("Loaded {} instance snapshots from checkpoint", checkpoint.size());
+        Set<InstanceId> restored = ConcurrentHashMap.newKeySet();
+        restored.addAll(checkpoint.keySet());
+        return restored;
+    }
+
+    /**
+     * Filters the events already contained in the checkpoint. A checkpointed instance is confirmed as soon as the
+     * store yields an event with at least the checkpointed version.
+     */
+    private boolean isNotCheckpointed(InstanceEvent event, Set<InstanceId> restored) {
+        if (!restored.contains(event.getInstance())) {
+            return true;
+        }
+        Instance snapshot = this.snapshots.get(event.getInstance());
+        if (snapshot == null || event.getVersion() >= snapshot.getVersion()) {
+            restored.remove(event.getInstance());
+        }
+        return snapshot == null || event.getVersion() > snapshot.getVersion();
+    }
+
+    /**
+     * Rebuilds a checkpointed instance the event store couldn't confirm, e.g. because the checkpoint is ahead of
+     * the store. The instance is dropped if the store doesn't know it at all, so the snapshots don't diverge from the
+     * event log.
+     */
+    private Mono<Void> rehydrateUnconfirmed(InstanceId instanceId) {
+        log.info("Checkpointed instance {} doesn't match the event store. Recomputing snapshot.", instanceId);
+        this.computeSnapshot(instanceId, (key, old) -> null);
+        return this.getEventStore()
+                   .find(instanceId)
+                   .collectList()
+                   .filter(events -> !events.isEmpty())
+                   .map(events -> Instance.create(instanceId).apply(events))
+                   .doOnNext(instance -> this.computeSnapshot(instance.getId(),
+                       (key, old) -> old != null ? old : instance
+                   ))
+                   .then();
+    }
+
+    protected Mono<Void> updateSnapshot(InstanceEvent event) {
+        return Mono.<Void>fromRunnable(() -> {
+            this.computeSnapshot(event.getInstance(), (key, old) -> {
+                Instance instance = old != null ? old : Instance.create(key);
+                return instance.apply(event);
+            });
+            if (this.history != null) {
+                this.history.record(event);
+            }
+        }).onErrorResume(ex -> {
             log.warn(
                 "Error while updating the snapshot with event {}. Recomputing instance snapshot from event history.",
                 event,
@@ -88,12 +580,50 @@ public class SnapshottingInstanceRepository extends EventsourcingInstanceReposit
         });
     }
 
+    /**
+     * Computes the snapshot of the instance and indexes it, if it has changed. The changed applications are published
+     * after the computation, so the subscribers don't run while the snapshot's entry is locked.
+     *
+     * @param remapping returns the new snapshot, the old one to keep it or {@code null} to remove it
+     */
+    private void computeSnapshot(InstanceId id, BiFunction<InstanceId, Instance, Instance> remapping) {
+        List<String> changedApplications = new ArrayList<>(2);
+        this.snapshots.compute(id, (key, old) -> {
+            Instance snapshot = remapping.apply(key, old);
+            return snapshot == old ? old : this.index(key, old, snapshot, changedApplications);
+        });
+        this.applications.publish(changedApplications);
+    }
+
+    /**
+     * Interns the values of the new snapshot and updates the secondary indexes and the application projection. Called
+     * while the snapshot is computed, so the updates for an instance are applied in order.
+     */
+    @Nullable
+    private Instance index(InstanceId id,
+                           @Nullable Instance previous,
+                           @Nullable Instance snapshot,
+                           List<String> changedApplications) {
+        Instance current = snapshot != null && this.valuePool != null ?
+            snapshot.internValues(this.valuePool, previous) :
+            snapshot;
+        this.nameIndex.update(id, previous, current);
+        this.statusIndex.update(id, previous, current);
+        this.tagIndex.update(id, previous, current);
+        this.sourceIndex.update(id, previous, current);
+        this.applications.update(id, previous, current, changedApplications);
+        if (this.history != null) {
+            this.history.changed(id);
+        }
+        return current;
+    }
+
     protected Mono<Void> recomputeSnapshot(InstanceId instanceId) {
         return this.getEventStore()
                    .find(instanceId)
                    .collectList()
                    .map(events -> Instance.create(instanceId).apply(events))
-                   .doOnNext(instance -> snapshots.put(instance.getId(), instance))
+                   .doOnNext(instance -> this.computeSnapshot(instance.getId(), (key, old) -> instance))
                    .then()
                    .onErrorResume(ex2 -> {
                        log.error(
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import com.hazelcast.map.AbstractEntryProcessor;
+
+/**
+ * Appends events to an instance's log on the member owning the entry, so only the new events are sent over the
+ * wire instead of the whole log. The processor is applied to the backups as well. If the events carry their shared
+ * sequences (see {@link SequencedEventList}) these are stored with them.
+ * <p>
+ * The log is compacted like by {@link ConcurrentMapEventStore}: by count and, if limited, by its estimated size. As
+ * the appending member doesn't know the size of the log, the size is estimated on the owning member (only if the
+ * size is limited) and reported back with the result.
+ */
+class AppendEventsEntryProcessor extends AbstractEntryProcessor<InstanceId, List<InstanceEvent>> {
+    private static final long serialVersionUID = 2L;
+    private final List<InstanceEvent> events;
+    private final int maxLogSizePerAggregate;
+    private final long maxLogBytesPerAggregate;
+    private final boolean sizeLimited;
+
+    AppendEventsEntryProcessor(List<InstanceEvent> events, int maxLogSizePerAggregate) {
+        this(events, maxLogSizePerAggregate, Long.MAX_VALUE, false);
+    }
+
+    /**
+     * @param sizeLimited whether the size of the log is to be estimated, e.g. because the total size of all logs is
+     *                    limited.
+     */
+    AppendEventsEntryProcessor(List<InstanceEvent> events,
+                               int maxLogSizePerAggregate,
+                               long maxLogBytesPerAggregate,
+                               boolean sizeLimited) {
+        super(true);
+        this.events = events instanceof SequencedEventList ? events : new ArrayList<>(events);
+        this.maxLogSizePerAggregate = maxLogSizePerAggregate;
+        this.maxLogBytesPerAggregate = maxLogBytesPerAggregate;
+        this.sizeLimited = sizeLimited || maxLogBytesPerAggregate != Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the {@link AppendedLog} if the events have been appended, or the version overtaking the events'
+     * version.
+     */
+    @Override
+    @Nullable
+    public Object process(Map.Entry<InstanceId, List<InstanceEvent>> entry) {
+        List<InstanceEvent> oldEvents = entry.getValue();
+        long lastVersion = oldEvents != null ? ConcurrentMapEventStore.getLastVersion(oldEvents) : -1L;
+        if (lastVersion >= this.events.get(0).getVersion()) {
+            return lastVersion;
+        }
+
+        List<InstanceEvent> newEvents = new ArrayList<>(this.maxLogSizePerAggregate + 1);
+        if (oldEvents != null) {
+            newEvents.addAll(oldEvents);
+        }
+        newEvents.addAll(this.events);
+        long newBytes = this.sizeLimited ? EventLogFootprint.estimate(newEvents) : EventLogFootprint.UNKNOWN;
+        boolean countExceeded = newEvents.size() > this.maxLogSizePerAggregate;
+        long bytesToFree = newBytes > this.maxLogBytesPerAggregate ?
+            newBytes - this.maxLogBytesPerAggregate / 4L * 3L :
+            0L;
+        if (countExceeded || bytesToFree > 0L) {
+            long freed = ConcurrentMapEventStore.compact(newEvents,
+                countExceeded ? Long.MAX_VALUE : bytesToFree,
+                this.sizeLimited ? EventLogFootprint::estimate : event -> 0L
+            );
+            newBytes = this.sizeLimited ? newBytes - freed : newBytes;
+        }
+        if (this.events instanceof SequencedEventList) {
+            newEvents = SequencedEventList.concat(oldEvents, (SequencedEventList) this.events).retain(newEvents);
+        }
+        entry.setValue(newEvents);
+        return new AppendedLog(ConcurrentMapEventStore.getLastVersion(newEvents), newEvents.size(), newBytes);
+    }
+
+    /**
+     * The log after the append.
+     */
+    @lombok.Data
+    static final class AppendedLog implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final long lastVersion;
+        private final int events;
+        /**
+         * The estimated size of the log or {@link EventLogFootprint#UNKNOWN}.
+         */
+        private final long bytes;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable list of events sharing its backing array with the list it was appended to. Appending to the most recent
+ * list of a log claims the next free slots of the shared array instead of copying all events. Only appending to an
+ * outdated list (which was already appended to) or outgrowing the array copies the events.
+ */
+final class AppendOnlyEventList extends AbstractList<InstanceEvent> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 1L;
+    private final transient Buffer buffer;
+    private final int size;
+
+    private AppendOnlyEventList(Buffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    static AppendOnlyEventList empty(int initialCapacity) {
+        return new AppendOnlyEventList(new Buffer(Math.max(initialCapacity, 1)), 0);
+    }
+
+    static AppendOnlyEventList copyOf(Collection<InstanceEvent> events, int initialCapacity) {
+        Buffer buffer = new Buffer(Math.max(initialCapacity, events.size()));
+        int size = 0;
+        for (InstanceEvent event : events) {
+            buffer.events[size++] = event;
+        }
+        buffer.claimed.set(size);
+        return new AppendOnlyEventList(buffer, size);
+    }
+
+    /**
+     * Returns a new list containing this list's events followed by the given ones. This list stays unchanged.
+     *
+     * @param events the events to append
+     * @return the new list
+     */
+    AppendOnlyEventList append(List<InstanceEvent> events) {
+        int newSize = this.size + events.size();
+        if (newSize <= this.buffer.events.length && this.buffer.claimed.compareAndSet(this.size, newSize)) {
+            //we own the slots after this.size now, no other list will write or read them until we publish
+            for (int i = 0; i < events.size(); i++) {
+                this.buffer.events[this.size + i] = events.get(i);
+            }
+            return new AppendOnlyEventList(this.buffer, newSize);
+        }
+        Buffer grown = new Buffer(Math.max(newSize, this.buffer.events.length * 2));
+        System.arraycopy(this.buffer.events, 0, grown.events, 0, this.size);
+        for (int i = 0; i < events.size(); i++) {
+            grown.events[this.size + i] = events.get(i);
+        }
+        grown.claimed.set(newSize);
+        return new AppendOnlyEventList(grown, newSize);
+    }
+
+    @Override
+    public InstanceEvent get(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+        return this.buffer.events[index];
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    private Object writeReplace() {
+        return new ArrayList<>(this);
+    }
+
+    private static final class Buffer {
+        private final InstanceEvent[] events;
+        private final AtomicInteger claimed = new AtomicInteger();
+
+        private Buffer(int capacity) {
+            this.events = new InstanceEvent[capacity];
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.UnicastProcessor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.reactivestreams.Subscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Event-Store collecting the appends of all instances within a small time or size window and committing them
+ * together using {@link InstanceEventStore#appendAll(List)} of the delegate. Each append still succeeds or fails on
+ * its own, e.g. with an {@link OptimisticLockingException}. If a batch contains several appends for the same instance
+ * they are committed one after another.
+ */
+public class BatchingInstanceEventStore implements InstanceEventStore, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(BatchingInstanceEventStore.class);
+    private final InstanceEventStore delegate;
+    private final FluxSink<PendingAppend> pending;
+    private volatile boolean closed = false;
+
+    public BatchingInstanceEventStore(InstanceEventStore delegate) {
+        this(delegate, 256, Duration.ofMillis(5L));
+    }
+
+    public BatchingInstanceEventStore(InstanceEventStore delegate, int maxBatchSize, Duration window) {
+        Assert.isTrue(maxBatchSize > 0, "'maxBatchSize' must be greater than 0");
+        this.delegate = delegate;
+        UnicastProcessor<PendingAppend> processor = UnicastProcessor.create();
+        this.pending = processor.sink();
+        Scheduler scheduler = Schedulers.newSingle("event-store-batch", true);
+        //buffering on the single thread keeps the size and timeout flushes from racing (losing or repeating appends)
+        processor.publishOn(scheduler)
+                 .bufferTimeout(maxBatchSize, window, scheduler)
+                 .concatMap(this::commit)
+                 .doFinally(s -> scheduler.dispose())
+                 .subscribe();
+    }
+
+    @Override
+    public Flux<InstanceEvent> findAll() {
+        return this.delegate.findAll();
+    }
+
+    @Override
+    public Flux<InstanceEvent> find(InstanceId id) {
+        return this.delegate.find(id);
+    }
+
+    @Override
+    public Flux<SequencedInstanceEvent> findSince(long sequence, int limit) {
+        return this.delegate.findSince(sequence, limit);
+    }
+
+    @Override
+    public Mono<Void> append(List<InstanceEvent> events) {
+        if (events.isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.create(sink -> {
+            if (this.closed) {
+                sink.error(new IllegalStateException("Event store has already been closed."));
+                return;
+            }
+            this.pending.next(new PendingAppend(events, sink));
+        });
+    }
+
+    @Override
+    public Mono<Map<InstanceId, Throwable>> appendAll(List<List<InstanceEvent>> appends) {
+        return this.delegate.appendAll(appends);
+    }
+
+    @Override
+    public Flux<InstanceId> purgeDeregistered(Instant deregisteredBefore) {
+        return this.delegate.purgeDeregistered(deregisteredBefore);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super InstanceEvent> s) {
+        this.delegate.subscribe(s);
+    }
+
+    /**
+     * Stops accepting appends. The appends already collected are still committed.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.pending.complete();
+    }
+
+    private Mono<Void> commit(List<PendingAppend> batch) {
+        log.debug("Committing batch of {} appends", batch.size());
+        //each instance may occur only once per appendAll, so further appends for an instance go to the next round
+        List<List<PendingAppend>> rounds = new ArrayList<>();
+        Map<InstanceId, Integer> occurrences = new HashMap<>();
+        for (PendingAppend append : batch) {
+            int round = occurrences.merge(append.getInstanceId(), 1, Integer::sum) - 1;
+            if (rounds.size() <= round) {
+                rounds.add(new ArrayList<>());
+            }
+            rounds.get(round).add(append);
+        }
+        return Flux.fromIterable(rounds).concatMap(this::commitRound).then();
+    }
+
+    private Mono<Void> commitRound(List<PendingAppend> round) {
+        return this.delegate.appendAll(round.stream().map(PendingAppend::getEvents).collect(toList()))
+                            .doOnNext(errors -> round.forEach(append -> append.complete(errors.get(
+                                append.getInstanceId()))))
+                            .onErrorResume(ex -> {
+                                log.warn("Unexpected error while committing batch of appends", ex);
+                                round.forEach(append -> append.complete(ex));
+                                return Mono.empty();
+                            })
+                            .then();
+    }
+
+    private static final class PendingAppend {
+        private final List<InstanceEvent> events;
+        private final MonoSink<Void> sink;
+
+        private PendingAppend(List<InstanceEvent> events, MonoSink<Void> sink) {
+            this.events = events;
+            this.sink = sink;
+        }
+
+        private List<InstanceEvent> getEvents() {
+            return this.events;
+        }
+
+        private InstanceId getInstanceId() {
+            return this.events.get(0).getInstance();
+        }
+
+        private void complete(@Nullable Throwable error) {
+            if (error != null) {
+                this.sink.error(error);
+            } else {
+                this.sink.success();
+            }
+        }
+    }
+}
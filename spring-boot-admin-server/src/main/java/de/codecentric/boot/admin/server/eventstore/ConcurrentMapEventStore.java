@@ -16,34 +16,47 @@
 
 package de.codecentric.boot.admin.server.eventstore;
 
+import de.codecentric.boot.admin.server.domain.events.InstanceDeregisteredEvent;
 import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
 import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
-import java.util.function.BinaryOperator;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
 
 import static java.util.Comparator.comparing;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.reducing;
 
-public abstract class ConcurrentMapEventStore extends InstanceEventPublisher implements InstanceEventStore {
+public abstract class ConcurrentMapEventStore extends InstanceEventPublisher
+    implements InstanceEventStore, MeterBinder {
     private static final Logger log = LoggerFactory.getLogger(ConcurrentMapEventStore.class);
+    private static final int MAX_APPEND_ATTEMPTS = 32;
+    private static final long APPEND_BACKOFF_NANOS = 1_000L;
     private static final Comparator<InstanceEvent> byTimestampAndIdAndVersion = comparing(
         InstanceEvent::getTimestamp).thenComparing(InstanceEvent::getInstance).thenComparing(InstanceEvent::getVersion);
     private final int maxLogSizePerAggregate;
     private final ConcurrentMap<InstanceId, List<InstanceEvent>> eventLog;
+    private final EventSequenceIndex sequenceIndex = new EventSequenceIndex();
+    private final EventLogFootprint footprint = new EventLogFootprint();
+    private long maxLogBytesPerAggregate = Long.MAX_VALUE;
+    private long maxLogBytes = Long.MAX_VALUE;
 
     protected ConcurrentMapEventStore(int maxLogSizePerAggregate,
                                       ConcurrentMap<InstanceId, List<InstanceEvent>> eventLog) {
@@ -51,6 +64,46 @@ public abstract class ConcurrentMapEventStore extends InstanceEventPublisher imp
         this.maxLogSizePerAggregate = maxLogSizePerAggregate;
     }
 
+    /**
+     * Limits the estimated size of each instance's log. When exceeded, superseded events are dropped (oldest first)
+     * until the log is below three quarters of the limit, so not every following append compacts again.
+     *
+     * @param maxLogBytesPerAggregate the limit in bytes, {@link Long#MAX_VALUE} for no limit
+     */
+    public void setMaxLogBytesPerAggregate(long maxLogBytesPerAggregate) {
+        Assert.isTrue(maxLogBytesPerAggregate > 0, "'maxLogBytesPerAggregate' must be positive");
+        this.maxLogBytesPerAggregate = maxLogBytesPerAggregate;
+    }
+
+    /**
+     * Limits the estimated size of all logs. When exceeded, the largest logs are compacted until the size is below the
+     * limit again.
+     *
+     * @param maxLogBytes the limit in bytes, {@link Long#MAX_VALUE} for no limit
+     */
+    public void setMaxLogBytes(long maxLogBytes) {
+        Assert.isTrue(maxLogBytes > 0, "'maxLogBytes' must be positive");
+        this.maxLogBytes = maxLogBytes;
+    }
+
+    /**
+     * Binds the estimated size of the logs appended to by this store. For a distributed store these only reflect the
+     * logs appended to by this member. Without a byte limit the sizes are only estimated when the gauge is read.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("spring.boot.admin.event-store.log.bytes", this, ConcurrentMapEventStore::getLogBytes)
+             .description("Estimated size of the event logs")
+             .baseUnit("bytes")
+             .register(registry);
+        Gauge.builder("spring.boot.admin.event-store.log.events", footprint, EventLogFootprint::getTotalEvents)
+             .description("Number of events in the event logs")
+             .register(registry);
+        Gauge.builder("spring.boot.admin.event-store.log.instances", footprint, EventLogFootprint::getLogCount)
+             .description("Number of instances with an event log")
+             .register(registry);
+    }
+
     @Override
     public Flux<InstanceEvent> findAll() {
         return Flux.defer(() -> Flux.fromIterable(eventLog.values())
@@ -63,45 +116,95 @@ public abstract class ConcurrentMapEventStore extends InstanceEventPublisher imp
         return Flux.defer(() -> Flux.fromIterable(eventLog.getOrDefault(id, Collections.emptyList())));
     }
 
+    @Override
+    public Flux<SequencedInstanceEvent> findSince(long sequence, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(sequenceIndex.findSince(sequence, limit)));
+    }
+
     @Override
     public Mono<Void> append(List<InstanceEvent> events) {
         return Mono.fromRunnable(() -> {
-            while (true) {
+            for (int attempt = 0; attempt < MAX_APPEND_ATTEMPTS; attempt++) {
                 if (doAppend(events)) {
                     return;
                 }
+                LockSupport.parkNanos(APPEND_BACKOFF_NANOS << Math.min(attempt, 10));
             }
+            throw new OptimisticLockingException(
+                "Couldn't append events for " + events.get(0).getInstance() + " after " + MAX_APPEND_ATTEMPTS +
+                " attempts");
         });
     }
 
+    @Override
+    public Flux<InstanceId> purgeDeregistered(Instant deregisteredBefore) {
+        return Flux.defer(() -> Flux.fromIterable(doPurgeDeregistered(deregisteredBefore)));
+    }
+
+    protected List<InstanceId> doPurgeDeregistered(Instant deregisteredBefore) {
+        List<InstanceId> purged = new ArrayList<>();
+        for (Map.Entry<InstanceId, List<InstanceEvent>> entry : eventLog.entrySet()) {
+            //the conditional remove keeps logs which have been appended to concurrently (e.g. re-registrations)
+            if (isTombstoned(entry.getValue(), deregisteredBefore) &&
+                eventLog.remove(entry.getKey(), entry.getValue())) {
+                removeFromIndex(entry.getKey());
+                footprint.remove(entry.getKey());
+                purged.add(entry.getKey());
+            }
+        }
+        if (!purged.isEmpty()) {
+            log.debug("Purged the event logs of deregistered instances {}", purged);
+        }
+        return purged;
+    }
+
     protected boolean doAppend(List<InstanceEvent> events) {
         if (events.isEmpty()) {
             return true;
         }
 
-        InstanceId id = events.get(0).getInstance();
-        if (!events.stream().allMatch(event -> event.getInstance().equals(id))) {
-            throw new IllegalArgumentException("'events' must only refer to the same instance.");
-        }
+        InstanceId id = getInstanceId(events);
 
-        List<InstanceEvent> oldEvents = eventLog.computeIfAbsent(id,
-            (key) -> new ArrayList<>(maxLogSizePerAggregate + 1));
+        List<InstanceEvent> oldEvents = eventLog.computeIfAbsent(id, (key) -> newEventList());
 
         long lastVersion = getLastVersion(oldEvents);
         if (lastVersion >= events.get(0).getVersion()) {
             throw createOptimisticLockException(events.get(0), lastVersion);
         }
 
-        List<InstanceEvent> newEvents = new ArrayList<>(oldEvents);
-        newEvents.addAll(events);
+        boolean sizeLimited = isSizeLimited();
+        long newBytes = sizeLimited ?
+            footprint.getBytes(id, oldEvents) + EventLogFootprint.estimate(events) :
+            EventLogFootprint.UNKNOWN;
+        boolean countExceeded = oldEvents.size() + events.size() > maxLogSizePerAggregate;
+        long bytesToFree = newBytes > maxLogBytesPerAggregate ? newBytes - maxLogBytesPerAggregate / 4L * 3L : 0L;
 
-        if (newEvents.size() > maxLogSizePerAggregate) {
+        List<InstanceEvent> newEvents;
+        if (countExceeded || bytesToFree > 0L) {
             log.debug("Threshold for {} reached. Compacting events", id);
-            compact(newEvents);
+            List<InstanceEvent> compacted = new ArrayList<>(oldEvents);
+            compacted.addAll(events);
+            long freed = compact(compacted,
+                countExceeded ? Long.MAX_VALUE : bytesToFree,
+                sizeLimited ? EventLogFootprint::estimate : event -> 0L
+            );
+            newBytes = sizeLimited ? newBytes - freed : newBytes;
+            newEvents = toLog(oldEvents, toEventList(compacted));
+        } else if (oldEvents instanceof AppendOnlyEventList) {
+            newEvents = ((AppendOnlyEventList) oldEvents).append(events);
+        } else {
+            newEvents = new ArrayList<>(oldEvents);
+            newEvents.addAll(events);
+            newEvents = toLog(oldEvents, newEvents);
         }
 
         if (eventLog.replace(id, oldEvents, newEvents)) {
             log.debug("Events appended to log {}", events);
+            footprint.update(id, newEvents, newBytes);
+            afterAppend(id, events, newEvents);
+            if (footprint.getTotalBytes() > maxLogBytes) {
+                compactLargestLogs();
+            }
             return true;
         }
 
@@ -109,19 +212,216 @@ public abstract class ConcurrentMapEventStore extends InstanceEventPublisher imp
         return false;
     }
 
-    private void compact(List<InstanceEvent> events) {
-        BinaryOperator<InstanceEvent> latestEvent = (e1, e2) -> e1.getVersion() > e2.getVersion() ? e1 : e2;
-        Map<Class<?>, Optional<InstanceEvent>> latestPerType = events.stream()
-                                                                     .collect(groupingBy(InstanceEvent::getClass,
-                                                                         reducing(latestEvent)));
-        events.removeIf((e) -> !Objects.equals(e, latestPerType.get(e.getClass()).orElse(null)));
+    /**
+     * Compacts the largest logs until all logs are below the limit again, so a large log of an instance which isn't
+     * appended to anymore doesn't keep the limit exceeded.
+     */
+    private void compactLargestLogs() {
+        for (InstanceId id : footprint.getLargestLogs()) {
+            if (footprint.getTotalBytes() <= maxLogBytes) {
+                return;
+            }
+            List<InstanceEvent> oldEvents = eventLog.get(id);
+            if (oldEvents == null) {
+                continue;
+            }
+            long oldBytes = footprint.getBytes(id, oldEvents);
+            List<InstanceEvent> compacted = new ArrayList<>(oldEvents);
+            long freed = compact(compacted, Long.MAX_VALUE, EventLogFootprint::estimate);
+            if (freed > 0L) {
+                List<InstanceEvent> newEvents = toLog(oldEvents, toEventList(compacted));
+                if (eventLog.replace(id, oldEvents, newEvents)) {
+                    log.debug("Total size of the logs exceeded. Compacted events of {}", id);
+                    footprint.update(id, newEvents, oldBytes - freed);
+                    indexEvents(id, newEvents);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the size of a log appended to without {@link #doAppend(List)} (e.g. by an entry processor on another
+     * member) and compacts the largest logs if the total size is exceeded.
+     *
+     * @param id          the instance
+     * @param lastVersion the last version of the log
+     * @param events      the number of events in the log
+     * @param bytes       the estimated size of the log or {@link EventLogFootprint#UNKNOWN}
+     */
+    protected final void recordAppended(InstanceId id, long lastVersion, int events, long bytes) {
+        footprint.update(id, lastVersion, events, bytes);
+        if (footprint.getTotalBytes() > maxLogBytes) {
+            compactLargestLogs();
+        }
+    }
+
+    protected final long getMaxLogBytesPerAggregate() {
+        return maxLogBytesPerAggregate;
+    }
+
+    protected final boolean isSizeLimited() {
+        return maxLogBytesPerAggregate != Long.MAX_VALUE || maxLogBytes != Long.MAX_VALUE;
+    }
+
+    private long getLogBytes() {
+        if (!isSizeLimited()) {
+            footprint.estimateUnknown(eventLog::get);
+        }
+        return footprint.getTotalBytes();
+    }
+
+    /**
+     * Creates the log to store from the new events of an instance, e.g. to attach data to the events.
+     *
+     * @param oldLog the log before the append or compaction
+     * @param newLog the old events retained followed by the appended events
+     * @return the log to store
+     */
+    protected List<InstanceEvent> toLog(List<InstanceEvent> oldLog, List<InstanceEvent> newLog) {
+        return newLog;
+    }
+
+    /**
+     * Takes the sequence numbers from the logs (see {@link SequencedEventList}) instead of assigning them, so they
+     * are the same on all members sharing the logs.
+     *
+     * @param assigned   the number of sequences assigned before, gaps below aren't waited for
+     * @param settleTime how long readers wait for an event filling a gap in the sequence
+     */
+    protected final void useSharedSequences(long assigned, Duration settleTime) {
+        sequenceIndex.useSharedSequences(assigned, settleTime);
+    }
+
+    /**
+     * Called after events have been appended to the instance's log. Assigns the sequence numbers to the new events.
+     *
+     * @param id     the instance
+     * @param events the appended events
+     * @param log    the instance's complete log after the append
+     */
+    protected void afterAppend(InstanceId id, List<InstanceEvent> events, List<InstanceEvent> log) {
+        indexEvents(id, log);
+    }
+
+    /**
+     * Assigns the sequence numbers to the events of the log which haven't been indexed yet.
+     *
+     * @param id  the instance
+     * @param log the instance's complete log
+     * @return the newly indexed events
+     */
+    protected final List<InstanceEvent> indexEvents(InstanceId id, List<InstanceEvent> log) {
+        return sequenceIndex.update(id, log);
+    }
+
+    /**
+     * Assigns the sequence numbers to appended events which haven't been indexed yet, when only the appended events
+     * are known.
+     *
+     * @param id     the instance
+     * @param events the appended events
+     * @return the newly indexed events
+     */
+    protected final List<InstanceEvent> indexAppendedEvents(InstanceId id, List<InstanceEvent> events) {
+        return sequenceIndex.append(id, events, maxLogSizePerAggregate);
+    }
+
+    /**
+     * Removes the events of the instance from the sequence index, after its log has been removed.
+     *
+     * @param id the instance
+     */
+    protected final void removeFromIndex(InstanceId id) {
+        sequenceIndex.remove(id);
+    }
+
+    /**
+     * @param id the instance
+     * @return the version of the last event of the instance with a sequence number or {@code -1} if there is none.
+     */
+    protected final long getLastIndexedVersion(InstanceId id) {
+        return sequenceIndex.getLastIndexedVersion(id);
+    }
+
+    /**
+     * Whether the per-instance event lists may share their backing array between appends. Stores must not use
+     * structural sharing if the map compares the serialized values on replace (e.g. a Hazelcast map), as the shared
+     * lists are serialized as plain {@link ArrayList}s.
+     *
+     * @return {@code true} if the event lists may share their backing array.
+     */
+    protected boolean isStructuralSharingSupported() {
+        return true;
     }
 
-    private OptimisticLockingException createOptimisticLockException(InstanceEvent event, long lastVersion) {
+    private List<InstanceEvent> toEventList(List<InstanceEvent> events) {
+        return isStructuralSharingSupported() ? AppendOnlyEventList.copyOf(events, maxLogSizePerAggregate + 1) : events;
+    }
+
+    private List<InstanceEvent> newEventList() {
+        return isStructuralSharingSupported() ? AppendOnlyEventList.empty(maxLogSizePerAggregate + 1) :
+            new ArrayList<>(maxLogSizePerAggregate + 1);
+    }
+
+    static void compact(List<InstanceEvent> events) {
+        compact(events, Long.MAX_VALUE, (e) -> 0L);
+    }
+
+    /**
+     * Drops superseded events (i.e. followed by a later event of the same type), oldest first, until the given
+     * number of bytes has been freed. The latest event of each type is always kept.
+     *
+     * @param events      the log to compact in place
+     * @param bytesToFree the bytes to free, {@link Long#MAX_VALUE} to drop all superseded events
+     * @param sizeOf      the estimated size of an event
+     * @return the estimated bytes freed
+     */
+    static long compact(List<InstanceEvent> events, long bytesToFree, ToLongFunction<InstanceEvent> sizeOf) {
+        boolean[] superseded = new boolean[events.size()];
+        Set<Class<?>> seen = new HashSet<>();
+        for (int i = events.size() - 1; i >= 0; i--) {
+            superseded[i] = !seen.add(events.get(i).getClass());
+        }
+
+        long freed = 0L;
+        int kept = 0;
+        for (int i = 0; i < events.size(); i++) {
+            InstanceEvent event = events.get(i);
+            if (superseded[i] && freed < bytesToFree) {
+                freed += sizeOf.applyAsLong(event);
+            } else {
+                events.set(kept++, event);
+            }
+        }
+        events.subList(kept, events.size()).clear();
+        return freed;
+    }
+
+    static OptimisticLockingException createOptimisticLockException(InstanceEvent event, long lastVersion) {
         return new OptimisticLockingException(
             "Verison " + event.getVersion() + " was overtaken by " + lastVersion + " for " + event.getInstance());
     }
 
+    static InstanceId getInstanceId(List<InstanceEvent> events) {
+        InstanceId id = events.get(0).getInstance();
+        if (!events.stream().allMatch(event -> event.getInstance().equals(id))) {
+            throw new IllegalArgumentException("'events' must only refer to the same instance.");
+        }
+        return id;
+    }
+
+    private static boolean isTombstoned(List<InstanceEvent> events, Instant deregisteredBefore) {
+        if (events.isEmpty()) {
+            return false;
+        }
+        InstanceEvent last = events.get(events.size() - 1);
+        return last instanceof InstanceDeregisteredEvent && last.getTimestamp().isBefore(deregisteredBefore);
+    }
+
+    protected final ConcurrentMap<InstanceId, List<InstanceEvent>> getEventLog() {
+        return eventLog;
+    }
+
     protected static long getLastVersion(List<InstanceEvent> events) {
         return events.isEmpty() ? -1 : events.get(events.size() - 1).getVersion();
     }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static java.util.Comparator.comparingLong;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Accounts the estimated size of the event logs. The size of an event is estimated by its compact binary encoding,
+ * which grows with the detail maps the events carry. The footprint of a log is only recomputed if it has been
+ * changed without being recorded (e.g. by another cluster member). Logs may be recorded with an {@link #UNKNOWN}
+ * size, which is estimated on the next {@link #estimateUnknown(Function)}.
+ */
+final class EventLogFootprint {
+    static final long UNKNOWN = -1L;
+    private final ConcurrentMap<InstanceId, LogSize> logs = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong totalEvents = new AtomicLong();
+
+    static long estimate(InstanceEvent event) {
+        return BinaryValueCodec.sizeOf(event);
+    }
+
+    static long estimate(List<InstanceEvent> events) {
+        long bytes = 0L;
+        for (InstanceEvent event : events) {
+            bytes += estimate(event);
+        }
+        return bytes;
+    }
+
+    /**
+     * @param id  the instance
+     * @param log the instance's current log
+     * @return the estimated size of the log
+     */
+    long getBytes(InstanceId id, List<InstanceEvent> log) {
+        LogSize recorded = this.logs.get(id);
+        if (recorded != null && recorded.bytes != UNKNOWN &&
+            recorded.lastVersion == ConcurrentMapEventStore.getLastVersion(log)) {
+            return recorded.bytes;
+        }
+        return estimate(log);
+    }
+
+    /**
+     * Records the size of a log after an append or a compaction. Outdated logs (e.g. recorded after a newer one) are
+     * ignored.
+     *
+     * @param id    the instance
+     * @param log   the instance's log after the append
+     * @param bytes the estimated size of the log or {@link #UNKNOWN}
+     */
+    void update(InstanceId id, List<InstanceEvent> log, long bytes) {
+        this.update(id, ConcurrentMapEventStore.getLastVersion(log), log.size(), bytes);
+    }
+
+    /**
+     * Records the size of a log known only by its last version and number of events, e.g. appended on another
+     * member.
+     */
+    void update(InstanceId id, long lastVersion, int events, long bytes) {
+        LogSize size = new LogSize(lastVersion, events, bytes);
+        this.logs.compute(id, (key, previous) -> {
+            if (previous != null && previous.lastVersion > size.lastVersion) {
+                return previous;
+            }
+            this.totalBytes.addAndGet(size.getKnownBytes() - (previous != null ? previous.getKnownBytes() : 0L));
+            this.totalEvents.addAndGet(size.events - (previous != null ? previous.events : 0L));
+            return size;
+        });
+    }
+
+    void remove(InstanceId id) {
+        this.logs.computeIfPresent(id, (key, previous) -> {
+            this.totalBytes.addAndGet(-previous.getKnownBytes());
+            this.totalEvents.addAndGet(-previous.events);
+            return null;
+        });
+    }
+
+    /**
+     * Estimates the size of the logs recorded with an unknown size.
+     *
+     * @param logs resolves the current log of an instance
+     */
+    void estimateUnknown(Function<InstanceId, List<InstanceEvent>> logs) {
+        this.logs.forEach((id, size) -> {
+            if (size.bytes == UNKNOWN) {
+                List<InstanceEvent> log = logs.apply(id);
+                if (log != null) {
+                    this.update(id, log, estimate(log));
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the recorded instances, the one with the largest log first.
+     */
+    List<InstanceId> getLargestLogs() {
+        return this.logs.entrySet()
+                        .stream()
+                        .sorted(Map.Entry.comparingByValue(comparingLong(LogSize::getKnownBytes).reversed()))
+                        .map(Map.Entry::getKey)
+                        .collect(toList());
+    }
+
+    long getTotalBytes() {
+        return this.totalBytes.get();
+    }
+
+    long getTotalEvents() {
+        return this.totalEvents.get();
+    }
+
+    int getLogCount() {
+        return this.logs.size();
+    }
+
+    private static final class LogSize {
+        private final long lastVersion;
+        private final int events;
+        private final long bytes;
+
+        private LogSize(long lastVersion, int events, long bytes) {
+            this.lastVersion = lastVersion;
+            this.events = events;
+            this.bytes = bytes;
+        }
+
+        private long getKnownBytes() {
+            return this.bytes != UNKNOWN ? this.bytes : 0L;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Assigns the global sequence numbers to appended events and indexes the events by it, so readers can fetch the
+ * events after a known sequence without sorting the whole log. The sequence is kept next to the event, so the
+ * (immutable) event itself is never changed. Events dropped by the compaction of an instance's
+ * log are removed from the index.
+ * <p>
+ * With shared sequences the sequences are not assigned by the index but taken from the logs (see
+ * {@link SequencedEventList}), so all members of a cluster index an event with the same sequence. As events appended
+ * by different members may arrive out of order, events after a gap in the sequence are only returned by
+ * {@link #findSince(long, int)} once the gap has been filled or the settle time has passed.
+ */
+final class EventSequenceIndex {
+    private final ConcurrentSkipListMap<Long, SequencedInstanceEvent> events = new ConcurrentSkipListMap<>();
+    private final Map<InstanceId, List<SequencedInstanceEvent>> indexedByInstance = new HashMap<>();
+    private final TreeMap<Long, Long> pendingSince = new TreeMap<>();
+    private long nextSequence = 0L;
+    private boolean sharedSequences = false;
+    private long settleNanos = 0L;
+    private long watermark = -1L;
+
+    /**
+     * Takes the sequences from the logs instead of assigning them.
+     *
+     * @param assigned   the number of sequences assigned before, gaps below aren't waited for
+     * @param settleTime how long to wait for a gap in the sequence to be filled
+     */
+    synchronized void useSharedSequences(long assigned, Duration settleTime) {
+        this.sharedSequences = true;
+        this.settleNanos = settleTime.toNanos();
+        this.watermark = Math.max(this.watermark, assigned - 1L);
+        this.pendingSince.headMap(this.watermark, true).clear();
+    }
+
+    /**
+     * Indexes the events of the instance's log which are newer than the already indexed ones and removes the events
+     * dropped from the log by a compaction. Outdated logs (e.g. from a writer overtaken by another one) are ignored.
+     *
+     * @param id  the instance
+     * @param log the instance's complete log after the append or compaction
+     * @return the newly indexed events
+     */
+    synchronized List<InstanceEvent> update(InstanceId id, List<InstanceEvent> log) {
+        if (log.isEmpty()) {
+            return emptyList();
+        }
+        this.seen(log);
+        List<SequencedInstanceEvent> indexed = this.indexedByInstance.computeIfAbsent(id, key -> new ArrayList<>());
+        long lastIndexedVersion = getLastIndexedVersion(indexed);
+        if (log.get(log.size() - 1).getVersion() < lastIndexedVersion) {
+            return emptyList();
+        }
+
+        List<InstanceEvent> newEvents = new ArrayList<>(log.size());
+        for (InstanceEvent event : log) {
+            if (event.getVersion() > lastIndexedVersion) {
+                newEvents.add(event);
+            }
+        }
+        if (log.size() < indexed.size() + newEvents.size()) {
+            Set<Long> retainedVersions = new HashSet<>();
+            log.forEach(event -> retainedVersions.add(event.getVersion()));
+            this.remove(indexed, event -> !retainedVersions.contains(event.getEvent().getVersion()));
+        }
+        return this.add(indexed, newEvents, log);
+    }
+
+    /**
+     * Indexes events appended to an instance's log, when only the appended events are known. The compaction of the
+     * log is reproduced on the indexed events.
+     *
+     * @param id                     the instance
+     * @param events                 the appended events
+     * @param maxLogSizePerAggregate the log size triggering the compaction
+     * @return the newly indexed events
+     */
+    synchronized List<InstanceEvent> append(InstanceId id, List<InstanceEvent> events, int maxLogSizePerAggregate) {
+        this.seen(events);
+        List<SequencedInstanceEvent> indexed = this.indexedByInstance.computeIfAbsent(id, key -> new ArrayList<>());
+        long lastIndexedVersion = getLastIndexedVersion(indexed);
+        List<InstanceEvent> newEvents = new ArrayList<>(events.size());
+        for (InstanceEvent event : events) {
+            if (event.getVersion() > lastIndexedVersion) {
+                newEvents.add(event);
+            }
+        }
+        if (newEvents.isEmpty()) {
+            return emptyList();
+        }
+        if (indexed.size() + newEvents.size() > maxLogSizePerAggregate) {
+            List<InstanceEvent> compacted = new ArrayList<>(indexed.size() + newEvents.size());
+            indexed.forEach(event -> compacted.add(event.getEvent()));
+            compacted.addAll(newEvents);
+            ConcurrentMapEventStore.compact(compacted);
+            Set<InstanceEvent> retained = Collections.newSetFromMap(new IdentityHashMap<>());
+            retained.addAll(compacted);
+            this.remove(indexed, event -> !retained.contains(event.getEvent()));
+            newEvents.removeIf(event -> !retained.contains(event));
+        }
+        return this.add(indexed, newEvents, events);
+    }
+
+    /**
+     * Removes all events of the instance, e.g. after its log has been purged.
+     *
+     * @param id the instance
+     */
+    synchronized void remove(InstanceId id) {
+        List<SequencedInstanceEvent> indexed = this.indexedByInstance.remove(id);
+        if (indexed != null) {
+            indexed.forEach(event -> this.events.remove(event.getSequence()));
+        }
+    }
+
+    /**
+     * @param id the instance
+     * @return the version of the last indexed event of the instance or {@code -1} if none has been indexed.
+     */
+    synchronized long getLastIndexedVersion(InstanceId id) {
+        List<SequencedInstanceEvent> indexed = this.indexedByInstance.get(id);
+        return indexed != null ? getLastIndexedVersion(indexed) : -1L;
+    }
+
+    /**
+     * @param source the list the new events are taken from (in the same order), holding the shared sequences
+     * @return the indexed events, without events lacking a shared sequence
+     */
+    private List<InstanceEvent> add(List<SequencedInstanceEvent> indexed,
+                                    List<InstanceEvent> newEvents,
+                                    List<InstanceEvent> source) {
+        List<InstanceEvent> added = new ArrayList<>(newEvents.size());
+        int position = 0;
+        for (InstanceEvent event : newEvents) {
+            long sequence;
+            if (this.sharedSequences) {
+                while (source.get(position) != event) {
+                    position++;
+                }
+                sequence = SequencedEventList.getSequence(source, position);
+                if (sequence == SequencedEventList.UNKNOWN) {
+                    continue;
+                }
+            } else {
+                //the events are appended to the skip list's tail only, so readers never see a gap
+                sequence = this.nextSequence++;
+            }
+            SequencedInstanceEvent sequenced = new SequencedInstanceEvent(sequence, event);
+            this.events.put(sequenced.getSequence(), sequenced);
+            indexed.add(sequenced);
+            added.add(event);
+        }
+        return added;
+    }
+
+    /**
+     * Records the shared sequences of the list as seen, so readers don't wait for them anymore.
+     */
+    private void seen(List<InstanceEvent> source) {
+        if (!this.sharedSequences) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < source.size(); i++) {
+            long sequence = SequencedEventList.getSequence(source, i);
+            if (sequence > this.watermark) {
+                this.pendingSince.putIfAbsent(sequence, now);
+            }
+        }
+        this.advanceWatermark(now);
+    }
+
+    /**
+     * Advances the watermark over the seen sequences without gaps, and over gaps which haven't been filled in the
+     * settle time (e.g. sequences of failed appends or of events compacted before this member indexed them).
+     *
+     * @return the greatest sequence readers may see
+     */
+    private synchronized long advanceWatermark(long now) {
+        if (!this.sharedSequences) {
+            return Long.MAX_VALUE;
+        }
+        while (!this.pendingSince.isEmpty()) {
+            Map.Entry<Long, Long> first = this.pendingSince.firstEntry();
+            if (first.getKey() > this.watermark + 1L && now - first.getValue() < this.settleNanos) {
+                break;
+            }
+            this.watermark = Math.max(this.watermark, first.getKey());
+            this.pendingSince.pollFirstEntry();
+        }
+        return this.watermark;
+    }
+
+    private void remove(List<SequencedInstanceEvent> indexed, Predicate<SequencedInstanceEvent> predicate) {
+        indexed.removeIf(event -> {
+            if (!predicate.test(event)) {
+                return false;
+            }
+            this.events.remove(event.getSequence());
+            return true;
+        });
+    }
+
+    private static long getLastIndexedVersion(List<SequencedInstanceEvent> indexed) {
+        return indexed.isEmpty() ? -1L : indexed.get(indexed.size() - 1).getEvent().getVersion();
+    }
+
+    /**
+     * @param sequence the sequence to start after
+     * @param limit    maximum number of events to return
+     * @return the events with a sequence greater than {@code sequence}, in sequence order
+     */
+    List<SequencedInstanceEvent> findSince(long sequence, int limit) {
+        long visible = this.advanceWatermark(System.nanoTime());
+        if (sequence >= visible) {
+            return emptyList();
+        }
+        List<SequencedInstanceEvent> result = new ArrayList<>(Math.min(limit, 256));
+        Iterator<SequencedInstanceEvent> iterator = this.events.subMap(sequence, false, visible, true)
+                                                               .values()
+                                                               .iterator();
+        while (result.size() < limit && iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+}
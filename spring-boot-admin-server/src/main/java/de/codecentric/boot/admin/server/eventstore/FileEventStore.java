@@ -0,0 +1,487 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Event-Store keeping the events in memory and appending them to memory-mapped segment files, so the
+ * event log survives restarts. Each segment is a sequence of {@code [length][crc32][payload]} records, the payload
+ * being the event encoded by {@link BinaryValueCodec}. Segments are rolled when full and compacted into a single
+ * segment holding the current (compacted) log when {@code maxSegments} exist. The compaction runs in the background
+ * and only holds the lock for taking a snapshot of the log and for swapping the segments, so appends aren't blocked
+ * while the log is rewritten; meanwhile the segments may exceed {@code maxSegments}. Changes are forced to disk every
+ * {@code syncInterval} instead of on every append.
+ */
+public class FileEventStore extends InMemoryEventStore implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(FileEventStore.class);
+    private static final int MAGIC = 0x53424145;
+    private static final int FORMAT_VERSION = 3;
+    private static final int SEGMENT_HEADER_SIZE = 9;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final List<Path> segments = new ArrayList<>();
+    private final Object mappingLock = new Object();
+    private final Scheduler compactionScheduler = Schedulers.newSingle("event-store-compaction");
+    private final Disposable syncSubscription;
+    private long nextSegmentNumber = 0L;
+    private boolean compacting = false;
+    private boolean compactionRequested = false;
+    @Nullable
+    private volatile MappedByteBuffer activeSegment;
+    private volatile boolean dirty = false;
+
+    public FileEventStore(Path directory) {
+        this(100, directory, 16 * 1024 * 1024, 8, Duration.ofSeconds(1L));
+    }
+
+    public FileEventStore(int maxLogSizePerAggregate,
+                          Path directory,
+                          int segmentSize,
+                          int maxSegments,
+                          Duration syncInterval) {
+        super(maxLogSizePerAggregate);
+        Assert.isTrue(segmentSize > SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE, "'segmentSize' is too small");
+        Assert.isTrue(maxSegments > 1, "'maxSegments' must be greater than 1");
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        try {
+            Files.createDirectories(directory);
+            this.replay();
+            this.rollSegment(0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Couldn't open event store at " + directory, ex);
+        }
+        Scheduler scheduler = Schedulers.newSingle("event-store-sync");
+        this.syncSubscription = Flux.interval(syncInterval, scheduler)
+                                    .doOnNext(i -> this.sync())
+                                    .onErrorContinue((ex, value) -> log.warn("Unexpected error while syncing events",
+                                        ex
+                                    ))
+                                    .doFinally(s -> scheduler.dispose())
+                                    .subscribe();
+    }
+
+    /**
+     * The events are written to the segments before they are added to the in-memory log, so a failed write doesn't
+     * leave the in-memory log ahead of the segments.
+     */
+    @Override
+    protected boolean doAppend(List<InstanceEvent> events) {
+        if (events.isEmpty()) {
+            return true;
+        }
+        //the lock keeps the order in the segments the same as in the in-memory log
+        synchronized (this.segments) {
+            InstanceEvent first = events.get(0);
+            List<InstanceEvent> oldEvents = this.getEventLog().get(getInstanceId(events));
+            long lastVersion = oldEvents != null ? getLastVersion(oldEvents) : -1L;
+            if (lastVersion >= first.getVersion()) {
+                throw createOptimisticLockException(first, lastVersion);
+            }
+            try {
+                List<byte[]> records = new ArrayList<>(events.size());
+                for (InstanceEvent event : events) {
+                    records.add(encode(event));
+                }
+                this.write(records);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Couldn't write events to " + this.directory, ex);
+            }
+            return super.doAppend(events);
+        }
+    }
+
+    /**
+     * Purges the logs from memory and compacts the segments, so the purged events aren't replayed on restart.
+     */
+    @Override
+    protected List<InstanceId> doPurgeDeregistered(Instant deregisteredBefore) {
+        synchronized (this.segments) {
+            List<InstanceId> purged = super.doPurgeDeregistered(deregisteredBefore);
+            if (!purged.isEmpty() && this.activeSegment != null) {
+                if (this.compacting) {
+                    //the running compaction may have taken its snapshot before the purge
+                    this.compactionRequested = true;
+                } else {
+                    try {
+                        this.startCompaction(0);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException("Couldn't compact segments in " + this.directory, ex);
+                    }
+                }
+            }
+            return purged;
+        }
+    }
+
+    /**
+     * Forces all appended events to disk.
+     */
+    public void sync() {
+        //the lock keeps the segment from being unmapped while it is forced
+        synchronized (this.mappingLock) {
+            MappedByteBuffer segment = this.activeSegment;
+            if (this.dirty && segment != null) {
+                this.dirty = false;
+                segment.force();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        this.syncSubscription.dispose();
+        synchronized (this.segments) {
+            this.sync();
+            MappedByteBuffer segment = this.activeSegment;
+            this.activeSegment = null;
+            this.compactionScheduler.dispose();
+            if (segment != null) {
+                this.unmap(segment);
+            }
+        }
+    }
+
+    /**
+     * Writes the records of an append to the active segment. The segments are rolled (or compacted) before, so the
+     * records of an append are never split across segments.
+     */
+    private void write(List<byte[]> records) throws IOException {
+        MappedByteBuffer segment = this.activeSegment;
+        if (segment == null) {
+            throw new IllegalStateException("Event store at " + this.directory + " has already been closed.");
+        }
+        int size = 0;
+        for (byte[] record : records) {
+            size += RECORD_HEADER_SIZE + record.length;
+        }
+        if (segment.remaining() < size) {
+            if (this.segments.size() >= this.maxSegments && !this.compacting) {
+                this.startCompaction(size);
+            } else {
+                this.rollSegment(size);
+            }
+            segment = this.activeSegment;
+        }
+        for (byte[] record : records) {
+            putRecord(segment, record);
+        }
+        this.dirty = true;
+    }
+
+    private static void putRecord(MappedByteBuffer segment, byte[] payload) {
+        segment.putInt(payload.length);
+        segment.putInt(checksum(payload));
+        segment.put(payload);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private void rollSegment(int minCapacity) throws IOException {
+        this.rollSegment(this.nextSegmentPath(), minCapacity);
+    }
+
+    private void rollSegment(Path path, int minCapacity) throws IOException {
+        this.sync();
+        MappedByteBuffer previous = this.activeSegment;
+        this.activeSegment = this.openSegment(path, Math.max(this.segmentSize, SEGMENT_HEADER_SIZE + minCapacity));
+        this.segments.add(path);
+        if (previous != null) {
+            this.unmap(previous);
+        }
+        log.debug("Rolled event store segment to {}", path);
+    }
+
+    private Path nextSegmentPath() {
+        return this.directory.resolve(String.format("%020d%s", this.nextSegmentNumber++, SEGMENT_SUFFIX));
+    }
+
+    private MappedByteBuffer openSegment(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        )) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(FORMAT_VERSION);
+            buffer.put(BinaryValueCodec.VERSION);
+            return buffer;
+        }
+    }
+
+    /**
+     * Starts compacting all segments into one holding the current in-memory log. The compacted segment gets the
+     * number before the freshly rolled active segment, so the events appended meanwhile are replayed after it. Must
+     * be called holding the lock.
+     *
+     * @param minCapacity the space to leave in the active segment for the records about to be written
+     */
+    private void startCompaction(int minCapacity) throws IOException {
+        Path path = this.nextSegmentPath();
+        this.rollSegment(minCapacity);
+        List<Path> obsolete = new ArrayList<>(this.segments.subList(0, this.segments.size() - 1));
+        //the logs are immutable, so they can be written outside of the lock
+        List<List<InstanceEvent>> logs = new ArrayList<>(this.getEventLog().values());
+        this.compacting = true;
+        this.compactionRequested = false;
+        this.compactionScheduler.schedule(() -> this.compactSegments(path, obsolete, logs));
+    }
+
+    /**
+     * Writes the snapshot of the in-memory log into the compacted segment and deletes the obsolete segments. As the
+     * in-memory log is already compacted per aggregate, this drops every event the store didn't hold anymore when the
+     * snapshot was taken.
+     */
+    private void compactSegments(Path path, List<Path> obsolete, List<List<InstanceEvent>> logs) {
+        Path temporary = path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+        boolean compacted = false;
+        try {
+            writeSegment(temporary, logs);
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+            compacted = true;
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Couldn't compact event store segments in {}", this.directory, ex);
+            deleteQuietly(temporary);
+        }
+
+        synchronized (this.segments) {
+            this.compacting = false;
+            if (compacted) {
+                this.segments.removeAll(obsolete);
+                this.segments.add(0, path);
+            }
+            if (this.compactionRequested && this.activeSegment != null) {
+                try {
+                    this.startCompaction(0);
+                } catch (IOException ex) {
+                    log.warn("Couldn't compact event store segments in {}", this.directory, ex);
+                }
+            }
+        }
+        if (compacted) {
+            //the obsolete segments have been unmapped when they were rolled
+            obsolete.forEach(FileEventStore::deleteQuietly);
+            log.debug("Compacted event store segments {} into {}", obsolete, path);
+        }
+    }
+
+    private static void writeSegment(Path path, List<List<InstanceEvent>> logs) throws IOException {
+        try (FileOutputStream file = new FileOutputStream(path.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeByte(BinaryValueCodec.VERSION);
+            for (List<InstanceEvent> events : logs) {
+                for (InstanceEvent event : events) {
+                    byte[] payload = encode(event);
+                    out.writeInt(payload.length);
+                    out.writeInt(checksum(payload));
+                    out.write(payload);
+                }
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+    }
+
+    /**
+     * Releases the mapping of a segment instead of leaving it to the garbage collector, so the file can be deleted
+     * (which fails on Windows while it is mapped). The buffer must not be accessed afterwards.
+     */
+    private void unmap(MappedByteBuffer buffer) {
+        synchronized (this.mappingLock) {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field unsafe = unsafeClass.getDeclaredField("theUnsafe");
+                unsafe.setAccessible(true);
+                try {
+                    //Java 9 and later
+                    unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafe.get(null), buffer);
+                } catch (NoSuchMethodException ex) {
+                    Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                    cleanerMethod.setAccessible(true);
+                    Object cleaner = cleanerMethod.invoke(buffer);
+                    if (cleaner != null) {
+                        cleaner.getClass().getMethod("clean").invoke(cleaner);
+                    }
+                }
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                log.debug("Couldn't unmap segment, it is unmapped when garbage collected", ex);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            log.warn("Couldn't delete event store segment {}", path, ex);
+        }
+    }
+
+    private void replay() throws IOException {
+        //leftovers of an interrupted compaction, the compacted segments are still there
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + TEMPORARY_SUFFIX)) {
+            stream.forEach(FileEventStore::deleteQuietly);
+        }
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(existing::add);
+        }
+        Collections.sort(existing);
+
+        long count = 0L;
+        for (Path segment : existing) {
+            count += this.replaySegment(segment);
+            this.segments.add(segment);
+            String fileName = segment.getFileName().toString();
+            long number = Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+            this.nextSegmentNumber = Math.max(this.nextSegmentNumber, number + 1L);
+        }
+        log.info("Loaded {} events from {} segments in {}", count, existing.size(), this.directory);
+    }
+
+    private long replaySegment(Path segment) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            return this.replaySegment(segment, buffer);
+        } finally {
+            this.unmap(buffer);
+        }
+    }
+
+    private long replaySegment(Path segment, ByteBuffer buffer) {
+        if (buffer.remaining() < SEGMENT_HEADER_SIZE || buffer.getInt() != MAGIC) {
+            log.warn("Skipping segment {} with unknown format", segment);
+            return 0L;
+        }
+        int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            log.warn("Skipping segment {} with unsupported format version {}", segment, formatVersion);
+            return 0L;
+        }
+        byte codecVersion = buffer.get();
+        if (codecVersion != BinaryValueCodec.VERSION) {
+            log.warn("Skipping segment {} with unsupported encoding version {}", segment, codecVersion);
+            return 0L;
+        }
+
+        long count = 0L;
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            if (checksum(payload) != checksum) {
+                log.warn("Skipping corrupt tail of segment {}", segment);
+                break;
+            }
+            InstanceEvent event;
+            try {
+                event = decode(payload);
+            } catch (IOException ex) {
+                log.warn("Skipping unreadable event in segment {}", segment, ex);
+                continue;
+            }
+            if (this.isNewer(event)) {
+                super.doAppend(singletonList(event));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean isNewer(InstanceEvent event) {
+        List<InstanceEvent> events = this.getEventLog().get(event.getInstance());
+        return events == null || getLastVersion(events) < event.getVersion();
+    }
+
+    private static byte[] encode(InstanceEvent event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            BinaryValueCodec.writeEvent(out, event);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static InstanceEvent decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            return BinaryValueCodec.readEvent(in);
+        }
+    }
+
+    List<Path> getSegments() {
+        synchronized (this.segments) {
+            return new ArrayList<>(this.segments);
+        }
+    }
+}
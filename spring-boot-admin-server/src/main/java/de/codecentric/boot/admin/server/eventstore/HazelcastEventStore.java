@@ -1,5 +1,5 @@
 /*
- * Copyright 2014-2018 the original author or authors.
+ * Copyright 2014-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,44 +18,324 @@ package de.codecentric.boot.admin.server.eventstore;
 
 import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
 import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.hazelcast.core.EntryAdapter;
 import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.IAtomicLong;
 import com.hazelcast.core.IMap;
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Message;
+import com.hazelcast.map.listener.EntryRemovedListener;
 import com.hazelcast.map.listener.MapListener;
+import com.hazelcast.topic.ReliableMessageListener;
+
+import static java.util.Collections.emptyMap;
 
 /**
- * Event-Store backed by a Hazelcast-map.
+ * Event-Store backed by a Hazelcast-map. If a sequence counter is given, the sequence numbers are drawn from it when
+ * appending and stored next to the events (see {@link SequencedEventList}), so all members return the same sequence
+ * for an event and cursors can be used with any member. Without the counter the sequence numbers are assigned by each
+ * member in the order it receives the updates, so they are only valid for the member that returned them.
+ * <p>
+ * By default each member diffs the old and new log of every map update to find the appended events. For this the map
+ * listener receives the values, so the old and new log are sent to every member on every append, in both append
+ * modes. If an event topic is given, the appended events are published to it (use a reliable topic) and each member
+ * consumes only these deltas; the map listener doesn't receive values then. When the member falls behind or misses
+ * messages, it resynchronizes from the map.
  *
  * @author Johannes Edmeier
  */
 public class HazelcastEventStore extends ConcurrentMapEventStore {
 
     private static final Logger log = LoggerFactory.getLogger(HazelcastEventStore.class);
+    /**
+     * How long readers wait for an event appended by another member which has been assigned a lower sequence than
+     * the events already received.
+     */
+    private static final Duration SEQUENCE_SETTLE_TIME = Duration.ofSeconds(1L);
+    private final IMap<InstanceId, List<InstanceEvent>> eventLog;
+    private final int maxLogSizePerAggregate;
+    private final AppendMode appendMode;
+    @Nullable
+    private final ITopic<List<InstanceEvent>> eventTopic;
+    @Nullable
+    private final IAtomicLong sequence;
 
     public HazelcastEventStore(IMap<InstanceId, List<InstanceEvent>> eventLogs) {
         this(100, eventLogs);
     }
 
     public HazelcastEventStore(int maxLogSizePerAggregate, IMap<InstanceId, List<InstanceEvent>> eventLog) {
+        this(maxLogSizePerAggregate, eventLog, AppendMode.REPLACE);
+    }
+
+    public HazelcastEventStore(int maxLogSizePerAggregate,
+                               IMap<InstanceId, List<InstanceEvent>> eventLog,
+                               AppendMode appendMode) {
+        this(maxLogSizePerAggregate, eventLog, appendMode, null);
+    }
+
+    public HazelcastEventStore(int maxLogSizePerAggregate,
+                               IMap<InstanceId, List<InstanceEvent>> eventLog,
+                               AppendMode appendMode,
+                               @Nullable ITopic<List<InstanceEvent>> eventTopic) {
+        this(maxLogSizePerAggregate, eventLog, appendMode, eventTopic, null);
+    }
+
+    public HazelcastEventStore(int maxLogSizePerAggregate,
+                               IMap<InstanceId, List<InstanceEvent>> eventLog,
+                               AppendMode appendMode,
+                               @Nullable ITopic<List<InstanceEvent>> eventTopic,
+                               @Nullable IAtomicLong sequence) {
         super(maxLogSizePerAggregate, eventLog);
+        this.eventLog = eventLog;
+        this.maxLogSizePerAggregate = maxLogSizePerAggregate;
+        this.appendMode = appendMode;
+        this.eventTopic = eventTopic;
+        this.sequence = sequence;
+        if (sequence != null) {
+            //read before the logs, so the sequences of events missing in the logs aren't waited for
+            this.useSharedSequences(sequence.get(), SEQUENCE_SETTLE_TIME);
+        }
+
+        //the logs of purged instances are removed from the index on all members
+        eventLog.addEntryListener((EntryRemovedListener<InstanceId, List<InstanceEvent>>) event -> {
+            log.debug("Removed {}", event.getKey());
+            this.removeFromIndex(event.getKey());
+        }, false);
+
+        if (eventTopic != null) {
+            eventTopic.addMessageListener(new EventTopicListener());
+            //index the events appended before this member joined
+            this.resync();
+            return;
+        }
 
         eventLog.addEntryListener((MapListener) new EntryAdapter<InstanceId, List<InstanceEvent>>() {
+            @Override
+            public void entryAdded(EntryEvent<InstanceId, List<InstanceEvent>> event) {
+                log.debug("Added {}", event);
+                HazelcastEventStore.this.onUpdate(event.getKey(), null, event.getValue());
+            }
+
             @Override
             public void entryUpdated(EntryEvent<InstanceId, List<InstanceEvent>> event) {
                 log.debug("Updated {}", event);
-                long lastKnownVersion = getLastVersion(event.getOldValue());
-                List<InstanceEvent> newEvents = event.getValue()
-                                                     .stream()
-                                                     .filter(e -> e.getVersion() > lastKnownVersion)
-                                                     .collect(Collectors.toList());
-                HazelcastEventStore.this.publish(newEvents);
+                HazelcastEventStore.this.onUpdate(event.getKey(), event.getOldValue(), event.getValue());
             }
         }, true);
+        //index the events appended before this member joined
+        eventLog.forEach(this::indexEvents);
+    }
+
+    @Override
+    protected boolean doAppend(List<InstanceEvent> events) {
+        if (this.appendMode != AppendMode.ENTRY_PROCESSOR || events.isEmpty()) {
+            return super.doAppend(events);
+        }
+
+        InstanceId id = getInstanceId(events);
+        List<InstanceEvent> sequenced = this.sequenced(events);
+        Object result = this.eventLog.executeOnKey(id, this.createAppendProcessor(sequenced));
+        if (result instanceof Long) {
+            throw createOptimisticLockException(events.get(0), (Long) result);
+        }
+        log.debug("Events appended to log {}", events);
+        this.recordAppended(id, (AppendEventsEntryProcessor.AppendedLog) result);
+        this.distribute(sequenced);
+        return true;
+    }
+
+    /**
+     * In {@code ENTRY_PROCESSOR} mode an entry processor carrying only the instance's events is submitted for each
+     * instance, so the appends run concurrently on the owning members without sending all events to each partition.
+     */
+    @Override
+    public Mono<Map<InstanceId, Throwable>> appendAll(List<List<InstanceEvent>> appends) {
+        if (this.appendMode != AppendMode.ENTRY_PROCESSOR) {
+            return super.appendAll(appends);
+        }
+        return Mono.fromSupplier(() -> {
+            Map<InstanceId, List<InstanceEvent>> byInstance = new HashMap<>();
+            for (List<InstanceEvent> events : appends) {
+                if (!events.isEmpty()) {
+                    byInstance.put(getInstanceId(events), this.sequenced(events));
+                }
+            }
+            if (byInstance.isEmpty()) {
+                return emptyMap();
+            }
+
+            Map<InstanceId, Future<Object>> results = new HashMap<>();
+            byInstance.forEach((id, events) -> results.put(id,
+                this.eventLog.submitToKey(id, this.createAppendProcessor(events))
+            ));
+            Map<InstanceId, Throwable> errors = new HashMap<>();
+            byInstance.forEach((id, events) -> {
+                try {
+                    Object result = results.get(id).get();
+                    if (result instanceof Long) {
+                        errors.put(id, createOptimisticLockException(events.get(0), (Long) result));
+                    } else {
+                        log.debug("Events appended to log {}", events);
+                        this.recordAppended(id, (AppendEventsEntryProcessor.AppendedLog) result);
+                        this.distribute(events);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    errors.put(id, ex);
+                } catch (ExecutionException ex) {
+                    errors.put(id, ex.getCause());
+                }
+            });
+            return errors;
+        });
+    }
+
+    private AppendEventsEntryProcessor createAppendProcessor(List<InstanceEvent> events) {
+        return new AppendEventsEntryProcessor(events,
+            this.maxLogSizePerAggregate,
+            this.getMaxLogBytesPerAggregate(),
+            this.isSizeLimited()
+        );
+    }
+
+    private void recordAppended(InstanceId id, AppendEventsEntryProcessor.AppendedLog appended) {
+        this.recordAppended(id, appended.getLastVersion(), appended.getEvents(), appended.getBytes());
+    }
+
+    private void onUpdate(InstanceId id, @Nullable List<InstanceEvent> oldEvents, List<InstanceEvent> events) {
+        indexEvents(id, events);
+        long lastKnownVersion = oldEvents != null ? getLastVersion(oldEvents) : -1L;
+        List<InstanceEvent> newEvents = events.stream()
+                                              .filter(e -> e.getVersion() > lastKnownVersion)
+                                              .collect(Collectors.toList());
+        this.publish(newEvents);
+    }
+
+    private void onDelta(List<InstanceEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        InstanceId id = getInstanceId(events);
+        if (events.get(0).getVersion() > getLastIndexedVersion(id) + 1L) {
+            //this member missed events of the instance, so catch up using the complete log
+            List<InstanceEvent> log = this.eventLog.get(id);
+            if (log != null) {
+                this.publish(indexEvents(id, log));
+            }
+        }
+        this.publish(indexAppendedEvents(id, events));
     }
 
+    /**
+     * Indexes and publishes the events of all logs in the map which haven't been indexed yet.
+     */
+    private void resync() {
+        for (Map.Entry<InstanceId, List<InstanceEvent>> entry : this.eventLog.entrySet()) {
+            this.publish(indexEvents(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private void distribute(List<InstanceEvent> events) {
+        if (this.eventTopic != null) {
+            this.eventTopic.publish(events instanceof SequencedEventList ? events : new ArrayList<>(events));
+        }
+    }
+
+    /**
+     * Draws the sequences for the events to append, if the sequences are shared.
+     */
+    private List<InstanceEvent> sequenced(List<InstanceEvent> events) {
+        return this.sequence != null ? SequencedEventList.of(events, this.sequence.getAndAdd(events.size())) : events;
+    }
+
+    @Override
+    protected List<InstanceEvent> toLog(List<InstanceEvent> oldLog, List<InstanceEvent> newLog) {
+        if (this.sequence == null) {
+            return newLog;
+        }
+        long lastVersion = getLastVersion(oldLog);
+        List<InstanceEvent> appended = newLog.stream()
+                                             .filter(event -> event.getVersion() > lastVersion)
+                                             .collect(Collectors.toList());
+        return SequencedEventList.concat(oldLog, (SequencedEventList) this.sequenced(appended)).retain(newLog);
+    }
+
+    @Override
+    protected void afterAppend(InstanceId id, List<InstanceEvent> events, List<InstanceEvent> log) {
+        //the events are indexed by the listener, so each member indexes the updates of all members
+        this.distribute(log instanceof SequencedEventList ?
+            ((SequencedEventList) log).since(events.get(0).getVersion()) :
+            events);
+    }
+
+    @Override
+    protected boolean isStructuralSharingSupported() {
+        return false;
+    }
+
+    /**
+     * Consumes the appended events from the event topic. A gap in the sequence of the topic means this member lost
+     * messages (e.g. it has been disconnected longer than the topic's capacity), so it resynchronizes from the map.
+     */
+    private class EventTopicListener implements ReliableMessageListener<List<InstanceEvent>> {
+        private long lastSequence = -1L;
+
+        @Override
+        public void onMessage(Message<List<InstanceEvent>> message) {
+            log.debug("Received {}", message.getMessageObject());
+            HazelcastEventStore.this.onDelta(message.getMessageObject());
+        }
+
+        @Override
+        public long retrieveInitialSequence() {
+            return this.lastSequence >= 0L ? this.lastSequence + 1L : -1L;
+        }
+
+        @Override
+        public void storeSequence(long sequence) {
+            if (this.lastSequence >= 0L && sequence > this.lastSequence + 1L) {
+                log.info("Missed {} messages on the event topic. Resynchronizing the event log",
+                    sequence - this.lastSequence - 1L
+                );
+                HazelcastEventStore.this.resync();
+            }
+            this.lastSequence = sequence;
+        }
+
+        @Override
+        public boolean isLossTolerant() {
+            return true;
+        }
+
+        @Override
+        public boolean isTerminal(Throwable failure) {
+            log.warn("Unexpected error while processing events from the topic", failure);
+            return false;
+        }
+    }
+
+    public enum AppendMode {
+        /**
+         * Appends by replacing the whole log of the instance (compare-and-set).
+         */
+        REPLACE,
+        /**
+         * Appends by an entry processor on the member owning the log, so only the new events are sent.
+         */
+        ENTRY_PROCESSOR
+    }
 }
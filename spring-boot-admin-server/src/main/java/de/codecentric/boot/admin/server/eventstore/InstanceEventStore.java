@@ -20,8 +20,12 @@ import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
 import de.codecentric.boot.admin.server.domain.values.InstanceId;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import org.reactivestreams.Publisher;
 
 /**
@@ -34,5 +38,49 @@ public interface InstanceEventStore extends Publisher<InstanceEvent> {
 
     Flux<InstanceEvent> find(InstanceId id);
 
+    /**
+     * Returns the events appended after the given sequence, ordered by their sequence. Use the sequence of the last
+     * returned event to fetch the next events. Stores without an index by sequence don't support this, as paging
+     * through {@link #findAll()} would read the whole log for each page.
+     *
+     * @param sequence the sequence to start after; {@code -1} to start with the first event
+     * @param limit    maximum number of events to return
+     * @return the events with a greater sequence, or an {@link UnsupportedOperationException} if the store has no
+     * index by sequence
+     */
+    default Flux<SequencedInstanceEvent> findSince(long sequence, int limit) {
+        return Flux.error(new UnsupportedOperationException(
+            "Finding events by sequence is not supported by " + getClass().getSimpleName()));
+    }
+
     Mono<Void> append(List<InstanceEvent> events);
+
+    /**
+     * Appends the events of several instances. Stores may commit them together, but each instance's append succeeds
+     * or fails on its own.
+     *
+     * @param appends the appends, each holding the events of a single instance. Each instance may occur only once.
+     * @return the errors of the failed appends (e.g. {@link OptimisticLockingException}) by instance
+     */
+    default Mono<Map<InstanceId, Throwable>> appendAll(List<List<InstanceEvent>> appends) {
+        return Flux.fromIterable(appends)
+                   .filter(events -> !events.isEmpty())
+                   .concatMap(events -> this.append(events)
+                                            .then(Mono.<Tuple2<InstanceId, Throwable>>empty())
+                                            .onErrorResume(ex -> Mono.just(Tuples.of(events.get(0).getInstance(),
+                                                ex
+                                            ))))
+                   .collectMap(Tuple2::getT1, Tuple2::getT2);
+    }
+
+    /**
+     * Removes the logs of the instances which have been deregistered before the given time. The deregistration
+     * event serves as tombstone; logs with newer events (e.g. after a re-registration) are kept.
+     *
+     * @param deregisteredBefore only instances deregistered before are purged
+     * @return the purged instances
+     */
+    default Flux<InstanceId> purgeDeregistered(Instant deregisteredBefore) {
+        return Flux.empty();
+    }
 }
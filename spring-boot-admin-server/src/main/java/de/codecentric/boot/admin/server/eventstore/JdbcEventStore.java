@@ -0,0 +1,441 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Event-Store keeping the events in a relational database table (see the {@code schema-*.sql} scripts in
+ * {@code META-INF/spring-boot-admin-server/jdbc}). Each event is a row keyed by the database-generated global
+ * sequence; the unique constraint on instance id and version provides the optimistic locking. The events of an
+ * append are inserted in a single batch and transaction.
+ * <p>
+ * The table is tailed by polling for events with a greater sequence, so events appended by other servers sharing
+ * the database are published as well. As sequences may become visible out of order (concurrent transactions) or not
+ * at all (rolled back transactions), the tail remembers the events published after a gap and waits up to
+ * {@code gapTimeout} for the gap to be filled. The events already stored when the tail is started aren't published,
+ * they are restored by replaying {@link #findAll()}, which reads the table in pages of {@code pollBatchSize} events.
+ * <p>
+ * When a log exceeds {@code maxLogSizePerAggregate}, the superseded events are deleted in bulk. If the log can't be
+ * compacted below the limit, the compaction is retried only after another quarter of the limit has been appended.
+ * <p>
+ * The blocking JDBC calls are never run on the subscriber's thread. The appends are run on a bounded parallel
+ * scheduler; the appends for the same instance are chained, so they are applied in the order they were subscribed to,
+ * while appends for different instances run concurrently (conflicting appends from other servers are rejected by the
+ * unique constraint). The queries are run on an elastic scheduler.
+ */
+public class JdbcEventStore extends InstanceEventPublisher implements InstanceEventStore, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(JdbcEventStore.class);
+    private static final String TABLE = "sba_instance_event";
+    private static final String SELECT_EVENTS = "SELECT event_sequence, payload FROM " + TABLE;
+    private static final String SELECT_LOG = "SELECT event_sequence, event_version, event_type FROM " + TABLE +
+                                             " WHERE instance_id = ? ORDER BY event_version";
+    private static final String SELECT_LOG_STATS = "SELECT MAX(event_version), COUNT(*) FROM " + TABLE +
+                                                   " WHERE instance_id = ?";
+    private static final String INSERT_EVENT = "INSERT INTO " + TABLE +
+                                               " (instance_id, event_version, event_type, event_timestamp, payload)" +
+                                               " VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_TOMBSTONES = "SELECT e.instance_id, e.event_version FROM " + TABLE + " e" +
+                                                    " WHERE e.event_type = 'DEREGISTERED' AND e.event_timestamp < ?" +
+                                                    " AND e.event_version = (SELECT MAX(m.event_version) FROM " +
+                                                    TABLE + " m WHERE m.instance_id = e.instance_id)";
+    private final RowMapper<InstanceEvent> eventMapper = (rs, rowNum) -> readEvent(rs);
+    private final RowMapper<SequencedInstanceEvent> sequencedEventMapper = (rs, rowNum) -> new SequencedInstanceEvent(
+        rs.getLong(1),
+        readEvent(rs)
+    );
+    private final int maxLogSizePerAggregate;
+    private final int compactionStep;
+    private final int pageSize;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EventTail tail;
+    private final Scheduler appendScheduler = Schedulers.newParallel("jdbc-event-store-append",
+        Schedulers.DEFAULT_POOL_SIZE
+    );
+    private final ConcurrentMap<InstanceId, MonoProcessor<Void>> pendingAppends = new ConcurrentHashMap<>();
+    private final Scheduler queryScheduler = Schedulers.newElastic("jdbc-event-store-query");
+    private final Disposable pollSubscription;
+
+    public JdbcEventStore(DataSource dataSource) {
+        this(100, dataSource, Duration.ofSeconds(1L), 500, Duration.ofSeconds(10L));
+    }
+
+    public JdbcEventStore(int maxLogSizePerAggregate,
+                          DataSource dataSource,
+                          Duration pollInterval,
+                          int pollBatchSize,
+                          Duration gapTimeout) {
+        Assert.isTrue(maxLogSizePerAggregate > 0, "'maxLogSizePerAggregate' must be greater than 0");
+        Assert.isTrue(pollBatchSize > 0, "'pollBatchSize' must be greater than 0");
+        this.maxLogSizePerAggregate = maxLogSizePerAggregate;
+        this.compactionStep = Math.max(1, maxLogSizePerAggregate / 4);
+        this.pageSize = pollBatchSize;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.tail = new EventTail(pollBatchSize, gapTimeout);
+
+        Scheduler scheduler = Schedulers.newSingle("jdbc-event-store-poll");
+        this.pollSubscription = Flux.interval(pollInterval, scheduler)
+                                    .doOnNext(i -> this.publish(this.tail.poll()))
+                                    .onErrorContinue((ex, value) -> log.warn("Unexpected error while polling events",
+                                        ex
+                                    ))
+                                    .doFinally(s -> scheduler.dispose())
+                                    .subscribe();
+    }
+
+    @Override
+    public Flux<InstanceEvent> findAll() {
+        return Mono.fromCallable(() -> this.selectSince(0L, this.pageSize))
+                   .subscribeOn(this.queryScheduler)
+                   .expand(page -> page.size() < this.pageSize ?
+                       Mono.empty() :
+                       Mono.fromCallable(() -> this.selectSince(page.get(page.size() - 1).getSequence(), this.pageSize))
+                           .subscribeOn(this.queryScheduler))
+                   .flatMapIterable(page -> page)
+                   .map(SequencedInstanceEvent::getEvent);
+    }
+
+    @Override
+    public Flux<InstanceEvent> find(InstanceId id) {
+        return this.query(SELECT_EVENTS + " WHERE instance_id = ? ORDER BY event_version", id.getValue());
+    }
+
+    @Override
+    public Flux<SequencedInstanceEvent> findSince(long sequence, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(this.selectSince(sequence, limit))).subscribeOn(this.queryScheduler);
+    }
+
+    @Override
+    public Mono<Void> append(List<InstanceEvent> events) {
+        if (events.isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            InstanceId id = ConcurrentMapEventStore.getInstanceId(events);
+            //chained to the pending append of the same instance, so the appends are applied in order
+            MonoProcessor<Void> done = MonoProcessor.create();
+            MonoProcessor<Void> previous = this.pendingAppends.put(id, done);
+            Mono<Void> append = Mono.<Void>fromRunnable(() -> this.append(id, events))
+                .subscribeOn(this.appendScheduler);
+            return (previous != null ? previous.then(append) : append).doFinally(s -> {
+                done.onComplete();
+                this.pendingAppends.remove(id, done);
+            });
+        });
+    }
+
+    /**
+     * Removes the logs of the instances deregistered before the given time. Each log is removed in its own
+     * transaction, which is rolled back if events have been appended after the deregistration in the meantime.
+     */
+    @Override
+    public Flux<InstanceId> purgeDeregistered(Instant deregisteredBefore) {
+        return Flux.defer(() -> Flux.fromIterable(this.jdbcTemplate.query(SELECT_TOMBSTONES,
+            (rs, rowNum) -> new Tombstone(InstanceId.of(rs.getString(1)), rs.getLong(2)),
+            deregisteredBefore.toEpochMilli()
+        ))).filter(this::purge).map(Tombstone::getId).subscribeOn(this.queryScheduler);
+    }
+
+    @Override
+    public void close() {
+        this.pollSubscription.dispose();
+        this.appendScheduler.dispose();
+        this.queryScheduler.dispose();
+    }
+
+    private void append(InstanceId id, List<InstanceEvent> events) {
+        try {
+            this.transactionTemplate.execute(status -> {
+                this.doAppend(id, events);
+                return null;
+            });
+        } catch (DuplicateKeyException | ConcurrencyFailureException ex) {
+            throw new OptimisticLockingException(
+                "Couldn't append version " + events.get(0).getVersion() + " for " + id + ": " + ex.getMessage());
+        }
+        log.debug("Events appended to log {}", events);
+        this.publish(events);
+    }
+
+    private void doAppend(InstanceId id, List<InstanceEvent> events) {
+        LogStats stats = this.jdbcTemplate.queryForObject(SELECT_LOG_STATS,
+            (rs, rowNum) -> new LogStats(rs.getObject(1) != null ? rs.getLong(1) : null, rs.getLong(2)),
+            id.getValue()
+        );
+        Long lastVersion = stats != null ? stats.lastVersion : null;
+        if (lastVersion != null && lastVersion >= events.get(0).getVersion()) {
+            throw ConcurrentMapEventStore.createOptimisticLockException(events.get(0), lastVersion);
+        }
+
+        //the events are published right after the commit, so the tail must skip them
+        this.tail.skip(this.insert(id, events));
+
+        long oldSize = stats != null ? stats.size : 0L;
+        if (this.isCompactionDue(oldSize, oldSize + events.size())) {
+            log.debug("Threshold for {} reached. Compacting events", id);
+            this.compact(this.jdbcTemplate.query(SELECT_LOG,
+                (rs, rowNum) -> new LogEntry(rs.getLong(1), rs.getLong(2), rs.getString(3)),
+                id.getValue()
+            ));
+        }
+    }
+
+    /**
+     * Compaction is due when the log exceeds the limit, and then again for each quarter of the limit the log grows
+     * beyond it (i.e. when it couldn't be compacted below the limit).
+     */
+    private boolean isCompactionDue(long oldSize, long newSize) {
+        if (newSize <= this.maxLogSizePerAggregate) {
+            return false;
+        }
+        if (oldSize <= this.maxLogSizePerAggregate) {
+            return true;
+        }
+        long oldSteps = (oldSize - this.maxLogSizePerAggregate - 1L) / this.compactionStep;
+        long newSteps = (newSize - this.maxLogSizePerAggregate - 1L) / this.compactionStep;
+        return newSteps > oldSteps;
+    }
+
+    /**
+     * Inserts the events in a single batch.
+     *
+     * @return the sequences generated for the events
+     */
+    private List<Long> insert(InstanceId id, List<InstanceEvent> events) {
+        List<Long> sequences = this.jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_EVENT, new String[]{"event_sequence"})) {
+                for (InstanceEvent event : events) {
+                    ps.setString(1, id.getValue());
+                    ps.setLong(2, event.getVersion());
+                    ps.setString(3, event.getType());
+                    ps.setLong(4, event.getTimestamp().toEpochMilli());
+                    ps.setBytes(5, serialize(event));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                List<Long> generated = new ArrayList<>(events.size());
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        generated.add(keys.getLong(1));
+                    }
+                }
+                return generated;
+            }
+        });
+        return sequences != null ? sequences : emptyList();
+    }
+
+    /**
+     * Deletes the superseded events (i.e. followed by a later event of the same type).
+     */
+    private void compact(List<LogEntry> entries) {
+        Set<String> seenTypes = new HashSet<>();
+        List<Object[]> superseded = new ArrayList<>();
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (!seenTypes.add(entries.get(i).type)) {
+                superseded.add(new Object[]{entries.get(i).sequence});
+            }
+        }
+        if (!superseded.isEmpty()) {
+            this.jdbcTemplate.batchUpdate("DELETE FROM " + TABLE + " WHERE event_sequence = ?", superseded);
+        }
+    }
+
+    private boolean purge(Tombstone tombstone) {
+        Boolean purged = this.transactionTemplate.execute(status -> {
+            this.jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE instance_id = ? AND event_version <= ?",
+                tombstone.getId().getValue(),
+                tombstone.getVersion()
+            );
+            Long newer = this.jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + TABLE + " WHERE instance_id = ? AND event_version > ?",
+                Long.class,
+                tombstone.getId().getValue(),
+                tombstone.getVersion()
+            );
+            if (newer != null && newer > 0L) {
+                status.setRollbackOnly();
+                return false;
+            }
+            return true;
+        });
+        if (Boolean.TRUE.equals(purged)) {
+            log.debug("Purged the event log of deregistered instance {}", tombstone.getId());
+            return true;
+        }
+        return false;
+    }
+
+    private Flux<InstanceEvent> query(String sql, Object... args) {
+        return Flux.defer(() -> Flux.fromIterable(this.jdbcTemplate.query(sql, this.eventMapper, args)))
+                   .subscribeOn(this.queryScheduler);
+    }
+
+    private List<SequencedInstanceEvent> selectSince(long sequence, int limit) {
+        PreparedStatementCreator statement = connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                SELECT_EVENTS + " WHERE event_sequence > ? ORDER BY event_sequence");
+            ps.setLong(1, sequence);
+            ps.setMaxRows(limit);
+            return ps;
+        };
+        return this.jdbcTemplate.query(statement, this.sequencedEventMapper);
+    }
+
+    private static InstanceEvent readEvent(ResultSet rs) throws SQLException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(rs.getBytes(2)))) {
+            BinaryValueCodec.readVersion(in);
+            return BinaryValueCodec.readEvent(in);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Couldn't deserialize event " + rs.getLong(1), ex);
+        }
+    }
+
+    private static byte[] serialize(InstanceEvent event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            BinaryValueCodec.writeVersion(out);
+            BinaryValueCodec.writeEvent(out, event);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Couldn't serialize event " + event, ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    @lombok.Data
+    private static final class LogEntry {
+        private final long sequence;
+        private final long version;
+        private final String type;
+    }
+
+    @lombok.Data
+    private static final class LogStats {
+        @Nullable
+        private final Long lastVersion;
+        private final long size;
+    }
+
+    @lombok.Data
+    private static final class Tombstone {
+        private final InstanceId id;
+        private final long version;
+    }
+
+    /**
+     * Tracks the events already published. All events up to {@code watermark} have been published; the events
+     * published after a gap are remembered until the gap is filled or times out.
+     */
+    private class EventTail {
+        private final int batchSize;
+        private final long gapTimeoutNanos;
+        private final TreeSet<Long> published = new TreeSet<>();
+        private long watermark;
+        @Nullable
+        private Long gapSince;
+
+        private EventTail(int batchSize, Duration gapTimeout) {
+            this.batchSize = batchSize;
+            this.gapTimeoutNanos = gapTimeout.toNanos();
+            Long last = jdbcTemplate.queryForObject("SELECT MAX(event_sequence) FROM " + TABLE, Long.class);
+            this.watermark = last != null ? last : 0L;
+        }
+
+        private synchronized void skip(List<Long> sequences) {
+            for (Long sequence : sequences) {
+                if (sequence > this.watermark) {
+                    this.published.add(sequence);
+                }
+            }
+        }
+
+        private synchronized List<InstanceEvent> poll() {
+            List<InstanceEvent> events = new ArrayList<>();
+            for (SequencedInstanceEvent event : selectSince(this.watermark, this.batchSize)) {
+                if (this.published.add(event.getSequence())) {
+                    events.add(event.getEvent());
+                }
+            }
+            this.advance();
+            return events;
+        }
+
+        private void advance() {
+            while (this.published.remove(this.watermark + 1L)) {
+                this.watermark++;
+            }
+            if (this.published.isEmpty()) {
+                this.gapSince = null;
+                return;
+            }
+            long now = System.nanoTime();
+            if (this.gapSince == null) {
+                this.gapSince = now;
+            } else if (now - this.gapSince >= this.gapTimeoutNanos) {
+                log.debug("Skipping event sequences {} to {}", this.watermark + 1L, this.published.first() - 1L);
+                this.watermark = this.published.first() - 1L;
+                this.gapSince = null;
+                this.advance();
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import javax.annotation.Nullable;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+/**
+ * An immutable event log which keeps the cluster-wide sequence of each event next to it, so all members index the
+ * events with the same sequence. Events without a known sequence (e.g. from logs written before the sequences were
+ * introduced) have the sequence {@link #UNKNOWN}.
+ */
+public final class SequencedEventList extends AbstractList<InstanceEvent>
+    implements RandomAccess, Serializable, DataSerializable {
+    public static final long UNKNOWN = -1L;
+    private static final long serialVersionUID = 1L;
+    private InstanceEvent[] events;
+    private long[] sequences;
+
+    /**
+     * For deserialization only.
+     */
+    public SequencedEventList() {
+        this(new InstanceEvent[0], new long[0]);
+    }
+
+    private SequencedEventList(InstanceEvent[] events, long[] sequences) {
+        this.events = events;
+        this.sequences = sequences;
+    }
+
+    /**
+     * @param events        the events
+     * @param firstSequence the sequence of the first event, the following events get consecutive sequences
+     * @return the sequenced events
+     */
+    public static SequencedEventList of(List<InstanceEvent> events, long firstSequence) {
+        long[] sequences = new long[events.size()];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = firstSequence + i;
+        }
+        return new SequencedEventList(events.toArray(new InstanceEvent[0]), sequences);
+    }
+
+    /**
+     * @param log      the log to append to, the events keep their sequences if it is a {@code SequencedEventList}
+     * @param appended the events to append
+     * @return the log followed by the appended events
+     */
+    public static SequencedEventList concat(@Nullable List<InstanceEvent> log, SequencedEventList appended) {
+        int size = log != null ? log.size() : 0;
+        InstanceEvent[] events = new InstanceEvent[size + appended.size()];
+        long[] sequences = new long[events.length];
+        for (int i = 0; i < size; i++) {
+            events[i] = log.get(i);
+            sequences[i] = getSequence(log, i);
+        }
+        System.arraycopy(appended.events, 0, events, size, appended.events.length);
+        System.arraycopy(appended.sequences, 0, sequences, size, appended.sequences.length);
+        return new SequencedEventList(events, sequences);
+    }
+
+    /**
+     * @param log   the log
+     * @param index the index of the event
+     * @return the sequence of the event or {@link #UNKNOWN} if the log doesn't carry sequences
+     */
+    public static long getSequence(List<InstanceEvent> log, int index) {
+        return log instanceof SequencedEventList ? ((SequencedEventList) log).sequences[index] : UNKNOWN;
+    }
+
+    /**
+     * Keeps the events retained by a compaction together with their sequences.
+     *
+     * @param retained the retained events, in the same order as in this list
+     * @return the retained events with their sequences
+     */
+    public SequencedEventList retain(List<InstanceEvent> retained) {
+        InstanceEvent[] retainedEvents = new InstanceEvent[retained.size()];
+        long[] retainedSequences = new long[retainedEvents.length];
+        int kept = 0;
+        for (int i = 0; i < this.events.length && kept < retainedEvents.length; i++) {
+            if (this.events[i] == retained.get(kept)) {
+                retainedEvents[kept] = this.events[i];
+                retainedSequences[kept++] = this.sequences[i];
+            }
+        }
+        if (kept < retainedEvents.length) {
+            throw new IllegalArgumentException("'retained' must only contain events of this list in the same order.");
+        }
+        return new SequencedEventList(retainedEvents, retainedSequences);
+    }
+
+    /**
+     * @param version the first version to include
+     * @return the events with the given or a greater version
+     */
+    public SequencedEventList since(long version) {
+        int from = 0;
+        while (from < this.events.length && this.events[from].getVersion() < version) {
+            from++;
+        }
+        return new SequencedEventList(Arrays.copyOfRange(this.events, from, this.events.length),
+            Arrays.copyOfRange(this.sequences, from, this.sequences.length)
+        );
+    }
+
+    @Override
+    public InstanceEvent get(int index) {
+        return this.events[index];
+    }
+
+    @Override
+    public int size() {
+        return this.events.length;
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        out.writeInt(this.events.length);
+        for (int i = 0; i < this.events.length; i++) {
+            out.writeLong(this.sequences[i]);
+            out.writeObject(this.events[i]);
+        }
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        int size = in.readInt();
+        this.events = new InstanceEvent[size];
+        this.sequences = new long[size];
+        for (int i = 0; i < size; i++) {
+            this.sequences[i] = in.readLong();
+            this.events[i] = in.readObject();
+        }
+    }
+}
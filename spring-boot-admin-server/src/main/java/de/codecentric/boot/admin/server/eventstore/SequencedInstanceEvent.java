@@ -0,0 +1,32 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+/**
+ * An event together with its position in the global sequence of the store that returned it. The event is
+ * serialized inline, so the json holds the event's properties plus the {@code sequence}.
+ */
+@lombok.Data
+public final class SequencedInstanceEvent {
+    private final long sequence;
+    @JsonUnwrapped
+    private final InstanceEvent event;
+}
@@ -28,6 +28,7 @@ import org.reactivestreams.Publisher;
 
 public class EndpointDetectionTrigger extends AbstractEventHandler<InstanceEvent> {
     private final EndpointDetector endpointDetector;
+    private InstanceOwnership ownership = id -> true;
 
     public EndpointDetectionTrigger(EndpointDetector endpointDetector, Publisher<InstanceEvent> publisher) {
         super(publisher, InstanceEvent.class);
@@ -40,6 +41,7 @@ public class EndpointDetectionTrigger extends AbstractEventHandler<InstanceEvent
         return publisher.subscribeOn(scheduler)
                         .filter(event -> event instanceof InstanceStatusChangedEvent ||
                                          event instanceof InstanceRegistrationUpdatedEvent)
+                        .filter(event -> this.ownership.isOwner(event.getInstance()))
                         .flatMap(this::detectEndpoints)
                         .doFinally(s -> scheduler.dispose());
     }
@@ -47,4 +49,11 @@ public class EndpointDetectionTrigger extends AbstractEventHandler<InstanceEvent
     protected Mono<Void> detectEndpoints(InstanceEvent event) {
         return endpointDetector.detectEndpoints(event.getInstance());
     }
+
+    /**
+     * @param ownership decides which instances are handled by this trigger. By default all instances are handled.
+     */
+    public void setOwnership(InstanceOwnership ownership) {
+        this.ownership = ownership;
+    }
 }
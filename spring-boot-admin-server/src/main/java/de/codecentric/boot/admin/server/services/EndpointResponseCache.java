@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+
+/**
+ * Remembers the last response of the polled endpoints per instance, so unchanged responses don't need to be decoded
+ * again. The requests are made conditional with the {@code ETag} and {@code Last-Modified} validators of the last
+ * response; on {@code 304 Not Modified} the last value is used. For endpoints without validators the body is
+ * compared by its checksum before it is decoded.
+ */
+public class EndpointResponseCache {
+    private static final DefaultDataBufferFactory BUFFER_FACTORY = new DefaultDataBufferFactory();
+    private static final byte[] EMPTY_BODY = new byte[0];
+    private final ConcurrentMap<InstanceId, ConcurrentMap<String, CachedResponse>> responses =
+        new ConcurrentHashMap<>();
+
+    /**
+     * @param id       the id of the instance
+     * @param endpoint the polled endpoint
+     * @return headers making the request conditional on the last response.
+     */
+    public Consumer<HttpHeaders> conditionalHeaders(InstanceId id, String endpoint) {
+        return headers -> {
+            CachedResponse cached = this.get(id, endpoint);
+            if (cached == null) {
+                return;
+            }
+            if (cached.etag != null) {
+                headers.setIfNoneMatch(cached.etag);
+            }
+            if (cached.lastModified >= 0L) {
+                headers.setIfModifiedSince(cached.lastModified);
+            }
+        };
+    }
+
+    /**
+     * Converts the response, unless it is unchanged since the last response of the instance's endpoint.
+     *
+     * @param id        the id of the instance
+     * @param endpoint  the polled endpoint
+     * @param response  the response
+     * @param converter converts changed responses; must only depend on the status, headers and body of the response
+     * @param <T>       the type of the converted value
+     * @return the converted value or the last value, if the response is unchanged.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> convert(InstanceId id,
+                               String endpoint,
+                               ClientResponse response,
+                               Function<ClientResponse, Mono<T>> converter) {
+        CachedResponse cached = this.get(id, endpoint);
+        if (response.rawStatusCode() == HttpStatus.NOT_MODIFIED.value()) {
+            Mono<T> value = cached != null ? Mono.just((T) cached.value) : Mono.empty();
+            return response.bodyToMono(Void.class).then(value);
+        }
+
+        return response.bodyToMono(byte[].class).defaultIfEmpty(EMPTY_BODY).flatMap(body -> {
+            HttpHeaders headers = response.headers().asHttpHeaders();
+            long checksum = checksum(body);
+            if (cached != null && cached.matches(response.rawStatusCode(), headers, checksum)) {
+                return Mono.just((T) cached.value);
+            }
+            Flux<DataBuffer> buffers = body.length > 0 ? Flux.just(BUFFER_FACTORY.wrap(body)) : Flux.empty();
+            return converter.apply(ClientResponse.from(response).body(buffers).build())
+                            .doOnNext(value -> this.put(id,
+                                endpoint,
+                                new CachedResponse(response.rawStatusCode(), headers, checksum, value)
+                            ));
+        });
+    }
+
+    /**
+     * Forgets the responses of the instance, e.g. because it has been deregistered.
+     *
+     * @param id the id of the instance
+     */
+    public void evict(InstanceId id) {
+        this.responses.remove(id);
+    }
+
+    @Nullable
+    private CachedResponse get(InstanceId id, String endpoint) {
+        ConcurrentMap<String, CachedResponse> endpoints = this.responses.get(id);
+        return endpoints != null ? endpoints.get(endpoint) : null;
+    }
+
+    private void put(InstanceId id, String endpoint, CachedResponse response) {
+        this.responses.computeIfAbsent(id, key -> new ConcurrentHashMap<>()).put(endpoint, response);
+    }
+
+    private static long checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return ((long) body.length << 32) ^ crc.getValue();
+    }
+
+    private static final class CachedResponse {
+        private final int status;
+        @Nullable
+        private final String contentType;
+        @Nullable
+        private final String etag;
+        private final long lastModified;
+        private final long checksum;
+        private final Object value;
+
+        private CachedResponse(int status, HttpHeaders headers, long checksum, Object value) {
+            this.status = status;
+            this.contentType = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+            this.etag = headers.getETag();
+            this.lastModified = headers.getLastModified();
+            this.checksum = checksum;
+            this.value = value;
+        }
+
+        private boolean matches(int status, HttpHeaders headers, long checksum) {
+            return this.status == status &&
+                   this.checksum == checksum &&
+                   Objects.equals(this.contentType, headers.getFirst(HttpHeaders.CONTENT_TYPE));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceDeregisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import reactor.core.publisher.Flux;
+
+import org.reactivestreams.Publisher;
+
+/**
+ * Evicts the cached endpoint responses of deregistered instances from the {@link EndpointResponseCache}, no matter
+ * which updater polled them.
+ */
+public class EndpointResponseCacheEvictionTrigger extends AbstractEventHandler<InstanceDeregisteredEvent> {
+    private final EndpointResponseCache responseCache;
+
+    public EndpointResponseCacheEvictionTrigger(EndpointResponseCache responseCache,
+                                                Publisher<InstanceEvent> publisher) {
+        super(publisher, InstanceDeregisteredEvent.class);
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    protected Publisher<Void> handle(Flux<InstanceDeregisteredEvent> publisher) {
+        return publisher.doOnNext(event -> this.responseCache.evict(event.getInstance())).then();
+    }
+}
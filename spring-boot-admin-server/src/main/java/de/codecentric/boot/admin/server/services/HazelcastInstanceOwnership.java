@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.Member;
+import com.hazelcast.core.Partition;
+
+/**
+ * Assigns the instances to the members of the Hazelcast cluster by the ownership of the partition the
+ * {@link InstanceId} hashes to. Hazelcast migrates the partitions when members join or leave, so the instances are
+ * rebalanced without any further coordination. As the event logs in the Hazelcast-map are keyed by the same id, the
+ * owner of an instance also owns its event log and appends the events locally.
+ */
+public class HazelcastInstanceOwnership implements InstanceOwnership {
+    private final HazelcastInstance hazelcastInstance;
+
+    public HazelcastInstanceOwnership(HazelcastInstance hazelcastInstance) {
+        this.hazelcastInstance = hazelcastInstance;
+    }
+
+    /**
+     * While a partition has no owner (e.g. during a migration) every member considers itself the owner, as polling
+     * an instance twice is better than not polling it at all.
+     */
+    @Override
+    public boolean isOwner(InstanceId id) {
+        Partition partition = this.hazelcastInstance.getPartitionService().getPartition(id);
+        Member owner = partition.getOwner();
+        return owner == null || owner.localMember();
+    }
+}
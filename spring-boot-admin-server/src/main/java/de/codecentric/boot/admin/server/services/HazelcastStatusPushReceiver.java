@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.entities.InstanceRepository;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.IMap;
+import com.hazelcast.map.listener.EntryAddedListener;
+import com.hazelcast.map.listener.EntryEvictedListener;
+import com.hazelcast.map.listener.EntryExpiredListener;
+import com.hazelcast.map.listener.EntryRemovedListener;
+import com.hazelcast.map.listener.EntryUpdatedListener;
+
+/**
+ * Shares the leases of the instances pushing their status via a Hazelcast-map. The map holds the duration of each
+ * lease and expires the entry after it (using the clock of the entry's owner), the members start the lease on their
+ * own clock when they are notified about the entry. So no absolute timestamps are compared across members and
+ * {@link #isPushing(InstanceId)} doesn't need a remote lookup. A member which joins the cluster polls the instances
+ * until it is notified about their next push.
+ */
+public class HazelcastStatusPushReceiver extends StatusPushReceiver {
+    private final IMap<InstanceId, Long> leases;
+
+    public HazelcastStatusPushReceiver(InstanceRepository repository, IMap<InstanceId, Long> leases) {
+        super(repository);
+        this.leases = leases;
+        this.leases.addEntryListener(new LeaseListener(), true);
+    }
+
+    @Override
+    protected void leaseGranted(InstanceId id, Duration lease) {
+        this.leases.set(id, lease.toMillis(), lease.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void leaseRevoked(InstanceId id) {
+        this.leases.delete(id);
+    }
+
+    private class LeaseListener implements EntryAddedListener<InstanceId, Long>,
+        EntryUpdatedListener<InstanceId, Long>, EntryRemovedListener<InstanceId, Long>,
+        EntryEvictedListener<InstanceId, Long>, EntryExpiredListener<InstanceId, Long> {
+
+        @Override
+        public void entryAdded(EntryEvent<InstanceId, Long> event) {
+            renew(event.getKey(), Duration.ofMillis(event.getValue()));
+        }
+
+        @Override
+        public void entryUpdated(EntryEvent<InstanceId, Long> event) {
+            renew(event.getKey(), Duration.ofMillis(event.getValue()));
+        }
+
+        @Override
+        public void entryRemoved(EntryEvent<InstanceId, Long> event) {
+            expire(event.getKey());
+        }
+
+        @Override
+        public void entryEvicted(EntryEvent<InstanceId, Long> event) {
+            expire(event.getKey());
+        }
+
+        @Override
+        public void entryExpired(EntryEvent<InstanceId, Long> event) {
+            expire(event.getKey());
+        }
+    }
+}
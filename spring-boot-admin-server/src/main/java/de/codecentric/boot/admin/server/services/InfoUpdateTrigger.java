@@ -29,6 +29,7 @@ import org.reactivestreams.Publisher;
 
 public class InfoUpdateTrigger extends AbstractEventHandler<InstanceEvent> {
     private final InfoUpdater infoUpdater;
+    private InstanceOwnership ownership = id -> true;
 
     public InfoUpdateTrigger(InfoUpdater infoUpdater, Publisher<InstanceEvent> publisher) {
         super(publisher, InstanceEvent.class);
@@ -42,6 +43,7 @@ public class InfoUpdateTrigger extends AbstractEventHandler<InstanceEvent> {
                         .filter(event -> event instanceof InstanceEndpointsDetectedEvent ||
                                          event instanceof InstanceStatusChangedEvent ||
                                          event instanceof InstanceRegistrationUpdatedEvent)
+                        .filter(event -> this.ownership.isOwner(event.getInstance()))
                         .flatMap(this::updateInfo)
                         .doFinally(s -> scheduler.dispose());
     }
@@ -49,4 +51,11 @@ public class InfoUpdateTrigger extends AbstractEventHandler<InstanceEvent> {
     protected Mono<Void> updateInfo(InstanceEvent event) {
         return infoUpdater.updateInfo(event.getInstance());
     }
+
+    /**
+     * @param ownership decides which instances are handled by this trigger. By default all instances are handled.
+     */
+    public void setOwnership(InstanceOwnership ownership) {
+        this.ownership = ownership;
+    }
 }
@@ -46,10 +46,18 @@ public class InfoUpdater {
     };
     private final InstanceRepository repository;
     private final InstanceWebClient instanceWebClient;
+    private final EndpointResponseCache responseCache;
 
     public InfoUpdater(InstanceRepository repository, InstanceWebClient instanceWebClient) {
+        this(repository, instanceWebClient, new EndpointResponseCache());
+    }
+
+    public InfoUpdater(InstanceRepository repository,
+                       InstanceWebClient instanceWebClient,
+                       EndpointResponseCache responseCache) {
         this.repository = repository;
         this.instanceWebClient = instanceWebClient;
+        this.responseCache = responseCache;
     }
 
     public Mono<Void> updateInfo(InstanceId id) {
@@ -68,9 +76,14 @@ public class InfoUpdater {
         return instanceWebClient.instance(instance)
                                 .get()
                                 .uri(Endpoint.INFO)
+                                .headers(responseCache.conditionalHeaders(instance.getId(), Endpoint.INFO))
                                 .exchange()
                                 .log(log.getName(), Level.FINEST)
-                                .flatMap(response -> convertInfo(instance, response))
+                                .flatMap(response -> responseCache.convert(instance.getId(),
+                                    Endpoint.INFO,
+                                    response,
+                                    r -> convertInfo(instance, r)
+                                ))
                                 .onErrorResume(ex -> Mono.just(convertInfo(instance, ex)))
                                 .map(instance::withInfo);
     }
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+
+/**
+ * Decides whether this admin server is responsible for polling an instance. In a cluster each instance should be
+ * owned by exactly one member, so the instances aren't polled by every member.
+ */
+@FunctionalInterface
+public interface InstanceOwnership {
+
+    /**
+     * @param id the id of the instance
+     * @return {@code true} if this admin server polls the instance.
+     */
+    boolean isOwner(InstanceId id);
+}
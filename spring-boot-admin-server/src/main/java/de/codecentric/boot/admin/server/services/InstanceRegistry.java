@@ -23,6 +23,7 @@ import de.codecentric.boot.admin.server.domain.values.Registration;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import org.springframework.util.Assert;
 
 /**
@@ -66,6 +67,23 @@ public class InstanceRegistry {
         return repository.findAll();
     }
 
+    /**
+     * @return whether the instances can be queried as they were at a point in time.
+     */
+    public boolean isHistorySupported() {
+        return repository.isHistorySupported();
+    }
+
+    /**
+     * Get a list of all instances as they were at the given time.
+     *
+     * @param at the point in time
+     * @return List of all instances at the given time.
+     */
+    public Flux<Instance> getInstances(Instant at) {
+        return repository.findAll(at);
+    }
+
     /**
      * Get a list of all registered application instances.
      *
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.springframework.util.Assert;
+
+/**
+ * Hashed timing wheel holding the next status check of each instance. The deadlines are hashed into a fixed number
+ * of slots by their tick; polling the wheel only looks at the slots of the ticks since the last poll, so
+ * the cost of a poll depends on the number of due checks and not on the number of instances. Deadlines further
+ * away than one revolution stay in their slot until their tick is reached.
+ */
+final class StatusCheckWheel {
+    private final long tickMillis;
+    private final List<Entry>[] slots;
+    private final Map<InstanceId, Entry> scheduled = new HashMap<>();
+    private long lastTick;
+
+    @SuppressWarnings("unchecked")
+    StatusCheckWheel(long tickMillis, int slotCount, long nowMillis) {
+        Assert.isTrue(tickMillis > 0L, "'tickMillis' must be greater than 0");
+        Assert.isTrue(slotCount > 0, "'slotCount' must be greater than 0");
+        this.tickMillis = tickMillis;
+        this.slots = new List[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            this.slots[i] = new ArrayList<>();
+        }
+        this.lastTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Schedules the next check of the instance, replacing a pending one.
+     *
+     * @param id             the instance
+     * @param deadlineMillis the time the check is due at
+     */
+    synchronized void schedule(InstanceId id, long deadlineMillis) {
+        Entry entry = new Entry(id, deadlineMillis);
+        Entry previous = this.scheduled.put(id, entry);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        //deadlines in already passed ticks are due with the next poll, which revisits the last polled tick
+        long tick = Math.max(deadlineMillis / this.tickMillis, this.lastTick);
+        this.slots[this.slotOf(tick)].add(entry);
+    }
+
+    /**
+     * Cancels the pending check of the instance, e.g. after it has been deregistered.
+     *
+     * @param id the instance
+     */
+    synchronized void cancel(InstanceId id) {
+        Entry entry = this.scheduled.remove(id);
+        if (entry != null) {
+            entry.cancelled = true;
+        }
+    }
+
+    /**
+     * Removes the checks due until the given time from the wheel.
+     *
+     * @param nowMillis the current time
+     * @return the due checks
+     */
+    synchronized List<Entry> poll(long nowMillis) {
+        long currentTick = nowMillis / this.tickMillis;
+        long firstTick = Math.max(this.lastTick, currentTick - this.slots.length + 1L);
+        List<Entry> due = new ArrayList<>();
+        for (long tick = firstTick; tick <= currentTick; tick++) {
+            Iterator<Entry> iterator = this.slots[this.slotOf(tick)].iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.cancelled) {
+                    iterator.remove();
+                } else if (entry.deadlineMillis <= nowMillis) {
+                    iterator.remove();
+                    this.scheduled.remove(entry.id);
+                    due.add(entry);
+                }
+            }
+        }
+        this.lastTick = Math.max(this.lastTick, currentTick);
+        return due;
+    }
+
+    /**
+     * Moves all pending checks to the given wheel, e.g. when the tick duration changed.
+     *
+     * @param target the wheel to move the checks to
+     */
+    synchronized void transferTo(StatusCheckWheel target) {
+        for (Entry entry : this.scheduled.values()) {
+            target.schedule(entry.id, entry.deadlineMillis);
+        }
+        this.scheduled.clear();
+        for (List<Entry> slot : this.slots) {
+            slot.clear();
+        }
+    }
+
+    synchronized int size() {
+        return this.scheduled.size();
+    }
+
+    private int slotOf(long tick) {
+        return (int) Math.floorMod(tick, (long) this.slots.length);
+    }
+
+    static final class Entry {
+        private final InstanceId id;
+        private final long deadlineMillis;
+        private boolean cancelled = false;
+
+        private Entry(InstanceId id, long deadlineMillis) {
+            this.id = id;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        InstanceId getId() {
+            return this.id;
+        }
+
+        long getDeadlineMillis() {
+            return this.deadlineMillis;
+        }
+    }
+}
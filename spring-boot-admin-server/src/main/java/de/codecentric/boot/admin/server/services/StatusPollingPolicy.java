@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import de.codecentric.boot.admin.server.domain.values.Tags;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Adapts the interval between two status updates of an instance to its status history:
+ * <ul>
+ * <li>{@code OFFLINE} instances are backed off exponentially, starting at the status lifetime, up to
+ * {@code maxOfflineInterval}.</li>
+ * <li>Right after a status change the instance is re-checked {@code transitionChecks} times after
+ * {@code transitionInterval}, so flapping instances are watched more closely.</li>
+ * <li>Instances {@code UP} for longer than {@code stableAfter} are checked every {@code stableInterval}.</li>
+ * </ul>
+ * The upper limits can be overridden per application name and per tag (given as {@code key:value}).
+ */
+public class StatusPollingPolicy {
+    private static final int MAX_BACKOFF_EXPONENT = 20;
+    private Duration transitionInterval = Duration.ofSeconds(2L);
+    private int transitionChecks = 3;
+    private Duration stableAfter = Duration.ofMinutes(10L);
+    private Limits defaultLimits = new Limits(Duration.ofSeconds(60L), Duration.ofMinutes(5L));
+    private Map<String, Limits> applicationLimits = new HashMap<>();
+    private Map<String, Limits> tagLimits = new HashMap<>();
+
+    /**
+     * @param statusLifetime    the regular interval
+     * @param status            the current status
+     * @param timeSinceChange   the time since the last status change
+     * @param checksSinceChange the number of checks since the last status change
+     * @param application       the name of the application
+     * @param tags              the tags of the instance
+     * @return the time to wait before the next status update.
+     */
+    public Duration getInterval(Duration statusLifetime,
+                                String status,
+                                Duration timeSinceChange,
+                                int checksSinceChange,
+                                @Nullable String application,
+                                Tags tags) {
+        if (StatusInfo.STATUS_OFFLINE.equals(status)) {
+            Duration maxInterval = this.getLimit(application, tags, Limits::getMaxOfflineInterval);
+            int exponent = Math.min(checksSinceChange, MAX_BACKOFF_EXPONENT);
+            Duration backoff = statusLifetime.multipliedBy(1L << exponent);
+            return max(statusLifetime, min(backoff, maxInterval));
+        }
+        if (checksSinceChange < this.transitionChecks) {
+            return min(this.transitionInterval, statusLifetime);
+        }
+        if (StatusInfo.STATUS_UP.equals(status) && timeSinceChange.compareTo(this.stableAfter) >= 0) {
+            return max(statusLifetime, this.getLimit(application, tags, Limits::getStableInterval));
+        }
+        return statusLifetime;
+    }
+
+    /**
+     * Uses the tightest limit of the matching application and tag overrides, or the default if none matches.
+     */
+    private Duration getLimit(@Nullable String application,
+                              Tags tags,
+                              Function<Limits, Duration> limit) {
+        Duration result = null;
+        Limits forApplication = application != null ? this.applicationLimits.get(application) : null;
+        if (forApplication != null && limit.apply(forApplication) != null) {
+            result = limit.apply(forApplication);
+        }
+        for (Map.Entry<String, String> tag : tags.getValues().entrySet()) {
+            Limits forTag = this.tagLimits.get(tag.getKey() + ":" + tag.getValue());
+            Duration value = forTag != null ? limit.apply(forTag) : null;
+            if (value != null) {
+                result = result != null ? min(result, value) : value;
+            }
+        }
+        return result != null ? result : limit.apply(this.defaultLimits);
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    public void setTransitionInterval(Duration transitionInterval) {
+        this.transitionInterval = transitionInterval;
+    }
+
+    public void setTransitionChecks(int transitionChecks) {
+        this.transitionChecks = transitionChecks;
+    }
+
+    public void setStableAfter(Duration stableAfter) {
+        this.stableAfter = stableAfter;
+    }
+
+    public void setDefaultLimits(Limits defaultLimits) {
+        Assert.notNull(defaultLimits.getStableInterval(), "'stableInterval' must not be null");
+        Assert.notNull(defaultLimits.getMaxOfflineInterval(), "'maxOfflineInterval' must not be null");
+        this.defaultLimits = defaultLimits;
+    }
+
+    public void setApplicationLimits(Map<String, Limits> applicationLimits) {
+        this.applicationLimits = applicationLimits;
+    }
+
+    public void setTagLimits(Map<String, Limits> tagLimits) {
+        this.tagLimits = tagLimits;
+    }
+
+    /**
+     * Upper limits of the polling intervals. {@code null} values fall back to the defaults.
+     */
+    @lombok.Data
+    public static class Limits {
+        @Nullable
+        private final Duration stableInterval;
+        @Nullable
+        private final Duration maxOfflineInterval;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.entities.Instance;
+import de.codecentric.boot.admin.server.domain.entities.InstanceRepository;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Receives the status pushed by the instances. Each push grants the instance a lease of two heartbeat intervals;
+ * as long as the lease is valid the {@link StatusUpdateTrigger} doesn't poll the instance. If a heartbeat is missed
+ * twice, the instance is polled again.
+ * <p>
+ * The leases are kept locally as deadlines on this server's monotonic clock, so checking a lease is a local lookup.
+ * Subclasses share the granted and revoked leases with the other servers of a cluster (see
+ * {@link #leaseGranted(InstanceId, Duration)}), as the push may be received by another server than the one polling.
+ * Only the duration of a lease is shared, each server starts it when it learns about it, so the servers' clocks
+ * don't need to be in sync.
+ */
+public class StatusPushReceiver {
+    private static final Logger log = LoggerFactory.getLogger(StatusPushReceiver.class);
+    private final InstanceRepository repository;
+    private final ConcurrentMap<InstanceId, Long> leases = new ConcurrentHashMap<>();
+    private Duration maxHeartbeatInterval = Duration.ofMinutes(5L);
+
+    public StatusPushReceiver(InstanceRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Applies the pushed status to the instance and renews its lease.
+     *
+     * @param id                the id of the instance
+     * @param statusInfo        the pushed status
+     * @param heartbeatInterval the interval the instance pushes its status in, even if unchanged
+     * @return the updated instance or empty if the instance isn't registered.
+     */
+    public Mono<Instance> receive(InstanceId id, StatusInfo statusInfo, Duration heartbeatInterval) {
+        Assert.isTrue(!heartbeatInterval.isNegative() && !heartbeatInterval.isZero(),
+            "'heartbeatInterval' must be positive"
+        );
+        Duration interval = heartbeatInterval.compareTo(this.maxHeartbeatInterval) > 0 ?
+            this.maxHeartbeatInterval :
+            heartbeatInterval;
+        return this.repository.computeIfPresent(id, (key, instance) -> {
+            if (!instance.isRegistered()) {
+                return Mono.empty();
+            }
+            return Mono.just(instance.withStatusInfo(statusInfo));
+        }).doOnNext(instance -> {
+            log.debug("Received status {} from {}", statusInfo.getStatus(), id);
+            Duration lease = interval.multipliedBy(2L);
+            this.renew(id, lease);
+            this.leaseGranted(id, lease);
+        });
+    }
+
+    /**
+     * @param id the id of the instance
+     * @return {@code true} if the instance has a valid lease, so it doesn't need to be polled.
+     */
+    public boolean isPushing(InstanceId id) {
+        Long lease = this.leases.get(id);
+        if (lease == null) {
+            return false;
+        }
+        if (lease - System.nanoTime() < 0L) {
+            this.leases.remove(id, lease);
+            log.debug("Heartbeat of {} has lapsed", id);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the lease of the instance, e.g. because it has been deregistered.
+     *
+     * @param id the id of the instance
+     */
+    public void revoke(InstanceId id) {
+        this.expire(id);
+        this.leaseRevoked(id);
+    }
+
+    /**
+     * Starts a lease on this server only, e.g. one granted by another server.
+     *
+     * @param id    the id of the instance
+     * @param lease the duration of the lease
+     */
+    protected final void renew(InstanceId id, Duration lease) {
+        this.leases.put(id, System.nanoTime() + lease.toNanos());
+    }
+
+    /**
+     * Removes a lease on this server only, e.g. one revoked by another server.
+     *
+     * @param id the id of the instance
+     */
+    protected final void expire(InstanceId id) {
+        this.leases.remove(id);
+    }
+
+    /**
+     * Called after a lease has been granted to share it with the other servers. Does nothing by default.
+     *
+     * @param id    the id of the instance
+     * @param lease the duration of the lease
+     */
+    protected void leaseGranted(InstanceId id, Duration lease) {
+    }
+
+    /**
+     * Called after a lease has been revoked to share it with the other servers. Does nothing by default.
+     *
+     * @param id the id of the instance
+     */
+    protected void leaseRevoked(InstanceId id) {
+    }
+
+    /**
+     * @param maxHeartbeatInterval upper bound for the heartbeat interval claimed by an instance, so an instance
+     *                             which stops pushing is polled again after at most twice this interval.
+     */
+    public void setMaxHeartbeatInterval(Duration maxHeartbeatInterval) {
+        this.maxHeartbeatInterval = maxHeartbeatInterval;
+    }
+}
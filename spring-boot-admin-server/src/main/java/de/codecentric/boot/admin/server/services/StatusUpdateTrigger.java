@@ -16,10 +16,21 @@
 
 package de.codecentric.boot.admin.server.services;
 
+import de.codecentric.boot.admin.server.domain.entities.Instance;
+import de.codecentric.boot.admin.server.domain.entities.InstanceRepository;
+import de.codecentric.boot.admin.server.domain.events.InstanceDeregisteredEvent;
 import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
 import de.codecentric.boot.admin.server.domain.events.InstanceRegisteredEvent;
 import de.codecentric.boot.admin.server.domain.events.InstanceRegistrationUpdatedEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceStatusChangedEvent;
 import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import de.codecentric.boot.admin.server.domain.values.Tags;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -27,51 +38,118 @@ import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
-import java.time.Instant;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import javax.annotation.Nullable;
 import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
 
-public class StatusUpdateTrigger extends AbstractEventHandler<InstanceEvent> {
+/**
+ * Triggers the status updates of the instances. After each update the next one is scheduled after the status
+ * lifetime, moved by a random jitter of up to half an update interval in either direction, so the checks are spread
+ * evenly instead of firing all at once every interval while the average cadence stays the status lifetime. The
+ * checks are kept in a {@link StatusCheckWheel} and at most {@code maxConcurrentUpdates} updates run at the same
+ * time; the updates after a registration are scheduled on the wheel as well, so they count against the same limit. With a {@link StatusPollingPolicy} the interval is
+ * adapted to the status history of each instance instead of always using the status lifetime. With an
+ * {@link InstanceOwnership} only the owned instances are polled; the others stay scheduled, so an instance is picked
+ * up within one interval when its ownership moves to this admin server. Instances pushing their status to the
+ * {@link StatusPushReceiver} aren't polled as long as their heartbeats arrive. Given the repository, the registered
+ * instances are scheduled on start, so instances restored from the event log are polled without a new registration.
+ * Only registered instances are scheduled; the pending check of an instance is cancelled on its deregistration.
+ */
+public class StatusUpdateTrigger extends AbstractEventHandler<InstanceEvent> implements MeterBinder {
     private static final Logger log = LoggerFactory.getLogger(StatusUpdateTrigger.class);
+    private static final int WHEEL_SLOTS = 64;
+    private static final long MIN_TICK_MILLIS = 10L;
     private final StatusUpdater statusUpdater;
-    private final Map<InstanceId, Instant> lastQueried = new HashMap<>();
+    @Nullable
+    private final InstanceRepository repository;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final ConcurrentMap<InstanceId, PollingState> pollingStates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<InstanceId, Boolean> registered = new ConcurrentHashMap<>();
     private Duration updateInterval = Duration.ofSeconds(10);
     private Duration statusLifetime = Duration.ofSeconds(10);
+    private int maxConcurrentUpdates = 256;
+    @Nullable
+    private StatusPollingPolicy pollingPolicy;
+    private InstanceOwnership ownership = id -> true;
+    @Nullable
+    private StatusPushReceiver statusPushReceiver;
+    private volatile StatusCheckWheel wheel = this.createWheel();
     @Nullable
     private Disposable intervalSubscription;
 
     public StatusUpdateTrigger(StatusUpdater statusUpdater, Publisher<InstanceEvent> publisher) {
+        this(statusUpdater, publisher, null);
+    }
+
+    public StatusUpdateTrigger(StatusUpdater statusUpdater,
+                               Publisher<InstanceEvent> publisher,
+                               @Nullable InstanceRepository repository) {
         super(publisher, InstanceEvent.class);
         this.statusUpdater = statusUpdater;
+        this.repository = repository;
     }
 
     @Override
     public void start() {
         super.start();
+        StatusCheckWheel previous = this.wheel;
+        this.wheel = this.createWheel();
+        previous.transferTo(this.wheel);
+        Duration tick = this.getTickDuration();
         Scheduler scheduler = Schedulers.newSingle("status-monitor");
-        intervalSubscription = Flux.interval(updateInterval)
-                                   .doOnSubscribe(s -> log.debug("Scheduled status update every {}", updateInterval))
-                                   .log(log.getName(), Level.FINEST).subscribeOn(scheduler)
-                                   .concatMap(i -> this.updateStatusForAllInstances())
+        intervalSubscription = Flux.interval(tick, scheduler)
+                                   .doOnSubscribe(s -> log.debug("Scheduled status updates with ticks of {}", tick))
+                                   .log(log.getName(), Level.FINEST)
+                                   .onBackpressureDrop()
+                                   .concatMapIterable(i -> this.wheel.poll(System.currentTimeMillis()))
+                                   .flatMap(this::updateDueStatus, this.maxConcurrentUpdates)
                                    .onErrorContinue((ex, value) -> log.warn("Unexpected error while updating statuses",
                                        ex
-                                   )).doFinally(s -> scheduler.dispose())
+                                   ))
+                                   .doFinally(s -> scheduler.dispose())
                                    .subscribe();
+        this.scheduleRegisteredInstances();
+    }
+
+    /**
+     * Schedules the first status update of all registered instances within one update interval.
+     */
+    private void scheduleRegisteredInstances() {
+        if (this.repository == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long maxJitter = Math.max(1L, this.updateInterval.toMillis());
+        this.repository.findAll()
+                       .filter(Instance::isRegistered)
+                       .subscribe(instance -> {
+                           this.registered.putIfAbsent(instance.getId(), Boolean.TRUE);
+                           this.schedule(instance.getId(), now + ThreadLocalRandom.current().nextLong(maxJitter));
+                       }, ex -> log.warn("Couldn't schedule the status updates of the registered instances", ex));
     }
 
     @Override
     protected Publisher<Void> handle(Flux<InstanceEvent> publisher) {
         Scheduler scheduler = Schedulers.newSingle("status-updater");
         return publisher.subscribeOn(scheduler)
+                        .doOnNext(this::trackRegistration)
+                        .doOnNext(this::trackPollingState)
+                        .doOnNext(this::revokeStatusPush)
                         .filter(event -> event instanceof InstanceRegisteredEvent ||
                                          event instanceof InstanceRegistrationUpdatedEvent)
-                        .flatMap(event -> updateStatus(event.getInstance()))
-                        .doFinally(s -> scheduler.dispose());
+                        .doOnNext(event -> this.schedule(event.getInstance(), System.currentTimeMillis()))
+                        .doFinally(s -> scheduler.dispose())
+                        .then();
     }
 
     @Override
@@ -82,20 +160,118 @@ public class StatusUpdateTrigger extends AbstractEventHandler<InstanceEvent> {
         }
     }
 
-    protected Mono<Void> updateStatusForAllInstances() {
-        log.debug("Updating status for all instances");
-        Instant expiryInstant = Instant.now().minus(statusLifetime);
-        return Flux.fromIterable(lastQueried.entrySet())
-                   .filter(e -> e.getValue().isBefore(expiryInstant))
-                   .map(Map.Entry::getKey)
-                   .flatMap(this::updateStatus)
-                   .then();
+    /**
+     * Instances owned by another admin server or pushing their status aren't updated but stay scheduled at the
+     * status lifetime, in case the ownership changes or the heartbeat lapses. As they haven't been checked, their
+     * polling state isn't advanced.
+     */
+    private Mono<Void> updateOwnedStatus(InstanceId instanceId) {
+        StatusPushReceiver receiver = this.statusPushReceiver;
+        if (!this.ownership.isOwner(instanceId) || (receiver != null && receiver.isPushing(instanceId))) {
+            this.scheduleNext(instanceId, this.statusLifetime.toMillis());
+            return Mono.empty();
+        }
+        return this.updateStatus(instanceId);
+    }
+
+    private Mono<Void> updateDueStatus(StatusCheckWheel.Entry entry) {
+        return Mono.defer(() -> {
+            this.lagMillis.set(Math.max(0L, System.currentTimeMillis() - entry.getDeadlineMillis()));
+            return this.updateOwnedStatus(entry.getId());
+        });
     }
 
     protected Mono<Void> updateStatus(InstanceId instanceId) {
-        return statusUpdater.updateStatus(instanceId).doFinally(s -> lastQueried.put(instanceId, Instant.now()));
+        return statusUpdater.updateStatus(instanceId)
+                            .doOnSubscribe(s -> this.inFlight.incrementAndGet())
+                            .doFinally(s -> {
+                                this.inFlight.decrementAndGet();
+                                this.scheduleNext(instanceId, this.getInterval(instanceId).toMillis());
+                            });
+    }
+
+    private void scheduleNext(InstanceId instanceId, long interval) {
+        long now = System.currentTimeMillis();
+        //the jitter never exceeds half the interval, so quick re-checks stay quick
+        long spread = Math.max(1L, Math.min(this.updateInterval.toMillis(), interval));
+        long jitter = ThreadLocalRandom.current().nextLong(spread) - spread / 2L;
+        this.schedule(instanceId, now + interval + jitter);
+    }
+
+    /**
+     * Schedules the check unless the instance has been deregistered or is gone in the meantime.
+     */
+    private void schedule(InstanceId instanceId, long deadlineMillis) {
+        this.registered.computeIfPresent(instanceId, (id, value) -> {
+            this.wheel.schedule(id, deadlineMillis);
+            return value;
+        });
+    }
+
+    private void trackRegistration(InstanceEvent event) {
+        if (event instanceof InstanceRegisteredEvent || event instanceof InstanceRegistrationUpdatedEvent) {
+            this.registered.put(event.getInstance(), Boolean.TRUE);
+        } else if (event instanceof InstanceDeregisteredEvent) {
+            //cancelled while holding the entry, so a running update can't schedule the instance again
+            this.registered.compute(event.getInstance(), (id, value) -> {
+                this.wheel.cancel(id);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * @return the interval after a status check of the instance, counting the check in its polling state.
+     */
+    private Duration getInterval(InstanceId instanceId) {
+        StatusPollingPolicy policy = this.pollingPolicy;
+        PollingState state = this.pollingStates.get(instanceId);
+        if (policy == null || state == null) {
+            return this.statusLifetime;
+        }
+        return state.nextInterval(policy, this.statusLifetime, System.currentTimeMillis());
+    }
+
+    private void trackPollingState(InstanceEvent event) {
+        if (this.pollingPolicy == null) {
+            return;
+        }
+        if (event instanceof InstanceRegisteredEvent) {
+            Registration registration = ((InstanceRegisteredEvent) event).getRegistration();
+            this.pollingStates.computeIfAbsent(event.getInstance(), id -> new PollingState()).register(registration);
+        } else if (event instanceof InstanceRegistrationUpdatedEvent) {
+            Registration registration = ((InstanceRegistrationUpdatedEvent) event).getRegistration();
+            this.pollingStates.computeIfAbsent(event.getInstance(), id -> new PollingState()).register(registration);
+        } else if (event instanceof InstanceStatusChangedEvent) {
+            StatusInfo statusInfo = ((InstanceStatusChangedEvent) event).getStatusInfo();
+            this.pollingStates.computeIfAbsent(event.getInstance(), id -> new PollingState())
+                              .statusChanged(statusInfo.getStatus(), event.getTimestamp().toEpochMilli());
+        } else if (event instanceof InstanceDeregisteredEvent) {
+            this.pollingStates.remove(event.getInstance());
+        }
     }
 
+    private void revokeStatusPush(InstanceEvent event) {
+        StatusPushReceiver receiver = this.statusPushReceiver;
+        if (receiver != null && event instanceof InstanceDeregisteredEvent) {
+            receiver.revoke(event.getInstance());
+        }
+    }
+
+    private StatusCheckWheel createWheel() {
+        return new StatusCheckWheel(this.getTickDuration().toMillis(), WHEEL_SLOTS, System.currentTimeMillis());
+    }
+
+    /**
+     * One revolution of the wheel takes about one update interval.
+     */
+    private Duration getTickDuration() {
+        return Duration.ofMillis(Math.max(MIN_TICK_MILLIS, this.updateInterval.toMillis() / WHEEL_SLOTS));
+    }
+
+    /**
+     * @param updateInterval the window the status checks are spread across. Takes effect on the next start.
+     */
     public void setUpdateInterval(Duration updateInterval) {
         this.updateInterval = updateInterval;
     }
@@ -103,4 +279,85 @@ public class StatusUpdateTrigger extends AbstractEventHandler<InstanceEvent> {
     public void setStatusLifetime(Duration statusLifetime) {
         this.statusLifetime = statusLifetime;
     }
+
+    /**
+     * @param maxConcurrentUpdates the maximum number of scheduled status updates running at the same time. Takes
+     *                             effect on the next start.
+     */
+    public void setMaxConcurrentUpdates(int maxConcurrentUpdates) {
+        Assert.isTrue(maxConcurrentUpdates > 0, "'maxConcurrentUpdates' must be greater than 0");
+        this.maxConcurrentUpdates = maxConcurrentUpdates;
+    }
+
+    /**
+     * @param pollingPolicy the policy adapting the interval between the status updates, {@code null} to always use
+     *                      the status lifetime.
+     */
+    public void setPollingPolicy(@Nullable StatusPollingPolicy pollingPolicy) {
+        this.pollingPolicy = pollingPolicy;
+    }
+
+    /**
+     * @param ownership decides which instances are polled by this trigger. By default all instances are polled.
+     */
+    public void setOwnership(InstanceOwnership ownership) {
+        this.ownership = ownership;
+    }
+
+    /**
+     * @param statusPushReceiver the receiver of the pushed statuses, {@code null} to poll all instances.
+     */
+    public void setStatusPushReceiver(@Nullable StatusPushReceiver statusPushReceiver) {
+        this.statusPushReceiver = statusPushReceiver;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("spring.boot.admin.status.updates.in-flight", this.inFlight, AtomicInteger::get)
+             .description("Number of status updates currently running")
+             .register(registry);
+        Gauge.builder("spring.boot.admin.status.updates.scheduled", this, trigger -> trigger.wheel.size())
+             .description("Number of instances with a scheduled status update")
+             .register(registry);
+        TimeGauge.builder("spring.boot.admin.status.updates.lag",
+            this.lagMillis,
+            TimeUnit.MILLISECONDS,
+            AtomicLong::get
+        ).description("Delay of the last scheduled status update after it was due").register(registry);
+    }
+
+    /**
+     * The status history of an instance as far as needed by the {@link StatusPollingPolicy}.
+     */
+    private static final class PollingState {
+        @Nullable
+        private String application;
+        private Tags tags = Tags.empty();
+        private String status = StatusInfo.STATUS_UNKNOWN;
+        private long changedAtMillis = System.currentTimeMillis();
+        private int checksSinceChange = 0;
+
+        private synchronized void register(Registration registration) {
+            this.application = registration.getName();
+            this.tags = Tags.from(registration.getMetadata(), "tags");
+        }
+
+        private synchronized void statusChanged(String newStatus, long timestampMillis) {
+            this.status = newStatus;
+            this.changedAtMillis = timestampMillis;
+            this.checksSinceChange = 0;
+        }
+
+        private synchronized Duration nextInterval(StatusPollingPolicy policy, Duration statusLifetime, long now) {
+            Duration interval = policy.getInterval(statusLifetime,
+                this.status,
+                Duration.ofMillis(Math.max(0L, now - this.changedAtMillis)),
+                this.checksSinceChange,
+                this.application,
+                this.tags
+            );
+            this.checksSinceChange++;
+            return interval;
+        }
+    }
 }
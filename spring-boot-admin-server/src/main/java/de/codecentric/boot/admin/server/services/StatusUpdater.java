@@ -50,10 +50,18 @@ public class StatusUpdater {
     };
     private final InstanceRepository repository;
     private final InstanceWebClient instanceWebClient;
+    private final EndpointResponseCache responseCache;
 
     public StatusUpdater(InstanceRepository repository, InstanceWebClient instanceWebClient) {
+        this(repository, instanceWebClient, new EndpointResponseCache());
+    }
+
+    public StatusUpdater(InstanceRepository repository,
+                         InstanceWebClient instanceWebClient,
+                         EndpointResponseCache responseCache) {
         this.repository = repository;
         this.instanceWebClient = instanceWebClient;
+        this.responseCache = responseCache;
     }
 
     public Mono<Void> updateStatus(InstanceId id) {
@@ -70,9 +78,14 @@ public class StatusUpdater {
         return instanceWebClient.instance(instance)
                                 .get()
                                 .uri(Endpoint.HEALTH)
+                                .headers(responseCache.conditionalHeaders(instance.getId(), Endpoint.HEALTH))
                                 .exchange()
                                 .log(log.getName(), Level.FINEST)
-                                .flatMap(this::convertStatusInfo)
+                                .flatMap(response -> responseCache.convert(instance.getId(),
+                                    Endpoint.HEALTH,
+                                    response,
+                                    this::convertStatusInfo
+                                ))
                                 .doOnError(ex -> logError(instance, ex))
                                 .onErrorResume(this::handleError)
                                 .map(instance::withStatusInfo);
@@ -0,0 +1,462 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.utils.serialization;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceDeregisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceEndpointsDetectedEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceInfoChangedEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegistrationUpdatedEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceStatusChangedEvent;
+import de.codecentric.boot.admin.server.domain.values.BuildVersion;
+import de.codecentric.boot.admin.server.domain.values.Endpoint;
+import de.codecentric.boot.admin.server.domain.values.Endpoints;
+import de.codecentric.boot.admin.server.domain.values.Info;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import de.codecentric.boot.admin.server.domain.values.Tags;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Compact binary encoding for the domain values and the json-like maps they carry (e.g. the info and the health
+ * details). Strings are written as length-prefixed UTF-8, so the encoding isn't limited to 64k like {@link
+ * DataOutput#writeUTF(String)}.
+ * <p>
+ * The encoding is versioned by {@link #VERSION}: containers of encoded values (e.g. files, table rows or cluster
+ * messages) write it using {@link #writeVersion(DataOutput)} before the values and refuse to read values of other
+ * versions using {@link #readVersion(DataInput)}.
+ */
+public final class BinaryValueCodec {
+    /**
+     * Version of the encoding, to be increased with every incompatible change.
+     */
+    public static final byte VERSION = 1;
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte INTEGER = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte BIG_INTEGER = 6;
+    private static final byte BIG_DECIMAL = 7;
+    private static final byte LIST = 8;
+    private static final byte MAP = 9;
+    private static final byte SERIALIZED = 10;
+
+    private static final byte EVENT_REGISTERED = 1;
+    private static final byte EVENT_REGISTRATION_UPDATED = 2;
+    private static final byte EVENT_STATUS_CHANGED = 3;
+    private static final byte EVENT_ENDPOINTS_DETECTED = 4;
+    private static final byte EVENT_INFO_CHANGED = 5;
+    private static final byte EVENT_DEREGISTERED = 6;
+    private static final byte EVENT_SERIALIZED = 7;
+    private static final OutputStream NULL_OUTPUT = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private BinaryValueCodec() {
+    }
+
+    public static void writeVersion(DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+    }
+
+    /**
+     * Reads the version written by {@link #writeVersion(DataOutput)}.
+     *
+     * @param in input to read from
+     * @throws IOException if the values were written with another version of the encoding
+     */
+    public static void readVersion(DataInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported encoding version " + version);
+        }
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeNullableString(DataOutput out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    @Nullable
+    public static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    public static void writeInstant(DataOutput out, Instant instant) throws IOException {
+        out.writeLong(instant.getEpochSecond());
+        out.writeInt(instant.getNano());
+    }
+
+    public static Instant readInstant(DataInput in) throws IOException {
+        return Instant.ofEpochSecond(in.readLong(), in.readInt());
+    }
+
+    public static void writeInstanceId(DataOutput out, InstanceId id) throws IOException {
+        writeString(out, id.getValue());
+    }
+
+    public static InstanceId readInstanceId(DataInput in) throws IOException {
+        return InstanceId.of(readString(in));
+    }
+
+    public static void writeRegistration(DataOutput out, Registration registration) throws IOException {
+        writeString(out, registration.getName());
+        writeNullableString(out, registration.getManagementUrl());
+        writeString(out, registration.getHealthUrl());
+        writeNullableString(out, registration.getServiceUrl());
+        writeNullableString(out, registration.getSource());
+        writeStringMap(out, registration.getMetadata());
+    }
+
+    public static Registration readRegistration(DataInput in) throws IOException {
+        return Registration.builder()
+                           .name(readString(in))
+                           .managementUrl(readNullableString(in))
+                           .healthUrl(readString(in))
+                           .serviceUrl(readNullableString(in))
+                           .source(readNullableString(in))
+                           .metadata(readStringMap(in))
+                           .build();
+    }
+
+    public static void writeStatusInfo(DataOutput out, StatusInfo statusInfo) throws IOException {
+        writeString(out, statusInfo.getStatus());
+        writeMap(out, statusInfo.getDetails());
+    }
+
+    public static StatusInfo readStatusInfo(DataInput in) throws IOException {
+        return StatusInfo.valueOf(readString(in), readMap(in));
+    }
+
+    public static void writeInfo(DataOutput out, Info info) throws IOException {
+        writeMap(out, info.getValues());
+    }
+
+    public static Info readInfo(DataInput in) throws IOException {
+        return Info.from(readMap(in));
+    }
+
+    public static void writeEndpoints(DataOutput out, Endpoints endpoints) throws IOException {
+        List<Endpoint> list = new ArrayList<>();
+        endpoints.forEach(list::add);
+        out.writeInt(list.size());
+        for (Endpoint endpoint : list) {
+            writeString(out, endpoint.getId());
+            writeString(out, endpoint.getUrl());
+        }
+    }
+
+    public static Endpoints readEndpoints(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<Endpoint> endpoints = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            endpoints.add(Endpoint.of(readString(in), readString(in)));
+        }
+        return Endpoints.of(endpoints);
+    }
+
+    public static void writeTags(DataOutput out, Tags tags) throws IOException {
+        writeStringMap(out, tags.getValues());
+    }
+
+    public static Tags readTags(DataInput in) throws IOException {
+        return Tags.from(readStringMap(in));
+    }
+
+    public static void writeBuildVersion(DataOutput out, @Nullable BuildVersion buildVersion) throws IOException {
+        writeNullableString(out, buildVersion != null ? buildVersion.getValue() : null);
+    }
+
+    @Nullable
+    public static BuildVersion readBuildVersion(DataInput in) throws IOException {
+        String value = readNullableString(in);
+        return value != null ? BuildVersion.valueOf(value) : null;
+    }
+
+    /**
+     * Writes an event. Events of unknown types are written using java serialization.
+     *
+     * @param out   output to write to
+     * @param event event to write
+     * @throws IOException if the event couldn't be written
+     */
+    public static void writeEvent(DataOutput out, InstanceEvent event) throws IOException {
+        if (event instanceof InstanceRegisteredEvent) {
+            writeEventHeader(out, EVENT_REGISTERED, event);
+            writeRegistration(out, ((InstanceRegisteredEvent) event).getRegistration());
+        } else if (event instanceof InstanceRegistrationUpdatedEvent) {
+            writeEventHeader(out, EVENT_REGISTRATION_UPDATED, event);
+            writeRegistration(out, ((InstanceRegistrationUpdatedEvent) event).getRegistration());
+        } else if (event instanceof InstanceStatusChangedEvent) {
+            writeEventHeader(out, EVENT_STATUS_CHANGED, event);
+            writeStatusInfo(out, ((InstanceStatusChangedEvent) event).getStatusInfo());
+        } else if (event instanceof InstanceEndpointsDetectedEvent) {
+            writeEventHeader(out, EVENT_ENDPOINTS_DETECTED, event);
+            writeEndpoints(out, ((InstanceEndpointsDetectedEvent) event).getEndpoints());
+        } else if (event instanceof InstanceInfoChangedEvent) {
+            writeEventHeader(out, EVENT_INFO_CHANGED, event);
+            writeInfo(out, ((InstanceInfoChangedEvent) event).getInfo());
+        } else if (event instanceof InstanceDeregisteredEvent) {
+            writeEventHeader(out, EVENT_DEREGISTERED, event);
+        } else {
+            out.writeByte(EVENT_SERIALIZED);
+            writeSerialized(out, event);
+        }
+    }
+
+    /**
+     * @param event the event
+     * @return the size of the event's encoding in bytes
+     */
+    public static long sizeOf(InstanceEvent event) {
+        DataOutputStream out = new DataOutputStream(NULL_OUTPUT);
+        try {
+            writeEvent(out, event);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Couldn't estimate the size of " + event, ex);
+        }
+        return out.size();
+    }
+
+    public static InstanceEvent readEvent(DataInput in) throws IOException {
+        byte type = in.readByte();
+        if (type == EVENT_SERIALIZED) {
+            return (InstanceEvent) readSerialized(in);
+        }
+        InstanceId instance = readInstanceId(in);
+        long version = in.readLong();
+        Instant timestamp = readInstant(in);
+        switch (type) {
+            case EVENT_REGISTERED:
+                return new InstanceRegisteredEvent(instance, version, timestamp, readRegistration(in));
+            case EVENT_REGISTRATION_UPDATED:
+                return new InstanceRegistrationUpdatedEvent(instance, version, timestamp, readRegistration(in));
+            case EVENT_STATUS_CHANGED:
+                return new InstanceStatusChangedEvent(instance, version, timestamp, readStatusInfo(in));
+            case EVENT_ENDPOINTS_DETECTED:
+                return new InstanceEndpointsDetectedEvent(instance, version, timestamp, readEndpoints(in));
+            case EVENT_INFO_CHANGED:
+                return new InstanceInfoChangedEvent(instance, version, timestamp, readInfo(in));
+            case EVENT_DEREGISTERED:
+                return new InstanceDeregisteredEvent(instance, version, timestamp);
+            default:
+                throw new IOException("Unknown event type " + type);
+        }
+    }
+
+    private static void writeEventHeader(DataOutput out, byte type, InstanceEvent event) throws IOException {
+        out.writeByte(type);
+        writeInstanceId(out, event.getInstance());
+        out.writeLong(event.getVersion());
+        writeInstant(out, event.getTimestamp());
+    }
+
+    public static void writeStringMap(DataOutput out, Map<String, String> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    public static Map<String, String> readStringMap(DataInput in) throws IOException {
+        int size = in.readInt();
+        Map<String, String> map = new LinkedHashMap<>(capacity(size));
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readString(in));
+        }
+        return map;
+    }
+
+    public static void writeMap(DataOutput out, Map<String, ?> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, ?> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    public static Map<String, Object> readMap(DataInput in) throws IOException {
+        int size = in.readInt();
+        Map<String, Object> map = new LinkedHashMap<>(capacity(size));
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readValue(in));
+        }
+        return map;
+    }
+
+    /**
+     * Writes a json-like value. Values of other types (including {@code Short}, {@code Byte} and {@code Float}, so
+     * they are read with their type) are written using java serialization; values which aren't serializable are
+     * refused.
+     *
+     * @param out   output to write to
+     * @param value value to write
+     * @throws IOException if the value couldn't be written, e.g. a {@link NotSerializableException}
+     */
+    @SuppressWarnings("unchecked")
+    public static void writeValue(DataOutput out, @Nullable Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            writeString(out, value.toString());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            writeString(out, value.toString());
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            out.writeByte(LIST);
+            out.writeInt(collection.size());
+            for (Object element : collection) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof Map && isStringKeyed((Map<?, ?>) value)) {
+            out.writeByte(MAP);
+            writeMap(out, (Map<String, ?>) value);
+        } else if (value instanceof Serializable) {
+            out.writeByte(SERIALIZED);
+            writeSerialized(out, value);
+        } else {
+            throw new NotSerializableException(value.getClass().getName());
+        }
+    }
+
+    @Nullable
+    public static Object readValue(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case BOOLEAN:
+                return in.readBoolean();
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case BIG_INTEGER:
+                return new BigInteger(readString(in));
+            case BIG_DECIMAL:
+                return new BigDecimal(readString(in));
+            case LIST:
+                int size = in.readInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            case MAP:
+                return readMap(in);
+            case SERIALIZED:
+                return readSerialized(in);
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    private static void writeSerialized(DataOutput out, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+            objectOut.writeObject(value);
+        }
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+    }
+
+    private static Object readSerialized(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return objectIn.readObject();
+        } catch (ClassNotFoundException ex) {
+            throw new IOException("Couldn't read serialized value", ex);
+        }
+    }
+
+    private static boolean isStringKeyed(Map<?, ?> map) {
+        return map.keySet().stream().allMatch(key -> key instanceof String);
+    }
+
+    private static int capacity(int size) {
+        return size < 3 ? size + 1 : (int) (size / 0.75F + 1.0F);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.utils.serialization;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.values.Endpoints;
+import de.codecentric.boot.admin.server.domain.values.Info;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import de.codecentric.boot.admin.server.domain.values.Tags;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.config.SerializerConfig;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.StreamSerializer;
+
+/**
+ * Hazelcast serializers for the events and domain values using the {@link BinaryValueCodec} instead of java
+ * serialization. Each value is prefixed with the {@link BinaryValueCodec#VERSION}, so the format can evolve.
+ */
+public final class HazelcastSerializers {
+    /**
+     * First type id used by the serializers; the ids must be unique within the cluster's serialization config.
+     */
+    public static final int TYPE_ID_BASE = 0x5342_4100;
+
+    private HazelcastSerializers() {
+    }
+
+    /**
+     * Registers the serializers with the given config, unless there is already a serializer for the type.
+     *
+     * @param config the config to register the serializers with
+     */
+    public static void register(SerializationConfig config) {
+        register(config, InstanceEvent.class, 1, BinaryValueCodec::writeEvent, BinaryValueCodec::readEvent);
+        register(config,
+            Registration.class,
+            2,
+            BinaryValueCodec::writeRegistration,
+            BinaryValueCodec::readRegistration
+        );
+        register(config, StatusInfo.class, 3, BinaryValueCodec::writeStatusInfo, BinaryValueCodec::readStatusInfo);
+        register(config, Info.class, 4, BinaryValueCodec::writeInfo, BinaryValueCodec::readInfo);
+        register(config, Endpoints.class, 5, BinaryValueCodec::writeEndpoints, BinaryValueCodec::readEndpoints);
+        register(config, Tags.class, 6, BinaryValueCodec::writeTags, BinaryValueCodec::readTags);
+        register(config, InstanceId.class, 7, BinaryValueCodec::writeInstanceId, BinaryValueCodec::readInstanceId);
+    }
+
+    private static <T> void register(SerializationConfig config,
+                                     Class<T> type,
+                                     int typeIdOffset,
+                                     Writer<T> writer,
+                                     Reader<T> reader) {
+        boolean registered = config.getSerializerConfigs()
+                                   .stream()
+                                   .anyMatch(serializerConfig -> type.equals(serializerConfig.getTypeClass()) ||
+                                                                 type.getName()
+                                                                     .equals(serializerConfig.getTypeClassName()));
+        if (!registered) {
+            config.addSerializerConfig(new SerializerConfig().setTypeClass(type)
+                                                             .setImplementation(new CodecSerializer<>(
+                                                                 TYPE_ID_BASE + typeIdOffset,
+                                                                 writer,
+                                                                 reader
+                                                             )));
+        }
+    }
+
+    @FunctionalInterface
+    interface Writer<T> {
+        void write(DataOutput out, T value) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface Reader<T> {
+        T read(DataInput in) throws IOException;
+    }
+
+    static final class CodecSerializer<T> implements StreamSerializer<T> {
+        private final int typeId;
+        private final Writer<T> writer;
+        private final Reader<T> reader;
+
+        private CodecSerializer(int typeId, Writer<T> writer, Reader<T> reader) {
+            this.typeId = typeId;
+            this.writer = writer;
+            this.reader = reader;
+        }
+
+        @Override
+        public void write(ObjectDataOutput out, T value) throws IOException {
+            BinaryValueCodec.writeVersion(out);
+            this.writer.write(out, value);
+        }
+
+        @Override
+        public T read(ObjectDataInput in) throws IOException {
+            BinaryValueCodec.readVersion(in);
+            return this.reader.read(in);
+        }
+
+        @Override
+        public int getTypeId() {
+            return this.typeId;
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package de.codecentric.boot.admin.server.web;
 
+import de.codecentric.boot.admin.server.domain.entities.ApplicationProjection;
 import de.codecentric.boot.admin.server.domain.entities.Instance;
 import de.codecentric.boot.admin.server.domain.values.BuildVersion;
 import de.codecentric.boot.admin.server.domain.values.StatusInfo;
@@ -41,6 +42,7 @@ import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 import static de.codecentric.boot.admin.server.domain.values.StatusInfo.STATUS_UNKNOWN;
@@ -60,37 +62,67 @@ public class ApplicationsController {
                                                                   .map(tick -> PING);
     private final InstanceRegistry registry;
     private final InstanceEventPublisher eventPublisher;
+    @Nullable
+    private final ApplicationProjection projection;
 
     public ApplicationsController(InstanceRegistry registry, InstanceEventPublisher eventPublisher) {
+        this(registry, eventPublisher, null);
+    }
+
+    /**
+     * @param projection the application read model. If {@code null} the applications are built from the
+     *                   instances on each request.
+     */
+    public ApplicationsController(InstanceRegistry registry,
+                                  InstanceEventPublisher eventPublisher,
+                                  @Nullable ApplicationProjection projection) {
         this.registry = registry;
         this.eventPublisher = eventPublisher;
+        this.projection = projection;
     }
 
     @GetMapping(path = "/applications", produces = MediaType.APPLICATION_JSON_VALUE)
     public Flux<Application> applications() {
-        return registry.getInstances()
-                       .filter(Instance::isRegistered)
-                       .groupBy(instance -> instance.getRegistration().getName())
-                       .flatMap(grouped -> toApplication(grouped.key(), grouped));
+        ApplicationProjection projection = this.projection;
+        if (projection != null) {
+            return Flux.defer(() -> Flux.fromIterable(projection.getAll())).map(this::toApplication);
+        }
+        return this.toApplications(registry.getInstances());
     }
 
+    /**
+     * Lists the applications as they were at the given time, e.g. to review the state during an incident.
+     *
+     * @param at the point in time
+     * @return the applications
+     */
+    @GetMapping(path = "/applications", produces = MediaType.APPLICATION_JSON_VALUE, params = "at")
+    public Flux<Application> applications(@RequestParam("at") Instant at) {
+        return this.toApplications(InstancesController.getInstancesAt(registry, at));
+    }
 
     @GetMapping(path = "/applications/{name}", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<Application>> application(@PathVariable("name") String name) {
-        return this.toApplication(name, registry.getInstances(name).filter(Instance::isRegistered))
-                   .filter(a -> !a.getInstances().isEmpty())
-                   .map(ResponseEntity::ok)
-                   .defaultIfEmpty(ResponseEntity.notFound().build());
+        ApplicationProjection projection = this.projection;
+        Mono<Application> application = projection != null ?
+            Mono.fromSupplier(() -> projection.get(name)).map(this::toApplication) :
+            this.toApplication(name, registry.getInstances(name).filter(Instance::isRegistered));
+        return application.filter(a -> !a.getInstances().isEmpty())
+                          .map(ResponseEntity::ok)
+                          .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
     @GetMapping(path = "/applications", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<ServerSentEvent<Application>> applicationsStream() {
-        return Flux.from(eventPublisher)
-                   .flatMap(event -> registry.getInstance(event.getInstance()))
-                   .map(this::getApplicationForInstance)
-                   .flatMap(group -> toApplication(group.getT1(), group.getT2()))
-                   .map(application -> ServerSentEvent.builder(application).build())
-                   .mergeWith(ping());
+        ApplicationProjection projection = this.projection;
+        Flux<Application> applications = projection != null ?
+            projection.getChanges().map(name -> this.getApplication(projection, name)) :
+            Flux.from(eventPublisher)
+                .flatMap(event -> registry.getInstance(event.getInstance()))
+                .map(this::getApplicationForInstance)
+                .flatMap(group -> toApplication(group.getT1(), group.getT2()));
+        return applications.map(application -> ServerSentEvent.builder(application).build())
+                           .mergeWith(ping());
     }
 
     @DeleteMapping(path = "/applications/{name}")
@@ -104,6 +136,39 @@ public class ApplicationsController {
                                                                                                              .build());
     }
 
+    /**
+     * Reads the application from the projection. For an application without registered instances an empty
+     * application is returned, so clients can remove it.
+     */
+    private Application getApplication(ApplicationProjection projection, String name) {
+        ApplicationProjection.Application application = projection.get(name);
+        if (application == null) {
+            Application empty = new Application(name);
+            empty.setStatusTimestamp(Instant.EPOCH);
+            return empty;
+        }
+        return this.toApplication(application);
+    }
+
+    private Application toApplication(ApplicationProjection.Application application) {
+        Application group = new Application(application.getName());
+        group.setInstances(application.getInstances());
+        BuildVersion min = application.getMinBuildVersion();
+        BuildVersion max = application.getMaxBuildVersion();
+        if (min != null && max != null) {
+            group.setBuildVersion(min.equals(max) ? min : BuildVersion.valueOf(min + " ... " + max));
+        }
+        group.setStatus(application.getStatus());
+        group.setStatusTimestamp(application.getStatusTimestamp());
+        return group;
+    }
+
+    private Flux<Application> toApplications(Flux<Instance> instances) {
+        return instances.filter(Instance::isRegistered)
+                        .groupBy(instance -> instance.getRegistration().getName())
+                        .flatMap(grouped -> toApplication(grouped.key(), grouped));
+    }
+
     protected Tuple2<String, Flux<Instance>> getApplicationForInstance(Instance instance) {
         String name = instance.getRegistration().getName();
         return Tuples.of(name, registry.getInstances(name).filter(Instance::isRegistered));
@@ -139,7 +204,6 @@ public class ApplicationsController {
     }
 
     protected Tuple2<String, Instant> getStatus(List<Instance> instances) {
-        //TODO: Correct is just a second readmodel for groups
         Map<String, Instant> statusWithTime = instances.stream()
                                                        .collect(toMap(instance -> instance.getStatusInfo().getStatus(),
                                                            Instance::getStatusTimestamp,
@@ -16,21 +16,29 @@
 
 package de.codecentric.boot.admin.server.web;
 
+import de.codecentric.boot.admin.server.domain.entities.HistoryNotRetainedException;
 import de.codecentric.boot.admin.server.domain.entities.Instance;
 import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
 import de.codecentric.boot.admin.server.domain.values.InstanceId;
 import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
 import de.codecentric.boot.admin.server.eventstore.InstanceEventStore;
+import de.codecentric.boot.admin.server.eventstore.SequencedInstanceEvent;
 import de.codecentric.boot.admin.server.services.InstanceRegistry;
+import de.codecentric.boot.admin.server.services.StatusPushReceiver;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.Map;
+import java.util.function.Function;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
@@ -41,6 +49,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.UriComponentsBuilder;
 
 /**
@@ -53,12 +62,24 @@ public class InstancesController {
     private static final ServerSentEvent<?> PING = ServerSentEvent.builder().comment("ping").build();
     private static final Flux<ServerSentEvent<?>> PING_FLUX = Flux.interval(Duration.ZERO, Duration.ofSeconds(10L))
                                                                   .map(tick -> PING);
+    private static final int DEFAULT_PAGE_SIZE = 1_000;
+    private static final int MAX_PAGE_SIZE = 10_000;
+    private static final int BATCH_SIZE = 500;
     private final InstanceRegistry registry;
     private final InstanceEventStore eventStore;
+    @Nullable
+    private final StatusPushReceiver statusPushReceiver;
 
     public InstancesController(InstanceRegistry registry, InstanceEventStore eventStore) {
+        this(registry, eventStore, null);
+    }
+
+    public InstancesController(InstanceRegistry registry,
+                               InstanceEventStore eventStore,
+                               @Nullable StatusPushReceiver statusPushReceiver) {
         this.registry = registry;
         this.eventStore = eventStore;
+        this.statusPushReceiver = statusPushReceiver;
     }
 
     /**
@@ -85,7 +106,7 @@ public class InstancesController {
      * @param name the name to search for
      * @return application list
      */
-    @GetMapping(path = "/instances", produces = MediaType.APPLICATION_JSON_VALUE, params = "name")
+    @GetMapping(path = "/instances", produces = MediaType.APPLICATION_JSON_VALUE, params = {"name", "!at"})
     public Flux<Instance> instances(@RequestParam("name") String name) {
         return registry.getInstances(name).filter(Instance::isRegistered);
     }
@@ -101,6 +122,38 @@ public class InstancesController {
         return registry.getInstances().filter(Instance::isRegistered);
     }
 
+    /**
+     * List all instances registered at the given time, e.g. to review the state during an incident.
+     *
+     * @param at   the point in time
+     * @param name the name to search for
+     * @return application list
+     */
+    @GetMapping(path = "/instances", produces = MediaType.APPLICATION_JSON_VALUE, params = "at")
+    public Flux<Instance> instances(@RequestParam("at") Instant at,
+                                    @RequestParam(name = "name", required = false) @Nullable String name) {
+        LOGGER.debug("Deliver all instances registered at {}", at);
+        return getInstancesAt(registry, at).filter(Instance::isRegistered)
+                                           .filter(instance -> name == null ||
+                                                               name.equals(instance.getRegistration().getName()));
+    }
+
+    /**
+     * @return the instances as they were at the given time; a 501 if the history isn't enabled, a 404 if the
+     * time isn't retained anymore.
+     */
+    static Flux<Instance> getInstancesAt(InstanceRegistry registry, Instant at) {
+        if (!registry.isHistorySupported()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED,
+                "Querying past states requires the snapshot history to be enabled"
+            ));
+        }
+        return registry.getInstances(at)
+                       .onErrorMap(HistoryNotRetainedException.class,
+                           ex -> new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage(), ex)
+                       );
+    }
+
     /**
      * Get a single instance.
      *
@@ -130,11 +183,92 @@ public class InstancesController {
                        .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
-    @GetMapping(path = "/instances/events", produces = MediaType.APPLICATION_JSON_VALUE)
+    /**
+     * Receive the status pushed by an instance. While the instance keeps pushing within its heartbeat interval, its
+     * status isn't polled.
+     *
+     * @param id   The instance id.
+     * @param push the pushed status
+     * @return response indicating the success
+     */
+    @PostMapping(path = "/instances/{id}/status", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Void>> pushStatus(@PathVariable String id, @RequestBody StatusPush push) {
+        if (statusPushReceiver == null) {
+            return Mono.just(ResponseEntity.notFound().build());
+        }
+        if (push.getStatus() == null || push.getHeartbeatInterval() == null ||
+            push.getHeartbeatInterval().isNegative() || push.getHeartbeatInterval().isZero()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        LOGGER.debug("Receive status {} for instance with ID '{}'", push.getStatus(), id);
+        StatusInfo statusInfo = StatusInfo.valueOf(push.getStatus(), push.getDetails());
+        return statusPushReceiver.receive(InstanceId.of(id), statusInfo, push.getHeartbeatInterval())
+                                 .map(instance -> ResponseEntity.noContent().<Void>build())
+                                 .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Get the complete journal.
+     *
+     * @return the events
+     */
+    @GetMapping(path = "/instances/events", produces = MediaType.APPLICATION_JSON_VALUE,
+        params = {"!after", "!limit", "!from", "!to", "!instance"})
     public Flux<InstanceEvent> events() {
         return eventStore.findAll();
     }
 
+    /**
+     * Get the events in pages ordered by their sequence; to get the next page pass the sequence of the last event as
+     * {@code after}. When filtering by {@code instance} the instance's event version is used as sequence.
+     *
+     * @param after    sequence of the last event already received
+     * @param limit    maximum number of events to return, must be positive
+     * @param from     only return events with a timestamp at or after
+     * @param to       only return events with a timestamp at or before
+     * @param instance only return events for the instance with this id
+     * @return the events
+     */
+    @GetMapping(path = "/instances/events", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<SequencedInstanceEvent> events(
+        @RequestParam(name = "after", required = false) @Nullable Long after,
+        @RequestParam(name = "limit", required = false) @Nullable Integer limit,
+        @RequestParam(name = "from", required = false) @Nullable Instant from,
+        @RequestParam(name = "to", required = false) @Nullable Instant to,
+        @RequestParam(name = "instance", required = false) @Nullable String instance) {
+        if (limit != null && limit <= 0) {
+            return Flux.error(invalidLimit(limit));
+        }
+        int pageSize = limit != null ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        return findEvents(after, from, to, instance).take(pageSize);
+    }
+
+    /**
+     * Streams the events as newline delimited json, e.g. for exporting the journal. The events are read in batches
+     * as the client consumes them, so the stream needs constant memory regardless of its length. When filtering by
+     * {@code instance} the instance's event version is used as sequence.
+     *
+     * @param after    sequence of the last event already received
+     * @param limit    maximum number of events to return, must be positive
+     * @param from     only return events with a timestamp at or after
+     * @param to       only return events with a timestamp at or before
+     * @param instance only return events for the instance with this id
+     * @return the events
+     */
+    @GetMapping(path = "/instances/events", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public Flux<SequencedInstanceEvent> exportEvents(
+        @RequestParam(name = "after", required = false) @Nullable Long after,
+        @RequestParam(name = "limit", required = false) @Nullable Integer limit,
+        @RequestParam(name = "from", required = false) @Nullable Instant from,
+        @RequestParam(name = "to", required = false) @Nullable Instant to,
+        @RequestParam(name = "instance", required = false) @Nullable String instance) {
+        if (limit != null && limit <= 0) {
+            return Flux.error(invalidLimit(limit));
+        }
+        Flux<SequencedInstanceEvent> events = findEvents(after, from, to, instance);
+        return limit != null ? events.take(limit) : events;
+    }
+
     @GetMapping(path = "/instances/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<ServerSentEvent<InstanceEvent>> eventStream() {
         return Flux.from(eventStore).map(event -> ServerSentEvent.builder(event).build()).mergeWith(ping());
@@ -149,6 +283,35 @@ public class InstancesController {
                    .mergeWith(ping());
     }
 
+    private Flux<SequencedInstanceEvent> findEvents(@Nullable Long after,
+                                                    @Nullable Instant from,
+                                                    @Nullable Instant to,
+                                                    @Nullable String instance) {
+        Flux<SequencedInstanceEvent> events;
+        if (instance != null) {
+            events = eventStore.find(InstanceId.of(instance))
+                               .map(event -> new SequencedInstanceEvent(event.getVersion(), event))
+                               .filter(event -> after == null || event.getSequence() > after);
+        } else {
+            events = eventStore.findSince(after != null ? after : -1L, BATCH_SIZE)
+                               .collectList()
+                               .expand(batch -> batch.size() < BATCH_SIZE ? Mono.empty() : eventStore.findSince(
+                                   batch.get(batch.size() - 1).getSequence(),
+                                   BATCH_SIZE
+                               ).collectList())
+                               .flatMapIterable(Function.identity())
+                               .onErrorMap(UnsupportedOperationException.class,
+                                   ex -> new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, ex.getMessage(), ex)
+                               );
+        }
+        return events.filter(event -> from == null || !event.getEvent().getTimestamp().isBefore(from))
+                     .filter(event -> to == null || !event.getEvent().getTimestamp().isAfter(to));
+    }
+
+    private static ResponseStatusException invalidLimit(int limit) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive but was " + limit);
+    }
+
     @SuppressWarnings("unchecked")
     private static <T> Flux<ServerSentEvent<T>> ping() {
         return (Flux<ServerSentEvent<T>>) (Flux) PING_FLUX;
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.web;
+
+import java.time.Duration;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Status pushed by an instance, e.g. by the spring-boot-admin-client.
+ */
+@lombok.Data
+public class StatusPush {
+    /**
+     * The status code, e.g. {@code UP}.
+     */
+    @Nullable
+    private String status;
+
+    @Nullable
+    private Map<String, Object> details;
+
+    /**
+     * The interval the instance pushes its status in, even if it is unchanged.
+     */
+    @Nullable
+    private Duration heartbeatInterval;
+}
@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS sba_instance_event (
+    event_sequence  BIGINT AUTO_INCREMENT PRIMARY KEY,
+    instance_id     VARCHAR(255) NOT NULL,
+    event_version   BIGINT       NOT NULL,
+    event_type      VARCHAR(64)  NOT NULL,
+    event_timestamp BIGINT       NOT NULL,
+    payload         BLOB         NOT NULL,
+    CONSTRAINT sba_instance_event_version_uk UNIQUE (instance_id, event_version)
+);
+
+CREATE INDEX IF NOT EXISTS sba_instance_event_type_idx ON sba_instance_event (event_type, event_timestamp);
@@ -18,19 +18,28 @@ package de.codecentric.boot.admin.server.config;
 
 import de.codecentric.boot.admin.server.domain.entities.InstanceRepository;
 import de.codecentric.boot.admin.server.domain.entities.SnapshottingInstanceRepository;
+import de.codecentric.boot.admin.server.eventstore.BatchingInstanceEventStore;
 import de.codecentric.boot.admin.server.eventstore.ConcurrentMapEventStore;
+import de.codecentric.boot.admin.server.eventstore.FileEventStore;
 import de.codecentric.boot.admin.server.eventstore.HazelcastEventStore;
 import de.codecentric.boot.admin.server.eventstore.InstanceEventStore;
+import de.codecentric.boot.admin.server.eventstore.JdbcEventStore;
 import de.codecentric.boot.admin.server.notify.MailNotifier;
+import de.codecentric.boot.admin.server.services.HazelcastInstanceOwnership;
+import de.codecentric.boot.admin.server.services.InstanceOwnership;
+import de.codecentric.boot.admin.server.services.StatusPushReceiver;
 
 import org.junit.Test;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.autoconfigure.hazelcast.HazelcastAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.autoconfigure.web.client.RestTemplateAutoConfiguration;
 import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
 import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
 import org.springframework.context.annotation.Bean;
 import com.hazelcast.config.Config;
+import com.hazelcast.core.DistributedObject;
+import com.hazelcast.core.HazelcastInstance;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -50,14 +59,62 @@ public class AdminServerAutoConfigurationTest {
             assertThat(context).getBean(InstanceRepository.class).isInstanceOf(SnapshottingInstanceRepository.class);
             assertThat(context).doesNotHaveBean(MailNotifier.class);
             assertThat(context).getBean(InstanceEventStore.class).isInstanceOf(ConcurrentMapEventStore.class);
+            assertThat(context).doesNotHaveBean(StatusPushReceiver.class);
         });
     }
 
     @Test
-    public void hazelcastConfig() {
+    public void statusPushConfig() {
+        contextRunner.withPropertyValues("spring.boot.admin.monitor.status-push.enabled=true")
+                     .run(context -> assertThat(context).hasSingleBean(StatusPushReceiver.class));
+    }
+
+    @Test
+    public void hazelcastStatusPushConfig() {
         contextRunner.withUserConfiguration(TestHazelcastConfig.class)
+                     .withPropertyValues("spring.boot.admin.monitor.status-push.enabled=true")
+                     .run(context -> {
+                         assertThat(context).hasSingleBean(StatusPushReceiver.class);
+                         HazelcastInstance hazelcast = context.getBean(HazelcastInstance.class);
+                         assertThat(hazelcast.getDistributedObjects()).extracting(DistributedObject::getName)
+                                                                      .contains("spring-boot-admin-status-push-leases");
+                     });
+    }
+
+    @Test
+    public void hazelcastConfig() {
+        contextRunner.withUserConfiguration(TestHazelcastConfig.class).run(context -> {
+            assertThat(context).getBean(InstanceEventStore.class).isInstanceOf(HazelcastEventStore.class);
+            assertThat(context).getBean(InstanceOwnership.class).isInstanceOf(HazelcastInstanceOwnership.class);
+        });
+    }
+
+    @Test
+    public void fileEventStoreConfig() {
+        contextRunner.withPropertyValues("spring.boot.admin.event-store.file.enabled=true",
+            "spring.boot.admin.event-store.file.directory=target/test-events-" + System.nanoTime()
+        ).run(context -> assertThat(context).getBean(InstanceEventStore.class).isInstanceOf(FileEventStore.class));
+    }
+
+    @Test
+    public void batchingEventStoreConfig() {
+        contextRunner.withPropertyValues("spring.boot.admin.event-store.batching.enabled=true").run(context -> {
+            assertThat(context).hasSingleBean(BatchingInstanceEventStore.class);
+            assertThat(context.getBean(InstanceEventStore.class)).isInstanceOf(ConcurrentMapEventStore.class);
+        });
+    }
+
+    @Test
+    public void jdbcEventStoreConfig() {
+        contextRunner.withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class,
+            AdminServerJdbcAutoConfiguration.class
+        ))
+                     .withUserConfiguration(TestHazelcastConfig.class)
+                     .withPropertyValues("spring.boot.admin.event-store.jdbc.enabled=true",
+                         "spring.datasource.generate-unique-name=true"
+                     )
                      .run(context -> assertThat(context).getBean(InstanceEventStore.class)
-                                                        .isInstanceOf(HazelcastEventStore.class));
+                                                        .isInstanceOf(JdbcEventStore.class));
     }
 
     static class TestHazelcastConfig {
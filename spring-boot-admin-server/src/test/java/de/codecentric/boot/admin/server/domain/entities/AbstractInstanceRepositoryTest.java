@@ -19,6 +19,7 @@ package de.codecentric.boot.admin.server.domain.entities;
 import de.codecentric.boot.admin.server.domain.values.Endpoints;
 import de.codecentric.boot.admin.server.domain.values.InstanceId;
 import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
 import junit.framework.AssertionFailedError;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -100,6 +101,54 @@ public abstract class AbstractInstanceRepositoryTest<T extends InstanceRepositor
                     .verifyComplete();
     }
 
+    @Test
+    public void find_by_secondary_keys() {
+        //given
+        Instance instance1 = Instance.create(InstanceId.of("foo.1"))
+                                     .register(Registration.create("foo", "http://health")
+                                                           .source("discovery")
+                                                           .metadata("tags.env", "prod")
+                                                           .build())
+                                     .withStatusInfo(StatusInfo.ofUp());
+        Instance instance2 = Instance.create(InstanceId.of("foo.2"))
+                                     .register(Registration.create("foo", "http://health")
+                                                           .metadata("tags.env", "test")
+                                                           .build())
+                                     .withStatusInfo(StatusInfo.ofDown());
+
+        StepVerifier.create(repository.save(instance1)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(repository.save(instance2)).expectNextCount(1).verifyComplete();
+
+        //when/then
+        StepVerifier.create(repository.findByStatus("UP").map(Instance::getId))
+                    .expectNext(instance1.getId())
+                    .verifyComplete();
+        StepVerifier.create(repository.findByTag("env", "test").map(Instance::getId))
+                    .expectNext(instance2.getId())
+                    .verifyComplete();
+        StepVerifier.create(repository.findBySource("discovery").map(Instance::getId))
+                    .expectNext(instance1.getId())
+                    .verifyComplete();
+
+        //when the status changes and an instance is deregistered
+        StepVerifier.create(repository.save(instance1.clearUnsavedEvents().withStatusInfo(StatusInfo.ofDown())))
+                    .expectNextCount(1)
+                    .verifyComplete();
+        StepVerifier.create(repository.save(instance2.clearUnsavedEvents().deregister()))
+                    .expectNextCount(1)
+                    .verifyComplete();
+
+        //then
+        StepVerifier.create(repository.findByStatus("UP")).verifyComplete();
+        StepVerifier.create(repository.findByStatus("DOWN").map(Instance::getId))
+                    .expectNext(instance1.getId())
+                    .verifyComplete();
+        StepVerifier.create(repository.findByTag("env", "test")).verifyComplete();
+        StepVerifier.create(repository.findByName("foo").map(Instance::getId))
+                    .expectNext(instance1.getId())
+                    .verifyComplete();
+    }
+
     @Test
     public void should_retry_computeIfPresent() {
         AtomicLong counter = new AtomicLong(3L);
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.domain.entities;
+
+import de.codecentric.boot.admin.server.domain.values.BuildVersion;
+import de.codecentric.boot.admin.server.domain.values.Endpoints;
+import de.codecentric.boot.admin.server.domain.values.Info;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class ApplicationProjectionTest {
+    private final ApplicationProjection projection = new ApplicationProjection();
+
+    @Test
+    public void should_aggregate_status_and_build_versions() {
+        Instance first = instance("1", "foo", StatusInfo.ofUp(), 10L, "1.0.0");
+        Instance second = instance("2", "foo", StatusInfo.ofUp(), 20L, "1.1.0");
+        this.update(first.getId(), null, first);
+        this.update(second.getId(), null, second);
+
+        ApplicationProjection.Application application = this.projection.get("foo");
+        assertThat(application.getStatus()).isEqualTo(StatusInfo.STATUS_UP);
+        assertThat(application.getStatusTimestamp()).isEqualTo(Instant.ofEpochSecond(20L));
+        assertThat(application.getMinBuildVersion()).isEqualTo(BuildVersion.valueOf("1.0.0"));
+        assertThat(application.getMaxBuildVersion()).isEqualTo(BuildVersion.valueOf("1.1.0"));
+        assertThat(application.getStatusCounts()).containsOnly(entry(StatusInfo.STATUS_UP, 2));
+        assertThat(application.getInstances()).containsExactly(first, second);
+
+        //a down instance restricts the application, the latest of both timestamps is used
+        Instance secondDown = instance("2", "foo", StatusInfo.ofDown(), 30L, "1.1.0");
+        this.update(second.getId(), second, secondDown);
+        application = this.projection.get("foo");
+        assertThat(application.getStatus()).isEqualTo(StatusInfo.STATUS_RESTRICTED);
+        assertThat(application.getStatusTimestamp()).isEqualTo(Instant.ofEpochSecond(30L));
+        assertThat(application.getStatusCounts()).containsOnly(entry(StatusInfo.STATUS_UP, 1),
+            entry(StatusInfo.STATUS_DOWN, 1)
+        );
+
+        //without up instances the most severe status wins
+        Instance firstOffline = instance("1", "foo", StatusInfo.ofOffline(), 40L, "1.0.0");
+        this.update(first.getId(), first, firstOffline);
+        application = this.projection.get("foo");
+        assertThat(application.getStatus()).isEqualTo(StatusInfo.STATUS_DOWN);
+        assertThat(application.getStatusTimestamp()).isEqualTo(Instant.ofEpochSecond(30L));
+
+        Instance firstDeregistered = firstOffline.deregister();
+        this.update(first.getId(), firstOffline, firstDeregistered);
+        application = this.projection.get("foo");
+        assertThat(application.getInstances()).containsExactly(secondDown);
+        assertThat(application.getMinBuildVersion()).isEqualTo(BuildVersion.valueOf("1.1.0"));
+        assertThat(application.getStatusCounts()).containsOnly(entry(StatusInfo.STATUS_DOWN, 1));
+    }
+
+    @Test
+    public void should_move_instances_between_applications() {
+        Instance foo = instance("1", "foo", StatusInfo.ofUp(), 10L, null);
+        Instance bar = instance("1", "bar", StatusInfo.ofUp(), 20L, null);
+        this.update(foo.getId(), null, foo);
+        assertThat(this.projection.getAll()).extracting(ApplicationProjection.Application::getName)
+                                            .containsExactly("foo");
+
+        this.update(foo.getId(), foo, bar);
+        assertThat(this.projection.get("foo")).isNull();
+        assertThat(this.projection.get("bar").getInstances()).containsExactly(bar);
+        assertThat(this.projection.get("bar").getMinBuildVersion()).isNull();
+
+        this.update(bar.getId(), bar, null);
+        assertThat(this.projection.getAll()).isEmpty();
+    }
+
+    @Test
+    public void should_not_emit_changes_before_they_are_published() {
+        Instance foo = instance("1", "foo", StatusInfo.ofUp(), 10L, null);
+        List<String> changed = new ArrayList<>();
+
+        StepVerifier.create(this.projection.getChanges())
+                    .then(() -> this.projection.update(foo.getId(), null, foo, changed))
+                    .expectNoEvent(Duration.ofMillis(50L))
+                    .then(() -> this.projection.publish(changed))
+                    .expectNext("foo")
+                    .thenCancel()
+                    .verify();
+    }
+
+    @Test
+    public void should_emit_changed_applications_after_the_update() {
+        Instance foo = instance("1", "foo", StatusInfo.ofUp(), 10L, null);
+        Instance bar = instance("1", "bar", StatusInfo.ofUp(), 20L, null);
+
+        StepVerifier.create(this.projection.getChanges().map(name -> this.projection.get(name) != null ? name : "-"))
+                    .then(() -> this.update(foo.getId(), null, foo))
+                    .expectNext("foo")
+                    .then(() -> this.update(foo.getId(), foo, bar))
+                    .expectNext("-", "bar")
+                    .then(() -> this.update(bar.getId(), bar, null))
+                    .expectNext("-")
+                    .thenCancel()
+                    .verify();
+    }
+
+    private void update(InstanceId id, @Nullable Instance previous, @Nullable Instance current) {
+        List<String> changed = new ArrayList<>();
+        this.projection.update(id, previous, current, changed);
+        this.projection.publish(changed);
+    }
+
+    private static Instance instance(String id,
+                                     String name,
+                                     StatusInfo statusInfo,
+                                     long statusTimestamp,
+                                     @Nullable String version) {
+        Registration.Builder registration = Registration.create(name, "http://health");
+        if (version != null) {
+            registration.metadata("version", version);
+        }
+        return Instance.restore(InstanceId.of(id),
+            1L,
+            registration.build(),
+            true,
+            statusInfo,
+            Instant.ofEpochSecond(statusTimestamp),
+            Info.empty(),
+            Endpoints.empty()
+        );
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2014-2018 the original author or authors.
+ * Copyright 2014-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,11 +16,83 @@
 
 package de.codecentric.boot.admin.server.domain.entities;
 
+import de.codecentric.boot.admin.server.domain.events.InstanceEndpointsDetectedEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceStatusChangedEvent;
+import de.codecentric.boot.admin.server.domain.values.Endpoints;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
 import de.codecentric.boot.admin.server.eventstore.InMemoryEventStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
 
 public class EventsourcingInstanceRepositoryTest extends AbstractInstanceRepositoryTest<EventsourcingInstanceRepository> {
 
     public EventsourcingInstanceRepositoryTest() {
         super(new EventsourcingInstanceRepository(new InMemoryEventStore()));
     }
+
+    @Test
+    public void should_serialize_concurrent_computes() {
+        //given
+        EventsourcingInstanceRepository serialized = new EventsourcingInstanceRepository(new InMemoryEventStore());
+        serialized.setCommandTimeout(Duration.ofSeconds(5L));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        serialized.bindTo(registry);
+        Instance instance = Instance.create(InstanceId.of("foo"))
+                                    .register(Registration.create("foo", "http://health").build());
+        StepVerifier.create(serialized.save(instance)).expectNextCount(1).verifyComplete();
+
+        //when two slow updates for the same instance run concurrently
+        Mono<Instance> up = serialized.computeIfPresent(instance.getId(),
+            (key, current) -> Mono.delay(Duration.ofMillis(100L)).map(i -> current.withStatusInfo(StatusInfo.ofUp()))
+        );
+        Mono<Instance> down = serialized.computeIfPresent(instance.getId(),
+            (key, current) -> Mono.delay(Duration.ofMillis(100L)).map(i -> current.withStatusInfo(StatusInfo.ofDown()))
+        );
+        StepVerifier.create(Mono.when(up, down)).expectComplete().verify(Duration.ofSeconds(5L));
+
+        //then the second update ran on the result of the first one without a conflict
+        StepVerifier.create(serialized.find(instance.getId()))
+                    .assertNext(loaded -> {
+                        assertThat(loaded.getStatusInfo()).isEqualTo(StatusInfo.ofDown());
+                        assertThat(loaded.getVersion()).isEqualTo(2L);
+                    })
+                    .verifyComplete();
+        assertThat(registry.get("spring.boot.admin.instances.compute.retries").functionCounter().count()).isEqualTo(0.0);
+        assertThat(registry.get("spring.boot.admin.instances.compute.serialized").functionCounter().count()).isEqualTo(
+            1.0);
+    }
+
+    @Test
+    public void should_refuse_past_states_of_compacted_logs() {
+        InMemoryEventStore eventStore = new InMemoryEventStore(3);
+        EventsourcingInstanceRepository repository = new EventsourcingInstanceRepository(eventStore);
+        InstanceId id = InstanceId.of("foo");
+        Instant start = Instant.parse("2019-01-01T12:00:00Z");
+        StepVerifier.create(eventStore.append(asList(new InstanceRegisteredEvent(id, 0L, start,
+                Registration.create("foo", "http://health").build()
+            ),
+            new InstanceEndpointsDetectedEvent(id, 1L, start.plusSeconds(1L), Endpoints.empty()),
+            new InstanceStatusChangedEvent(id, 2L, start.plusSeconds(2L), StatusInfo.ofUp()),
+            new InstanceStatusChangedEvent(id, 3L, start.plusSeconds(3L), StatusInfo.ofDown())
+        ))).verifyComplete();
+
+        //the first status change has been compacted, so the states after the endpoints detection are unknown
+        StepVerifier.create(repository.findAll(start))
+                    .assertNext(instance -> assertThat(instance.getVersion()).isEqualTo(0L))
+                    .verifyComplete();
+        StepVerifier.create(repository.findAll(start.plusSeconds(1L)))
+                    .verifyError(HistoryNotRetainedException.class);
+        StepVerifier.create(repository.findAll(start.minusSeconds(1L))).verifyComplete();
+    }
 }
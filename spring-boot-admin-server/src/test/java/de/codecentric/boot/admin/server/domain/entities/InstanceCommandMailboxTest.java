@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.domain.entities;
+
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InstanceCommandMailboxTest {
+    private final InstanceCommandMailbox mailbox = new InstanceCommandMailbox(Duration.ofMillis(200L));
+    private final InstanceId foo = InstanceId.of("foo");
+    private final InstanceId bar = InstanceId.of("bar");
+
+    @Test
+    public void should_not_hold_up_other_instances() {
+        //given a command for foo which never completes
+        Mono<String> stuck = this.mailbox.submit(this.foo, Mono.never());
+        StepVerifier.create(stuck).expectSubscription().then(() -> {
+            //then the commands for bar still run right away
+            StepVerifier.create(this.mailbox.submit(this.bar, Mono.just("bar")))
+                        .expectNext("bar")
+                        .expectComplete()
+                        .verify(Duration.ofMillis(100L));
+        }).expectError(TimeoutException.class).verify(Duration.ofSeconds(5L));
+    }
+
+    @Test
+    public void should_run_the_next_command_after_a_timeout() {
+        Mono<String> stuck = this.mailbox.submit(this.foo, Mono.never());
+        Mono<String> next = this.mailbox.submit(this.foo, Mono.just("next"));
+
+        StepVerifier.create(stuck.onErrorReturn(TimeoutException.class, "timeout").concatWith(next))
+                    .expectNext("timeout", "next")
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(5L));
+        assertThat(this.mailbox.getPendingCount()).isZero();
+    }
+
+    @Test
+    public void should_release_waiting_commands_on_dispose() {
+        this.mailbox.submit(this.foo, Mono.never()).subscribe();
+
+        StepVerifier.create(this.mailbox.submit(this.foo, Mono.just("waiting")))
+                    .expectSubscription()
+                    .then(this.mailbox::dispose)
+                    .expectNext("waiting")
+                    .expectComplete()
+                    .verify(Duration.ofMillis(100L));
+        assertThat(this.mailbox.getSerializedCount()).isEqualTo(1L);
+    }
+}
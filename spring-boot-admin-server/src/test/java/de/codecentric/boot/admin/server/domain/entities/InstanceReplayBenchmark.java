@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.domain.entities;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.values.Endpoints;
+import de.codecentric.boot.admin.server.domain.values.Info;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static java.util.Collections.singletonMap;
+
+/**
+ * Compares replaying an event log event by event with folding the whole log at once. Run with
+ * {@link #main(String[])} or via the JMH runner; add {@code -prof gc} to compare the allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InstanceReplayBenchmark {
+    private final InstanceId id = InstanceId.of("id");
+
+    @Param({"10", "100"})
+    public int events;
+
+    private List<InstanceEvent> log;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Registration registration = Registration.create("foo", "http://localhost:8080/actuator/health")
+                                                .metadata("tags.environment", "test")
+                                                .metadata("management.context-path", "/actuator")
+                                                .build();
+        Map<String, Object> info = new HashMap<>();
+        info.put("build", singletonMap("version", "1.0.0"));
+        Instance instance = Instance.create(this.id)
+                                    .register(registration)
+                                    .withEndpoints(Endpoints.single("info", "http://localhost:8080/actuator/info"))
+                                    .withInfo(Info.from(info));
+        while (instance.getUnsavedEvents().size() < this.events) {
+            boolean up = StatusInfo.STATUS_UP.equals(instance.getStatusInfo().getStatus());
+            instance = instance.withStatusInfo(up ? StatusInfo.ofDown() : StatusInfo.ofUp());
+        }
+        this.log = instance.getUnsavedEvents();
+    }
+
+    @Benchmark
+    public Instance replay_stepwise() {
+        Instance instance = Instance.create(this.id);
+        for (InstanceEvent event : this.log) {
+            instance = instance.apply(event);
+        }
+        return instance;
+    }
+
+    @Benchmark
+    public Instance replay_bulk() {
+        return Instance.create(this.id).apply(this.log);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InstanceReplayBenchmark.class.getSimpleName()).build()).run();
+    }
+}
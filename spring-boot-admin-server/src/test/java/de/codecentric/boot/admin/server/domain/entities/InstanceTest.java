@@ -25,8 +25,12 @@ import de.codecentric.boot.admin.server.domain.values.InstanceId;
 import de.codecentric.boot.admin.server.domain.values.Registration;
 import de.codecentric.boot.admin.server.domain.values.StatusInfo;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.junit.Test;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -197,4 +201,42 @@ public class InstanceTest {
         instance = instance.register(registration.toBuilder().clearMetadata().build());
         assertThat(instance.getTags().getValues()).isEmpty();
     }
+
+    @Test
+    public void should_yield_same_instance_from_bulk_replay() {
+        Registration registration = Registration.create("foo", "http://health")
+                                                .metadata("tags.environment", "test")
+                                                .build();
+        Map<String, Object> info = new HashMap<>();
+        info.put("build", singletonMap("version", "1.0.0"));
+        info.put("tags", singletonMap("region", "eu"));
+        Instance instance = Instance.create(InstanceId.of("id"))
+                                    .register(registration)
+                                    .withEndpoints(Endpoints.single("info", "http://info"))
+                                    .withStatusInfo(StatusInfo.ofUp())
+                                    .withInfo(Info.from(info))
+                                    .register(Registration.copyOf(registration).healthUrl("http://health2").build())
+                                    .withStatusInfo(StatusInfo.ofDown())
+                                    .deregister()
+                                    .register(registration)
+                                    .withInfo(Info.from(singletonMap("foo", "bar")));
+
+        List<InstanceEvent> events = instance.getUnsavedEvents();
+        for (int i = 2; i <= events.size(); i++) {
+            Instance stepwise = Instance.create(InstanceId.of("id"));
+            for (InstanceEvent event : events.subList(0, i)) {
+                stepwise = stepwise.apply(event);
+            }
+            Instance bulk = Instance.create(InstanceId.of("id")).apply(events.subList(0, i));
+            assertThat(bulk).isEqualTo(stepwise);
+            assertThat(bulk.getStatusTimestamp()).isEqualTo(stepwise.getStatusTimestamp());
+            assertThat(bulk.getUnsavedEvents()).isEmpty();
+        }
+
+        Instance partial = Instance.create(InstanceId.of("id")).apply(events.subList(0, 3));
+        assertThat(partial.apply(events.subList(3, events.size()))).isEqualTo(instance.clearUnsavedEvents());
+        assertThatThrownBy(() -> Instance.create(InstanceId.of("id"))
+                                         .apply(asList(events.get(0), events.get(2)))).isInstanceOf(
+            IllegalArgumentException.class).hasMessage("Event 2 doesn't match exptected version 1");
+    }
 }
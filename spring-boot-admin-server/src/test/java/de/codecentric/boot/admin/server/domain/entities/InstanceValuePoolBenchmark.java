@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.domain.entities;
+
+import de.codecentric.boot.admin.server.domain.values.Endpoint;
+import de.codecentric.boot.admin.server.domain.values.Endpoints;
+import de.codecentric.boot.admin.server.domain.values.Info;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the heap retained by 10k instances (50 applications with 200 replicas each) with and without interning
+ * their values through an {@link InstanceValuePool}. Every replica gets its own copies of the info, metadata and endpoints, as if they were deserialized
+ * from the HTTP responses. The relevant result is the {@code retainedBytes} counter; the timings include the forced
+ * garbage collections. Run with {@link #main(String[])} or via the JMH runner.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class InstanceValuePoolBenchmark {
+    private static final int APPLICATIONS = 50;
+    private static final int REPLICAS = 200;
+    private static final String[] ENDPOINTS = {"info", "health", "env", "metrics", "httptrace", "threaddump",
+        "heapdump", "loggers", "auditevents", "jolokia", "logfile", "mappings", "scheduledtasks", "caches"};
+
+    @State(Scope.Benchmark)
+    public static class PoolState {
+        @Param({"true", "false"})
+        public boolean interning;
+
+        @Nullable
+        private InstanceValuePool pool;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.pool = this.interning ? new InstanceValuePool() : null;
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.pool = null;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class HeapCounters {
+        public long retainedBytes;
+    }
+
+    @Benchmark
+    public List<Instance> register_instances(PoolState pool, HeapCounters counters) {
+        long before = usedHeap();
+        List<Instance> instances = new ArrayList<>(APPLICATIONS * REPLICAS);
+        for (int application = 0; application < APPLICATIONS; application++) {
+            for (int replica = 0; replica < REPLICAS; replica++) {
+                Instance instance = replica(application, replica);
+                instances.add(pool.pool != null ? instance.internValues(pool.pool, null) : instance);
+            }
+        }
+        counters.retainedBytes = usedHeap() - before;
+        return instances;
+    }
+
+    private static Instance replica(int application, int replica) {
+        String name = "application-" + application;
+        String url = "http://" + name + "-" + replica + ":8080/actuator/";
+        Registration registration = Registration.create(name, url + "health")
+                                                .managementUrl(url)
+                                                .serviceUrl("http://" + name + "-" + replica + ":8080/")
+                                                .source("discovery")
+                                                .metadata("tags.environment", copy("production"))
+                                                .metadata("tags.team", "team-" + (application % 5))
+                                                .metadata("management.context-path", copy("/actuator"))
+                                                .metadata("instance-index", String.valueOf(replica))
+                                                .build();
+
+        List<Endpoint> endpoints = new ArrayList<>();
+        for (String endpoint : ENDPOINTS) {
+            endpoints.add(Endpoint.of(copy(endpoint), url + endpoint));
+        }
+
+        Map<String, Object> build = new LinkedHashMap<>();
+        build.put(copy("artifact"), name);
+        build.put(copy("name"), name);
+        build.put(copy("group"), copy("de.codecentric"));
+        build.put(copy("version"), "1.0." + application);
+        build.put(copy("time"), copy("2019-01-01T12:00:00.000Z"));
+        Map<String, Object> commit = new LinkedHashMap<>();
+        commit.put(copy("id"), "4f1e2d" + application);
+        commit.put(copy("time"), copy("2019-01-01T11:00:00.000Z"));
+        Map<String, Object> git = new LinkedHashMap<>();
+        git.put(copy("branch"), copy("master"));
+        git.put(copy("commit"), commit);
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put(copy("build"), build);
+        info.put(copy("git"), git);
+        info.put(copy("host"), name + "-" + replica);
+
+        return Instance.create(InstanceId.of(name + "-" + replica))
+                       .register(registration)
+                       .withEndpoints(Endpoints.of(endpoints))
+                       .withInfo(Info.from(info))
+                       .clearUnsavedEvents();
+    }
+
+    @SuppressWarnings("StringOperationCanBeSimplified")
+    private static String copy(String value) {
+        return new String(value);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InstanceValuePoolBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.domain.entities;
+
+import de.codecentric.boot.admin.server.domain.values.Endpoints;
+import de.codecentric.boot.admin.server.domain.values.Info;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+public class InstanceValuePoolTest {
+    private final InstanceValuePool pool = new InstanceValuePool();
+
+    @Test
+    public void should_intern_equal_values() {
+        Instance instance1 = replica("1", "http://host-1/health").internValues(this.pool, null);
+        Instance instance2 = replica("2", "http://host-2/health").internValues(this.pool, null);
+
+        assertThat(instance1.getInfo()).isSameAs(instance2.getInfo());
+        assertThat(instance1.getTags()).isSameAs(instance2.getTags());
+        assertThat(instance1.getRegistration().getMetadata().get("tags.environment")).isSameAs(
+            instance2.getRegistration().getMetadata().get("tags.environment"));
+        assertThat(instance1.getEndpoints().get("info").get().getId()).isSameAs(
+            instance2.getEndpoints().get("info").get().getId());
+        assertThat(instance2).isEqualTo(replica("2", "http://host-2/health"));
+    }
+
+    @Test
+    public void should_not_look_up_values_shared_with_the_previous_snapshot() {
+        Instance previous = replica("1", "http://host-1/health").internValues(this.pool, null);
+        Instance current = previous.withStatusInfo(StatusInfo.ofDown());
+
+        assertThat(current.internValues(this.pool, previous).getInfo()).isSameAs(previous.getInfo());
+    }
+
+    @Test
+    public void should_not_share_mutable_values() {
+        Map<String, Object> build = new HashMap<>();
+        build.put("version", "1.0.0");
+        Info info = this.pool.intern(Info.from(singletonMap("build", build)));
+        build.put("version", "2.0.0");
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> internedBuild = (Map<String, Object>) info.getValues().get("build");
+        assertThat(internedBuild).containsOnly(entry("version", "1.0.0"));
+        assertThatThrownBy(() -> internedBuild.put("version", "3.0.0")).isInstanceOf(
+            UnsupportedOperationException.class);
+        assertThat(this.pool.intern(Info.from(singletonMap("build", singletonMap("version", "1.0.0"))))).isSameAs(
+            info);
+    }
+
+    @Test
+    public void should_not_keep_values_alive() throws InterruptedException {
+        WeakReference<Info> reference = new WeakReference<>(this.pool.intern(Info.from(singletonMap("build",
+            singletonMap(new String("version"), new String("1.0.0"))
+        ))));
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+
+        assertThat(reference.get()).isNull();
+    }
+
+    private static Instance replica(String id, String healthUrl) {
+        Map<String, Object> build = new HashMap<>();
+        build.put("version", new String("1.0.0"));
+        build.put("artifact", new String("foo"));
+        Registration registration = Registration.create(new String("foo"), healthUrl)
+                                                .metadata(new String("tags.environment"), new String("test"))
+                                                .build();
+        return Instance.create(InstanceId.of(id))
+                       .register(registration)
+                       .withEndpoints(Endpoints.single(new String("info"), healthUrl.replace("health", "info")))
+                       .withInfo(Info.from(singletonMap("build", build)));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.domain.entities;
+
+import de.codecentric.boot.admin.server.domain.values.Endpoint;
+import de.codecentric.boot.admin.server.domain.values.Endpoints;
+import de.codecentric.boot.admin.server.domain.values.Info;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotCheckpointStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void should_restore_saved_instances() throws IOException {
+        Map<String, Object> details = new HashMap<>();
+        details.put("diskSpace", singletonMap("free", 1024L));
+        details.put("ratio", new BigDecimal("0.75"));
+        Map<String, Object> info = new HashMap<>();
+        info.put("build", singletonMap("version", "1.0.0"));
+        info.put("tags", asList("a", "b", 3, 4.5, true, null));
+
+        Instance full = Instance.create(InstanceId.of("full"))
+                                .register(Registration.create("full", "http://full/health")
+                                                      .managementUrl("http://full/mgmt")
+                                                      .serviceUrl("http://full")
+                                                      .source("discovery")
+                                                      .metadata("tags.environment", "test")
+                                                      .build())
+                                .withStatusInfo(StatusInfo.valueOf("DOWN", details))
+                                .withInfo(Info.from(info))
+                                .withEndpoints(Endpoints.single("health", "http://full/health")
+                                                        .withEndpoint(Endpoint.INFO, "http://full/info"))
+                                .clearUnsavedEvents();
+        Instance deregistered = Instance.create(InstanceId.of("deregistered"))
+                                        .register(Registration.create("gone", "http://gone/health").build())
+                                        .deregister()
+                                        .clearUnsavedEvents();
+
+        Path file = this.folder.getRoot().toPath().resolve("checkpoint.bin");
+        SnapshotCheckpointStore store = new SnapshotCheckpointStore(file);
+        store.save(asList(full, deregistered));
+
+        Map<InstanceId, Instance> restored = store.load();
+        assertThat(restored).containsOnlyKeys(full.getId(), deregistered.getId());
+        assertThat(restored.get(full.getId())).isEqualTo(full);
+        assertThat(restored.get(full.getId()).getTags().getValues()).containsEntry("environment", "test");
+        assertThat(restored.get(deregistered.getId())).isEqualTo(deregistered);
+    }
+
+    @Test
+    public void should_ignore_missing_or_corrupt_checkpoint() throws IOException {
+        Path file = this.folder.getRoot().toPath().resolve("checkpoint.bin");
+        SnapshotCheckpointStore store = new SnapshotCheckpointStore(file);
+        assertThat(store.load()).isEmpty();
+
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThat(store.load()).isEmpty();
+    }
+}
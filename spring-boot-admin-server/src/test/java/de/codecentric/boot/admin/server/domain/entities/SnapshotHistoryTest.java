@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.domain.entities;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceStatusChangedEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import de.codecentric.boot.admin.server.utils.serialization.BinaryValueCodec;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotHistoryTest {
+    private final Instant start = Instant.parse("2019-01-01T12:00:00Z");
+    private final ConcurrentMap<InstanceId, Instance> snapshots = new ConcurrentHashMap<>();
+    private final SnapshotHistory history = new SnapshotHistory(Duration.ofHours(1L), Long.MAX_VALUE);
+
+    @Test
+    public void should_restore_instances_from_changed_snapshots() {
+        Instance foo = Instance.create(InstanceId.of("foo"))
+                               .register(Registration.create("foo", "http://health").build())
+                               .clearUnsavedEvents();
+        Instance bar = Instance.create(InstanceId.of("bar"))
+                               .register(Registration.create("bar", "http://health").build())
+                               .clearUnsavedEvents();
+        this.update(foo);
+        this.update(bar);
+        this.history.checkpoint(this.start, this.snapshots);
+
+        //foo goes down and bar is removed in between the checkpoints
+        Instance fooDown = foo.withStatusInfo(StatusInfo.ofDown()).clearUnsavedEvents();
+        this.update(fooDown);
+        this.snapshots.remove(bar.getId());
+        this.history.changed(bar.getId());
+        for (int i = 1; i <= SnapshotHistory.FULL_CHECKPOINT_INTERVAL + 1; i++) {
+            this.history.checkpoint(this.start.plusSeconds(i * 60L), this.snapshots);
+        }
+
+        assertThat(this.history.at(this.start.plusSeconds(30L))).containsExactlyInAnyOrder(foo, bar);
+        assertThat(this.history.at(this.start.plusSeconds(90L))).containsExactly(fooDown);
+        assertThat(this.history.at(this.start.plusSeconds(SnapshotHistory.FULL_CHECKPOINT_INTERVAL * 60L + 90L)))
+            .containsExactly(fooDown);
+        assertThat(this.history.at(this.start.minusSeconds(1L))).isNull();
+    }
+
+    @Test
+    public void should_drop_segments_only_with_their_full_checkpoint() {
+        int checkpoints = 2 * SnapshotHistory.FULL_CHECKPOINT_INTERVAL;
+        for (int i = 0; i < checkpoints; i++) {
+            this.history.checkpoint(this.start.plus(Duration.ofMinutes(10L * i)), this.snapshots);
+        }
+
+        //the segments before the latest full checkpoint older than the retention are dropped
+        assertThat(this.history.size()).isEqualTo(SnapshotHistory.FULL_CHECKPOINT_INTERVAL);
+    }
+
+    @Test
+    public void should_limit_the_recorded_events() {
+        Instance foo = Instance.create(InstanceId.of("foo"))
+                               .register(Registration.create("foo", "http://health").build())
+                               .clearUnsavedEvents();
+        this.update(foo);
+        InstanceEvent down = new InstanceStatusChangedEvent(foo.getId(), 1L, this.start.plusSeconds(1L),
+            StatusInfo.ofDown()
+        );
+        InstanceEvent up = new InstanceStatusChangedEvent(foo.getId(), 2L, this.start.plusSeconds(2L),
+            StatusInfo.ofUp()
+        );
+        long budget = BinaryValueCodec.sizeOf(down) + BinaryValueCodec.sizeOf(up);
+        SnapshotHistory limitedHistory = new SnapshotHistory(Duration.ofHours(1L), budget);
+        limitedHistory.checkpoint(this.start, this.snapshots);
+        limitedHistory.record(down);
+        limitedHistory.record(up);
+
+        //the budget is exhausted and there are no older segments to drop
+        limitedHistory.record(new InstanceStatusChangedEvent(foo.getId(), 3L, this.start.plusSeconds(3L),
+            StatusInfo.ofDown()
+        ));
+        assertThat(limitedHistory.getEventBytes()).isEqualTo(budget);
+        assertThat(limitedHistory.at(this.start.plusSeconds(1L))).extracting(Instance::getStatusInfo)
+                                                                 .containsExactly(StatusInfo.ofDown());
+        assertThat(limitedHistory.at(this.start.plusSeconds(3L))).isNull();
+
+        //the next checkpoint is a full one, so the older segment is dropped for the next event
+        limitedHistory.checkpoint(this.start.plusSeconds(60L), this.snapshots);
+        limitedHistory.record(new InstanceStatusChangedEvent(foo.getId(), 4L, this.start.plusSeconds(61L),
+            StatusInfo.ofOffline()
+        ));
+        assertThat(limitedHistory.size()).isEqualTo(1);
+        assertThat(limitedHistory.at(this.start.plusSeconds(1L))).isNull();
+    }
+
+    private void update(Instance instance) {
+        this.snapshots.put(instance.getId(), instance);
+        this.history.changed(instance.getId());
+    }
+}
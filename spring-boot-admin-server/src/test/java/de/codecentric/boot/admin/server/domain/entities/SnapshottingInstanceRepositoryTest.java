@@ -23,21 +23,38 @@ import de.codecentric.boot.admin.server.domain.values.Registration;
 import de.codecentric.boot.admin.server.domain.values.StatusInfo;
 import de.codecentric.boot.admin.server.eventstore.InMemoryEventStore;
 import de.codecentric.boot.admin.server.eventstore.InstanceEventStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
 import reactor.test.StepVerifier;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.reactivestreams.Subscriber;
 
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class SnapshottingInstanceRepositoryTest extends AbstractInstanceRepositoryTest<SnapshottingInstanceRepository> {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     public SnapshottingInstanceRepositoryTest() {
         super(new SnapshottingInstanceRepository(new InMemoryEventStore()));
     }
@@ -94,4 +111,270 @@ public class SnapshottingInstanceRepositoryTest extends AbstractInstanceReposito
             repositoryWithMock.stop();
         }
     }
+
+    @Test
+    public void should_restore_checkpoint_and_replay_newer_events() throws IOException {
+        Path file = this.folder.getRoot().toPath().resolve("snapshots.bin");
+        Instance instance = Instance.create(InstanceId.of("foo"))
+                                    .register(Registration.create("foo", "http://health").build())
+                                    .withStatusInfo(StatusInfo.ofUp());
+        List<InstanceEvent> checkpointed = instance.getUnsavedEvents();
+
+        //given a checkpoint written with the first events
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        StepVerifier.create(eventStore.append(checkpointed)).verifyComplete();
+        SnapshottingInstanceRepository first = new SnapshottingInstanceRepository(eventStore);
+        first.setCheckpointStore(new SnapshotCheckpointStore(file));
+        first.start();
+        first.stop();
+        assertThat(new SnapshotCheckpointStore(file).load()).containsOnlyKeys(instance.getId());
+
+        //when the event store has newer events
+        Instance updated = instance.clearUnsavedEvents().withStatusInfo(StatusInfo.ofDown());
+        StepVerifier.create(eventStore.append(updated.getUnsavedEvents())).verifyComplete();
+        SnapshottingInstanceRepository second = new SnapshottingInstanceRepository(eventStore);
+        second.setCheckpointStore(new SnapshotCheckpointStore(file));
+        second.start();
+
+        try {
+            //then the checkpoint is restored and the newer events are applied
+            StepVerifier.create(second.find(instance.getId()))
+                        .expectNext(updated.clearUnsavedEvents())
+                        .verifyComplete();
+            assertThat(second.getStartupDuration()).isGreaterThan(Duration.ZERO);
+        } finally {
+            second.stop();
+        }
+    }
+
+    @Test
+    public void should_recompute_checkpointed_instances_ahead_of_the_event_store() throws IOException {
+        Path file = this.folder.getRoot().toPath().resolve("snapshots.bin");
+        Instance registered = Instance.create(InstanceId.of("foo"))
+                                      .register(Registration.create("foo", "http://health").build());
+        Instance down = registered.clearUnsavedEvents().withStatusInfo(StatusInfo.ofDown());
+        Instance unknown = Instance.create(InstanceId.of("bar"))
+                                   .register(Registration.create("bar", "http://health").build());
+        new SnapshotCheckpointStore(file).save(asList(down.clearUnsavedEvents(), unknown.clearUnsavedEvents()));
+
+        //given an event store knowing only the registration of 'foo'
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        StepVerifier.create(eventStore.append(registered.getUnsavedEvents())).verifyComplete();
+
+        SnapshottingInstanceRepository repositoryWithCheckpoint = new SnapshottingInstanceRepository(eventStore);
+        repositoryWithCheckpoint.setCheckpointStore(new SnapshotCheckpointStore(file));
+        repositoryWithCheckpoint.start();
+
+        try {
+            //then 'foo' is recomputed from the event store
+            StepVerifier.create(repositoryWithCheckpoint.find(registered.getId()))
+                        .expectNext(registered.clearUnsavedEvents())
+                        .verifyComplete();
+            //and 'bar' is dropped
+            StepVerifier.create(repositoryWithCheckpoint.find(unknown.getId())).verifyComplete();
+        } finally {
+            repositoryWithCheckpoint.stop();
+        }
+    }
+
+    @Test
+    public void should_apply_events_on_parallel_lanes() {
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        List<Instance> instances = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Instance instance = Instance.create(InstanceId.of("instance-" + i))
+                                        .register(Registration.create("foo", "http://health").build())
+                                        .withStatusInfo(StatusInfo.ofUp());
+            StepVerifier.create(eventStore.append(instance.getUnsavedEvents())).verifyComplete();
+            instances.add(instance.clearUnsavedEvents());
+        }
+
+        SnapshottingInstanceRepository repositoryWithLanes = new SnapshottingInstanceRepository(eventStore);
+        repositoryWithLanes.setProjectionLanes(4);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        repositoryWithLanes.bindTo(registry);
+        repositoryWithLanes.start();
+
+        try {
+            //when the replayed instances go down
+            assertThat(awaitCount(repositoryWithLanes.findByStatus("UP"), 20L)).isEqualTo(20L);
+            for (Instance instance : instances) {
+                StepVerifier.create(eventStore.append(instance.withStatusInfo(StatusInfo.ofDown()).getUnsavedEvents()))
+                            .verifyComplete();
+            }
+
+            //then all snapshots are updated
+            assertThat(awaitCount(repositoryWithLanes.findByStatus("DOWN"), 20L)).isEqualTo(20L);
+            Mono<Map<String, Integer>> statusCounts = Mono.fromSupplier(() -> repositoryWithLanes.getApplications()
+                                                                                        .get("foo")
+                                                                                        .getStatusCounts());
+            assertThat(statusCounts.filter(counts -> counts.size() == 1)
+                                   .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(10L)))
+                                   .block(Duration.ofSeconds(5L))).containsOnly(entry("DOWN", 20));
+            assertThat(registry.find("spring.boot.admin.snapshots.lane.depth").gauges()).hasSize(4);
+        } finally {
+            repositoryWithLanes.stop();
+        }
+    }
+
+    @Test
+    public void should_read_instances_with_queued_events_from_the_event_store() {
+        MonoProcessor<Void> applied = MonoProcessor.create();
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        SnapshottingInstanceRepository repositoryWithLanes = new SnapshottingInstanceRepository(eventStore) {
+            @Override
+            protected Mono<Void> updateSnapshot(InstanceEvent event) {
+                return applied.then(super.updateSnapshot(event));
+            }
+        };
+        repositoryWithLanes.setProjectionLanes(4);
+        repositoryWithLanes.start();
+
+        try {
+            //when an instance is saved but the lane hasn't applied the events yet
+            Instance instance = Instance.create(InstanceId.of("foo"))
+                                        .register(Registration.create("foo", "http://health").build());
+            StepVerifier.create(repositoryWithLanes.save(instance)).expectNextCount(1L).verifyComplete();
+            assertThat(repositoryWithLanes.getApplications().get("foo")).isNull();
+
+            //then the instance is read from the event store
+            StepVerifier.create(repositoryWithLanes.find(instance.getId()))
+                        .expectNext(instance.clearUnsavedEvents())
+                        .verifyComplete();
+            StepVerifier.create(repositoryWithLanes.findByName("foo")).expectNextCount(1L).verifyComplete();
+            StepVerifier.create(repositoryWithLanes.findAll()).expectNextCount(1L).verifyComplete();
+
+            //and from the snapshot once the events are applied
+            applied.onComplete();
+            assertThat(Mono.fromSupplier(() -> repositoryWithLanes.getApplications().get("foo"))
+                           .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(10L)))
+                           .block(Duration.ofSeconds(5L))).isNotNull();
+            assertThat(awaitCount(repositoryWithLanes.findByName("foo"), 1L)).isEqualTo(1L);
+        } finally {
+            repositoryWithLanes.stop();
+        }
+    }
+
+    @Test
+    public void should_replay_event_log_in_parallel() {
+        //given an event log with 50 instances and 125 events
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        List<Instance> instances = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Instance instance = Instance.create(InstanceId.of("instance-" + i))
+                                        .register(Registration.create("foo-" + (i % 5), "http://health").build())
+                                        .withStatusInfo(StatusInfo.ofUp())
+                                        .withStatusInfo(i % 2 == 0 ? StatusInfo.ofDown() : StatusInfo.ofUp());
+            StepVerifier.create(eventStore.append(instance.getUnsavedEvents())).verifyComplete();
+            instances.add(instance.clearUnsavedEvents());
+        }
+
+        SnapshottingInstanceRepository parallelRepository = new SnapshottingInstanceRepository(eventStore);
+        parallelRepository.setParallelReplay(true);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        parallelRepository.bindTo(registry);
+
+        //when replayed in parallel
+        parallelRepository.start();
+
+        try {
+            //then all snapshots and indexes are restored
+            assertThat(awaitCount(parallelRepository.findAll(), 50L)).isEqualTo(50L);
+            for (Instance instance : instances) {
+                StepVerifier.create(parallelRepository.find(instance.getId())).expectNext(instance).verifyComplete();
+            }
+            assertThat(awaitCount(parallelRepository.findByStatus("DOWN"), 25L)).isEqualTo(25L);
+            assertThat(awaitCount(parallelRepository.findByName("foo-1"), 10L)).isEqualTo(10L);
+
+            //and new events are applied afterwards
+            StepVerifier.create(parallelRepository.save(instances.get(0).withStatusInfo(StatusInfo.ofUp())))
+                        .expectNextCount(1L)
+                        .verifyComplete();
+            assertThat(awaitCount(parallelRepository.findByStatus("DOWN"), 24L)).isEqualTo(24L);
+            assertThat(parallelRepository.getStartupEvents()).isEqualTo(125L);
+            assertThat(registry.get("spring.boot.admin.snapshots.startup.events").gauge().value()).isEqualTo(125.0);
+        } finally {
+            parallelRepository.stop();
+        }
+    }
+
+    @Test
+    public void should_purge_deregistered_instances() {
+        //given a deregistered and a registered instance
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        SnapshottingInstanceRepository repositoryWithPurge = new SnapshottingInstanceRepository(eventStore);
+        repositoryWithPurge.setPurgeDeregisteredAfter(Duration.ZERO);
+        repositoryWithPurge.start();
+        Instance deregistered = Instance.create(InstanceId.of("deregistered"))
+                                        .register(Registration.create("foo", "http://health").build())
+                                        .deregister();
+        Instance registered = Instance.create(InstanceId.of("registered"))
+                                      .register(Registration.create("foo", "http://health").build());
+
+        try {
+            StepVerifier.create(repositoryWithPurge.save(deregistered)).expectNextCount(1L).verifyComplete();
+            StepVerifier.create(repositoryWithPurge.save(registered)).expectNextCount(1L).verifyComplete();
+
+            //when
+            StepVerifier.create(repositoryWithPurge.purgeDeregistered()).verifyComplete();
+
+            //then the log and snapshot of the deregistered instance are gone
+            StepVerifier.create(repositoryWithPurge.find(deregistered.getId())).verifyComplete();
+            StepVerifier.create(eventStore.find(deregistered.getId())).verifyComplete();
+            StepVerifier.create(repositoryWithPurge.find(registered.getId())).expectNextCount(1L).verifyComplete();
+        } finally {
+            repositoryWithPurge.stop();
+        }
+    }
+
+    @Test
+    public void should_find_instances_at_a_point_in_time() throws InterruptedException {
+        //given an instance registered before the first copy of the snapshots
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        Instance foo = Instance.create(InstanceId.of("foo"))
+                               .register(Registration.create("foo", "http://health").build())
+                               .withStatusInfo(StatusInfo.ofUp());
+        StepVerifier.create(eventStore.append(foo.getUnsavedEvents())).verifyComplete();
+        Instant registered = Instant.now();
+        Thread.sleep(5L);
+
+        SnapshottingInstanceRepository repositoryWithHistory = new SnapshottingInstanceRepository(eventStore);
+        repositoryWithHistory.setHistory(Duration.ofHours(1L), Duration.ofMillis(20L), Long.MAX_VALUE);
+        repositoryWithHistory.start();
+
+        try {
+            //when the instance goes down and a second instance is registered
+            Thread.sleep(50L);
+            Instance fooDown = foo.clearUnsavedEvents().withStatusInfo(StatusInfo.ofDown());
+            StepVerifier.create(repositoryWithHistory.save(fooDown)).expectNextCount(1L).verifyComplete();
+            Thread.sleep(5L);
+            Instant down = Instant.now();
+            Thread.sleep(5L);
+            Instance bar = Instance.create(InstanceId.of("bar"))
+                                   .register(Registration.create("bar", "http://health").build());
+            StepVerifier.create(repositoryWithHistory.save(bar)).expectNextCount(1L).verifyComplete();
+
+            //then the instances are restored as they were at the time
+            StepVerifier.create(repositoryWithHistory.findAll(registered))
+                        .assertNext(instance -> assertThat(instance.getStatusInfo()).isEqualTo(StatusInfo.ofUp()))
+                        .verifyComplete();
+            StepVerifier.create(repositoryWithHistory.findAll(down))
+                        .assertNext(instance -> assertThat(instance.getStatusInfo()).isEqualTo(StatusInfo.ofDown()))
+                        .verifyComplete();
+            StepVerifier.create(repositoryWithHistory.findAll(Instant.now()).map(Instance::getId))
+                        .recordWith(ArrayList::new)
+                        .expectNextCount(2L)
+                        .consumeRecordedWith(ids -> assertThat(ids).containsOnly(foo.getId(), bar.getId()))
+                        .verifyComplete();
+        } finally {
+            repositoryWithHistory.stop();
+        }
+    }
+
+    private static Long awaitCount(Flux<Instance> instances, long expected) {
+        return instances.count()
+                        .filter(count -> count == expected)
+                        .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(10L)))
+                        .block(Duration.ofSeconds(5L));
+    }
 }
@@ -93,6 +93,41 @@ public abstract class AbstractEventStoreTest {
         StepVerifier.create(store.findAll()).expectNext(event1, event3).verifyComplete();
     }
 
+    @Test
+    public void should_find_events_since_sequence() {
+        InstanceEventStore store = createStore(2);
+        InstanceEvent event1 = new InstanceRegisteredEvent(id, 0L, registration);
+        InstanceEvent eventOther = new InstanceRegisteredEvent(InstanceId.of("other"), 0L, registration);
+        InstanceEvent event2 = new InstanceStatusChangedEvent(id, 1L, StatusInfo.ofDown());
+        InstanceEvent event3 = new InstanceStatusChangedEvent(id, 2L, StatusInfo.ofUp());
+
+        StepVerifier.create(store)
+                    .expectSubscription()
+                    .then(() -> StepVerifier.create(store.append(singletonList(event1))).verifyComplete())
+                    .expectNext(event1)
+                    .then(() -> StepVerifier.create(store.append(singletonList(eventOther))).verifyComplete())
+                    .expectNext(eventOther)
+                    .then(() -> StepVerifier.create(store.append(singletonList(event2))).verifyComplete())
+                    .expectNext(event2)
+                    .then(() -> StepVerifier.create(store.append(singletonList(event3))).verifyComplete())
+                    .expectNext(event3)
+                    .thenCancel()
+                    .verify();
+
+        //event2 was dropped by the compaction
+        List<SequencedInstanceEvent> events = store.findSince(-1L, 10).collectList().block();
+        assertThat(events).extracting(SequencedInstanceEvent::getEvent).containsExactly(event1, eventOther, event3);
+        assertThat(events).extracting(SequencedInstanceEvent::getSequence).isSorted().doesNotHaveDuplicates();
+
+        StepVerifier.create(store.findSince(events.get(1).getSequence(), 10).map(SequencedInstanceEvent::getEvent))
+                    .expectNext(event3)
+                    .verifyComplete();
+        StepVerifier.create(store.findSince(-1L, 2).map(SequencedInstanceEvent::getEvent))
+                    .expectNext(event1, eventOther)
+                    .verifyComplete();
+        StepVerifier.create(store.findSince(events.get(2).getSequence(), 10)).verifyComplete();
+    }
+
     @Test
     public void should_throw_optimictic_locking_exception() {
         InstanceEvent event0 = new InstanceRegisteredEvent(id, 0L, registration);
@@ -105,6 +140,56 @@ public abstract class AbstractEventStoreTest {
         StepVerifier.create(store.append(singletonList(event1b))).verifyError(OptimisticLockingException.class);
     }
 
+    @Test
+    public void should_purge_deregistered_instances() {
+        InstanceId recent = InstanceId.of("recent");
+        InstanceId registered = InstanceId.of("registered");
+        Instant now = Instant.now();
+        InstanceEventStore store = createStore(100);
+        Instant expired = now.minusSeconds(7200L);
+        StepVerifier.create(store.append(asList(new InstanceRegisteredEvent(id, 0L, expired, registration),
+            new InstanceDeregisteredEvent(id, 1L, expired)
+        ))).verifyComplete();
+        StepVerifier.create(store.append(asList(new InstanceRegisteredEvent(recent, 0L, now, registration),
+            new InstanceDeregisteredEvent(recent, 1L, now)
+        ))).verifyComplete();
+        StepVerifier.create(store.append(singletonList(new InstanceRegisteredEvent(registered,
+            0L,
+            expired,
+            registration
+        )))).verifyComplete();
+
+        StepVerifier.create(store.purgeDeregistered(now.minusSeconds(3600L))).expectNext(id).verifyComplete();
+
+        StepVerifier.create(store.find(id)).verifyComplete();
+        StepVerifier.create(store.find(recent)).expectNextCount(2L).verifyComplete();
+        StepVerifier.create(store.find(registered)).expectNextCount(1L).verifyComplete();
+    }
+
+    @Test
+    public void should_report_optimistic_locking_per_instance_on_append_all() {
+        InstanceId other = InstanceId.of("other");
+        InstanceEvent event0 = new InstanceRegisteredEvent(id, 0L, registration);
+        InstanceEvent event1 = new InstanceStatusChangedEvent(id, 1L, StatusInfo.ofDown());
+        InstanceEvent otherEvent0 = new InstanceRegisteredEvent(other, 0L, registration);
+
+        InstanceEventStore store = createStore(100);
+        StepVerifier.create(store.append(singletonList(event0))).verifyComplete();
+
+        StepVerifier.create(store.appendAll(asList(singletonList(event0), singletonList(otherEvent0))))
+                    .assertNext(errors -> {
+                        assertThat(errors).containsOnlyKeys(id);
+                        assertThat(errors.get(id)).isInstanceOf(OptimisticLockingException.class);
+                    })
+                    .verifyComplete();
+        StepVerifier.create(store.appendAll(singletonList(singletonList(event1))))
+                    .assertNext(errors -> assertThat(errors).isEmpty())
+                    .verifyComplete();
+
+        StepVerifier.create(store.find(id)).expectNext(event0, event1).verifyComplete();
+        StepVerifier.create(store.find(other)).expectNext(otherEvent0).verifyComplete();
+    }
+
 
     @Test
     public void concurrent_read_writes() {
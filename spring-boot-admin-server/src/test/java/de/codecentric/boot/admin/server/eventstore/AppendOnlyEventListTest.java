@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceDeregisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AppendOnlyEventListTest {
+    private final InstanceId id = InstanceId.of("id");
+    private final InstanceEvent event0 = new InstanceDeregisteredEvent(id, 0L);
+    private final InstanceEvent event1 = new InstanceDeregisteredEvent(id, 1L);
+    private final InstanceEvent event2 = new InstanceDeregisteredEvent(id, 2L);
+    private final InstanceEvent event2b = new InstanceDeregisteredEvent(id, 2L);
+
+    @Test
+    public void should_append_without_changing_the_original() {
+        AppendOnlyEventList empty = AppendOnlyEventList.empty(2);
+        AppendOnlyEventList first = empty.append(singletonList(event0));
+        AppendOnlyEventList second = first.append(asList(event1, event2));
+
+        assertThat(empty).isEmpty();
+        assertThat(first).containsExactly(event0);
+        assertThat(second).containsExactly(event0, event1, event2);
+    }
+
+    @Test
+    public void should_copy_when_appending_to_outdated_list() {
+        AppendOnlyEventList base = AppendOnlyEventList.copyOf(asList(event0, event1), 10);
+        AppendOnlyEventList winner = base.append(singletonList(event2));
+        AppendOnlyEventList loser = base.append(singletonList(event2b));
+
+        assertThat(winner).containsExactly(event0, event1, event2);
+        assertThat(winner.get(2)).isSameAs(event2);
+        assertThat(loser).containsExactly(event0, event1, event2b);
+        assertThat(loser.get(2)).isSameAs(event2b);
+        assertThat(base).containsExactly(event0, event1);
+    }
+
+    @Test
+    public void should_serialize_as_array_list() throws Exception {
+        AppendOnlyEventList list = AppendOnlyEventList.empty(1).append(asList(event0, event1));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(list);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Object deserialized = in.readObject();
+            assertThat(deserialized).isInstanceOf(ArrayList.class).isEqualTo(list);
+        }
+    }
+}
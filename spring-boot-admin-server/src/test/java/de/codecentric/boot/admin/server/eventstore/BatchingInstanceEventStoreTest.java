@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceDeregisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegisteredEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import org.junit.Test;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class BatchingInstanceEventStoreTest extends AbstractEventStoreTest {
+
+    @Override
+    protected InstanceEventStore createStore(int maxLogSizePerAggregate) {
+        return new BatchingInstanceEventStore(new InMemoryEventStore(maxLogSizePerAggregate));
+    }
+
+    @Test
+    public void should_commit_appends_within_window_together() {
+        InMemoryEventStore delegate = spy(new InMemoryEventStore());
+        BatchingInstanceEventStore store = new BatchingInstanceEventStore(delegate, 100, Duration.ofMillis(200L));
+        Registration registration = Registration.create("foo", "http://health").build();
+        InstanceEvent event1 = new InstanceRegisteredEvent(InstanceId.of("a"), 0L, registration);
+        InstanceEvent event2 = new InstanceRegisteredEvent(InstanceId.of("b"), 0L, registration);
+        InstanceEvent event3 = new InstanceDeregisteredEvent(InstanceId.of("a"), 1L);
+        InstanceEvent conflicting = new InstanceDeregisteredEvent(InstanceId.of("a"), 1L);
+
+        //when appending concurrently within one window
+        StepVerifier.create(Mono.when(store.append(singletonList(event1)),
+            store.append(singletonList(event2)),
+            store.append(singletonList(event3))
+        )).expectComplete().verify(Duration.ofSeconds(5L));
+
+        //then the appends are committed by one call for each append per instance
+        verify(delegate, times(2)).appendAll(anyList());
+        StepVerifier.create(store.findAll()).expectNextCount(3L).verifyComplete();
+
+        //and conflicts are reported to the appending caller only
+        StepVerifier.create(store.append(singletonList(conflicting)))
+                    .expectErrorSatisfies(ex -> assertThat(ex).isInstanceOf(OptimisticLockingException.class))
+                    .verify(Duration.ofSeconds(5L));
+        store.close();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceStatusChangedEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Compares appending status changes to the structurally shared event lists with the copy-on-append lists, as used
+ * before (and still used for stores serializing the lists). Run with {@link #main(String[])} or via the JMH
+ * runner; add {@code -prof gc} to compare the allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ConcurrentMapEventStoreBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+        @Param({"shared", "copy"})
+        public String lists;
+
+        @Param({"100", "1000"})
+        public int maxLogSize;
+
+        InMemoryEventStore store;
+        final AtomicInteger threads = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void disableDebugLogging() {
+            //the test logging config logs every append
+            LoggingSystem.get(getClass().getClassLoader()).setLogLevel("de.codecentric", LogLevel.INFO);
+        }
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            this.store = "shared".equals(this.lists) ? new InMemoryEventStore(this.maxLogSize) :
+                new CopyOnAppendEventStore(this.maxLogSize);
+        }
+    }
+
+    /**
+     * Each thread updates its own instance, so the benchmark measures the append itself and not the optimistic
+     * locking failures.
+     */
+    @State(Scope.Thread)
+    public static class InstanceState {
+        InstanceId id;
+        long version;
+
+        @Setup(Level.Iteration)
+        public void setUp(StoreState store) {
+            this.id = InstanceId.of("instance-" + store.threads.incrementAndGet());
+            this.version = 0L;
+        }
+    }
+
+    @Benchmark
+    public void append_status_changes(StoreState state, InstanceState instance) {
+        long version = instance.version++;
+        List<InstanceEvent> events = singletonList(new InstanceStatusChangedEvent(instance.id,
+            version,
+            (version & 1L) == 0L ? StatusInfo.ofUp() : StatusInfo.ofDown()
+        ));
+        state.store.append(events).block();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ConcurrentMapEventStoreBenchmark.class.getSimpleName())
+                                       .build()).run();
+    }
+
+    private static class CopyOnAppendEventStore extends InMemoryEventStore {
+        CopyOnAppendEventStore(int maxLogSizePerAggregate) {
+            super(maxLogSizePerAggregate);
+        }
+
+        @Override
+        protected boolean isStructuralSharingSupported() {
+            return false;
+        }
+    }
+}
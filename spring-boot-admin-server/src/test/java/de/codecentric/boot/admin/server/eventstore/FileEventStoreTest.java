@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceDeregisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceStatusChangedEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileEventStoreTest extends AbstractEventStoreTest {
+    private final InstanceId id = InstanceId.of("id");
+    private final Registration registration = Registration.create("foo", "http://health").build();
+    private final List<FileEventStore> stores = new ArrayList<>();
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        stores.forEach(FileEventStore::close);
+    }
+
+    @Override
+    protected InstanceEventStore createStore(int maxLogSizePerAggregate) {
+        try {
+            return createStore(maxLogSizePerAggregate, folder.newFolder().toPath(), 1024 * 1024, 4);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private FileEventStore createStore(int maxLogSizePerAggregate, Path directory, int segmentSize, int maxSegments) {
+        FileEventStore store = new FileEventStore(maxLogSizePerAggregate,
+            directory,
+            segmentSize,
+            maxSegments,
+            Duration.ofMillis(50L)
+        );
+        stores.add(store);
+        return store;
+    }
+
+    @Test
+    public void should_replay_events_after_reopen() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        FileEventStore store = createStore(100, directory, 1024 * 1024, 4);
+
+        InstanceEvent event1 = new InstanceRegisteredEvent(id, 0L, registration);
+        InstanceEvent event2 = new InstanceStatusChangedEvent(id, 1L, StatusInfo.ofUp());
+        InstanceEvent eventOther = new InstanceRegisteredEvent(InstanceId.of("other"), 0L, registration);
+        StepVerifier.create(store.append(asList(event1, event2))).verifyComplete();
+        StepVerifier.create(store.append(singletonList(eventOther))).verifyComplete();
+        store.close();
+
+        FileEventStore reopened = createStore(100, directory, 1024 * 1024, 4);
+        StepVerifier.create(reopened.find(id)).expectNext(event1, event2).verifyComplete();
+        StepVerifier.create(reopened.find(InstanceId.of("other"))).expectNext(eventOther).verifyComplete();
+
+        InstanceEvent event3 = new InstanceDeregisteredEvent(id, 1L);
+        StepVerifier.create(reopened.append(singletonList(event3))).verifyError(OptimisticLockingException.class);
+    }
+
+    @Test
+    public void should_roll_and_compact_segments() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        FileEventStore store = createStore(4, directory, 2048, 2);
+
+        List<InstanceEvent> events = new ArrayList<>();
+        events.add(new InstanceRegisteredEvent(id, 0L, registration));
+        for (long version = 1L; version < 50L; version++) {
+            events.add(new InstanceStatusChangedEvent(id,
+                version,
+                version % 2 == 0 ? StatusInfo.ofUp() : StatusInfo.ofDown()
+            ));
+        }
+        for (InstanceEvent event : events) {
+            StepVerifier.create(store.append(singletonList(event))).verifyComplete();
+        }
+        //the segments are compacted in the background and the obsolete ones are deleted
+        List<Path> segments = Mono.fromCallable(store::getSegments)
+                                  .filter(paths -> paths.size() <= 2)
+                                  .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(10L)))
+                                  .block(Duration.ofSeconds(5L));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.collect(toList())).containsExactlyInAnyOrderElementsOf(segments);
+        }
+        List<InstanceEvent> expected = store.find(id).collectList().block();
+        store.close();
+
+        FileEventStore reopened = createStore(4, directory, 2048, 2);
+        StepVerifier.create(reopened.find(id)).expectNextSequence(expected).verifyComplete();
+    }
+
+    @Test
+    public void should_not_append_events_which_could_not_be_written() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        FileEventStore store = createStore(100, directory, 1024 * 1024, 4);
+        store.close();
+
+        InstanceEvent event = new InstanceRegisteredEvent(id, 0L, registration);
+        StepVerifier.create(store.append(singletonList(event))).verifyError(IllegalStateException.class);
+        StepVerifier.create(store.find(id)).verifyComplete();
+    }
+
+    @Test
+    public void should_ignore_torn_writes() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        FileEventStore store = createStore(100, directory, 1024 * 1024, 4);
+
+        InstanceEvent event1 = new InstanceRegisteredEvent(id, 0L, registration);
+        InstanceEvent event2 = new InstanceStatusChangedEvent(id, 1L, StatusInfo.ofUp());
+        StepVerifier.create(store.append(singletonList(event1))).verifyComplete();
+        StepVerifier.create(store.append(singletonList(event2))).verifyComplete();
+        store.close();
+
+        //corrupt the last byte of the second record
+        Path segment = store.getSegments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            long position = 9L;
+            file.seek(position);
+            position += 8L + file.readInt();
+            file.seek(position);
+            position += 8L + file.readInt() - 1L;
+            file.seek(position);
+            byte last = file.readByte();
+            file.seek(position);
+            file.writeByte(last ^ 0xFF);
+        }
+
+        FileEventStore reopened = createStore(100, directory, 1024 * 1024, 4);
+        StepVerifier.create(reopened.find(id)).expectNext(event1).verifyComplete();
+    }
+}
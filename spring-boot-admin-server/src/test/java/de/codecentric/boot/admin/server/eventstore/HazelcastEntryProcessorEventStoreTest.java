@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceStatusChangedEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import org.junit.Test;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.test.TestHazelcastInstanceFactory;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HazelcastEntryProcessorEventStoreTest extends AbstractEventStoreTest {
+
+    @Override
+    protected InstanceEventStore createStore(int maxLogSizePerAggregate) {
+        HazelcastInstance hazelcast = new TestHazelcastInstanceFactory(1).newHazelcastInstance();
+        return new HazelcastEventStore(maxLogSizePerAggregate,
+            hazelcast.getMap("testList"),
+            HazelcastEventStore.AppendMode.ENTRY_PROCESSOR,
+            null,
+            hazelcast.getAtomicLong("testSequence")
+        );
+    }
+
+    @Test
+    public void should_compact_log_on_exceeded_byte_budget() {
+        InstanceId id = InstanceId.of("id");
+        InstanceEvent registered = new InstanceRegisteredEvent(id, 0L, Registration.create("foo", "http://health")
+                                                                                  .build());
+        long statusSize = EventLogFootprint.estimate(new InstanceStatusChangedEvent(id, 1L, StatusInfo.ofUp()));
+        long maxBytes = EventLogFootprint.estimate(registered) + 8 * statusSize;
+
+        HazelcastEventStore store = (HazelcastEventStore) createStore(100);
+        store.setMaxLogBytesPerAggregate(maxBytes);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        store.bindTo(registry);
+
+        StepVerifier.create(store.append(singletonList(registered))).verifyComplete();
+        InstanceEvent last = registered;
+        for (long version = 1L; version <= 20L; version++) {
+            StatusInfo status = version % 2 == 0 ? StatusInfo.ofUp() : StatusInfo.ofDown();
+            last = new InstanceStatusChangedEvent(id, version, status);
+            StepVerifier.create(store.append(singletonList(last))).verifyComplete();
+        }
+
+        //the log is compacted within the entry processor and the footprint is taken from its result
+        List<InstanceEvent> events = store.find(id).collectList().block();
+        assertThat(events).startsWith(registered).endsWith(last);
+        assertThat(events.size()).isLessThan(10);
+        long bytes = EventLogFootprint.estimate(events);
+        assertThat(bytes).isLessThanOrEqualTo(maxBytes);
+        assertThat(registry.get("spring.boot.admin.event-store.log.bytes").gauge().value()).isEqualTo(bytes);
+        assertThat(registry.get("spring.boot.admin.event-store.log.events").gauge().value()).isEqualTo(events.size());
+    }
+}
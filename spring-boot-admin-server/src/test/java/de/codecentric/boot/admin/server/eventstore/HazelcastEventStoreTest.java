@@ -1,5 +1,5 @@
 /*
- * Copyright 2014-2018 the original author or authors.
+ * Copyright 2014-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,15 +16,67 @@
 
 package de.codecentric.boot.admin.server.eventstore;
 
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceStatusChangedEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.Test;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IAtomicLong;
+import com.hazelcast.core.IMap;
 import com.hazelcast.test.TestHazelcastInstanceFactory;
 
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
 public class HazelcastEventStoreTest extends AbstractEventStoreTest {
 
     @Override
     protected InstanceEventStore createStore(int maxLogSizePerAggregate) {
         HazelcastInstance hazelcast = new TestHazelcastInstanceFactory(1).newHazelcastInstance();
-        return new HazelcastEventStore(maxLogSizePerAggregate, hazelcast.getMap("testList"));
+        return new HazelcastEventStore(maxLogSizePerAggregate,
+            hazelcast.getMap("testList"),
+            HazelcastEventStore.AppendMode.REPLACE,
+            null,
+            hazelcast.getAtomicLong("testSequence")
+        );
+    }
+
+    @Test
+    public void should_return_the_same_sequences_on_all_members() {
+        HazelcastInstance hazelcast = new TestHazelcastInstanceFactory(1).newHazelcastInstance();
+        IMap<InstanceId, List<InstanceEvent>> map = hazelcast.getMap("testList");
+        IAtomicLong sequence = hazelcast.getAtomicLong("testSequence");
+        HazelcastEventStore member1 = new HazelcastEventStore(100, map, HazelcastEventStore.AppendMode.REPLACE, null,
+            sequence
+        );
+        HazelcastEventStore member2 = new HazelcastEventStore(100, map, HazelcastEventStore.AppendMode.REPLACE, null,
+            sequence
+        );
+        InstanceId id = InstanceId.of("id");
+        InstanceEvent event1 = new InstanceRegisteredEvent(id, 0L, Registration.create("foo", "http://health").build());
+        InstanceEvent event2 = new InstanceStatusChangedEvent(id, 1L, StatusInfo.ofDown());
+
+        StepVerifier.create(member1.append(singletonList(event1))).verifyComplete();
+        StepVerifier.create(member2.append(singletonList(event2))).verifyComplete();
+
+        List<SequencedInstanceEvent> events1 = await(member1);
+        List<SequencedInstanceEvent> events2 = await(member2);
+        assertThat(events1).extracting(SequencedInstanceEvent::getEvent).containsExactly(event1, event2);
+        assertThat(events2).isEqualTo(events1);
     }
 
+    private static List<SequencedInstanceEvent> await(InstanceEventStore store) {
+        return Mono.defer(() -> store.findSince(-1L, 10).collectList())
+                   .filter(events -> events.size() == 2)
+                   .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(10L)))
+                   .block(Duration.ofSeconds(5L));
+    }
 }
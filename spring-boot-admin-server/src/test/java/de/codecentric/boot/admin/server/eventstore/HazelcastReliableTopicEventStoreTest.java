@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceDeregisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegisteredEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.junit.Test;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.ITopic;
+import com.hazelcast.test.TestHazelcastInstanceFactory;
+
+import static java.util.Collections.singletonList;
+
+public class HazelcastReliableTopicEventStoreTest extends AbstractEventStoreTest {
+
+    @Override
+    protected InstanceEventStore createStore(int maxLogSizePerAggregate) {
+        HazelcastInstance hazelcast = new TestHazelcastInstanceFactory(1).newHazelcastInstance();
+        return new HazelcastEventStore(maxLogSizePerAggregate,
+            hazelcast.getMap("testList"),
+            HazelcastEventStore.AppendMode.REPLACE,
+            hazelcast.getReliableTopic("testTopic"),
+            hazelcast.getAtomicLong("testSequence")
+        );
+    }
+
+    @Test
+    public void should_index_events_appended_before_joining() {
+        HazelcastInstance hazelcast = new TestHazelcastInstanceFactory(1).newHazelcastInstance();
+        IMap<InstanceId, List<InstanceEvent>> map = hazelcast.getMap("testList");
+        ITopic<List<InstanceEvent>> topic = hazelcast.getReliableTopic("testTopic");
+        InstanceId id = InstanceId.of("id");
+        Instant now = Instant.now();
+        InstanceEvent event1 = new InstanceRegisteredEvent(id, 0L, now, Registration.create("foo", "http://health")
+                                                                                    .build());
+        InstanceEvent event2 = new InstanceDeregisteredEvent(id, 1L, now.plusMillis(10));
+
+        HazelcastEventStore store = new HazelcastEventStore(100, map, HazelcastEventStore.AppendMode.REPLACE, topic);
+        StepVerifier.create(store.append(singletonList(event1))).verifyComplete();
+
+        HazelcastEventStore joined = new HazelcastEventStore(100, map, HazelcastEventStore.AppendMode.REPLACE, topic);
+        StepVerifier.create(joined)
+                    .expectSubscription()
+                    .then(() -> StepVerifier.create(store.append(singletonList(event2))).verifyComplete())
+                    .expectNext(event2)
+                    .thenCancel()
+                    .verify(Duration.ofSeconds(5));
+
+        StepVerifier.create(joined.findSince(-1L, 10).map(SequencedInstanceEvent::getEvent))
+                    .expectNext(event1, event2)
+                    .verifyComplete();
+    }
+}
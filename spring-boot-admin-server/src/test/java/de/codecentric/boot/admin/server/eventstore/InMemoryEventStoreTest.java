@@ -16,6 +16,22 @@
 
 package de.codecentric.boot.admin.server.eventstore;
 
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceStatusChangedEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
 public class InMemoryEventStoreTest extends AbstractEventStoreTest {
 
     @Override
@@ -23,4 +39,91 @@ public class InMemoryEventStoreTest extends AbstractEventStoreTest {
         return new InMemoryEventStore(maxLogSizePerAggregate);
     }
 
+    @Test
+    public void should_compact_log_on_exceeded_byte_budget() {
+        InstanceId id = InstanceId.of("id");
+        InstanceEvent registered = new InstanceRegisteredEvent(id, 0L, Registration.create("foo", "http://health")
+                                                                                  .build());
+        long statusSize = EventLogFootprint.estimate(new InstanceStatusChangedEvent(id, 1L, StatusInfo.ofUp()));
+        long maxBytes = EventLogFootprint.estimate(registered) + 8 * statusSize;
+
+        InMemoryEventStore store = new InMemoryEventStore(100);
+        store.setMaxLogBytesPerAggregate(maxBytes);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        store.bindTo(registry);
+
+        StepVerifier.create(store.append(singletonList(registered))).verifyComplete();
+        InstanceEvent last = registered;
+        for (long version = 1L; version <= 20L; version++) {
+            StatusInfo status = version % 2 == 0 ? StatusInfo.ofUp() : StatusInfo.ofDown();
+            last = new InstanceStatusChangedEvent(id, version, status);
+            StepVerifier.create(store.append(singletonList(last))).verifyComplete();
+        }
+
+        List<InstanceEvent> events = store.find(id).collectList().block();
+        assertThat(events).startsWith(registered).endsWith(last);
+        assertThat(events.size()).isLessThan(10);
+        long bytes = EventLogFootprint.estimate(events);
+        assertThat(bytes).isLessThanOrEqualTo(maxBytes);
+        assertThat(registry.get("spring.boot.admin.event-store.log.bytes").gauge().value()).isEqualTo(bytes);
+        assertThat(registry.get("spring.boot.admin.event-store.log.events").gauge().value()).isEqualTo(events.size());
+        assertThat(registry.get("spring.boot.admin.event-store.log.instances").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void should_compact_largest_log_on_exceeded_total_byte_budget() {
+        InstanceId quiet = InstanceId.of("quiet");
+        InstanceId busy = InstanceId.of("busy");
+        Registration registration = Registration.create("foo", "http://health").build();
+        InstanceEvent quietRegistered = new InstanceRegisteredEvent(quiet, 0L, registration);
+        InstanceEvent busyRegistered = new InstanceRegisteredEvent(busy, 0L, registration);
+        long statusSize = EventLogFootprint.estimate(new InstanceStatusChangedEvent(quiet, 1L, StatusInfo.ofUp()));
+        long maxBytes = EventLogFootprint.estimate(quietRegistered) + EventLogFootprint.estimate(busyRegistered) +
+                        12 * statusSize;
+
+        InMemoryEventStore store = new InMemoryEventStore(100);
+        store.setMaxLogBytes(maxBytes);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        store.bindTo(registry);
+
+        //given a large log of an instance which isn't appended to anymore
+        StepVerifier.create(store.append(singletonList(quietRegistered))).verifyComplete();
+        for (long version = 1L; version <= 10L; version++) {
+            StatusInfo status = version % 2 == 0 ? StatusInfo.ofUp() : StatusInfo.ofDown();
+            StepVerifier.create(store.append(singletonList(new InstanceStatusChangedEvent(quiet, version, status))))
+                        .verifyComplete();
+        }
+
+        //when the total budget is exceeded by appending to another instance
+        StepVerifier.create(store.append(singletonList(busyRegistered))).verifyComplete();
+        for (long version = 1L; version <= 5L; version++) {
+            StatusInfo status = version % 2 == 0 ? StatusInfo.ofUp() : StatusInfo.ofDown();
+            StepVerifier.create(store.append(singletonList(new InstanceStatusChangedEvent(busy, version, status))))
+                        .verifyComplete();
+        }
+
+        //then the largest log is compacted
+        assertThat(store.find(quiet).collectList().block()).hasSize(2).startsWith(quietRegistered);
+        assertThat(store.find(busy).collectList().block()).hasSize(6);
+        assertThat(registry.get("spring.boot.admin.event-store.log.bytes").gauge().value()).isLessThanOrEqualTo(
+            maxBytes);
+    }
+
+    @Test
+    public void should_estimate_log_size_when_read_without_byte_budget() {
+        InstanceId id = InstanceId.of("id");
+        List<InstanceEvent> events = asList(new InstanceRegisteredEvent(id,
+            0L,
+            Registration.create("foo", "http://health").build()
+        ), new InstanceStatusChangedEvent(id, 1L, StatusInfo.ofUp()));
+
+        InMemoryEventStore store = new InMemoryEventStore(100);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        store.bindTo(registry);
+        StepVerifier.create(store.append(events)).verifyComplete();
+
+        assertThat(registry.get("spring.boot.admin.event-store.log.bytes").gauge().value()).isEqualTo(
+            EventLogFootprint.estimate(events));
+        assertThat(registry.get("spring.boot.admin.event-store.log.events").gauge().value()).isEqualTo(2.0);
+    }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.eventstore;
+
+import de.codecentric.boot.admin.server.domain.entities.Instance;
+import de.codecentric.boot.admin.server.domain.entities.SnapshottingInstanceRepository;
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceStatusChangedEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JdbcEventStoreTest extends AbstractEventStoreTest {
+    private static final String SCHEMA = "META-INF/spring-boot-admin-server/jdbc/schema-h2.sql";
+    private final InstanceId id = InstanceId.of("id");
+    private final Registration registration = Registration.create("foo", "http://health").build();
+    private final List<JdbcEventStore> stores = new ArrayList<>();
+    private final List<EmbeddedDatabase> databases = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        stores.forEach(JdbcEventStore::close);
+        databases.forEach(EmbeddedDatabase::shutdown);
+    }
+
+    @Override
+    protected InstanceEventStore createStore(int maxLogSizePerAggregate) {
+        return createStore(maxLogSizePerAggregate, createDatabase());
+    }
+
+    @Test
+    public void should_publish_events_appended_by_other_servers() {
+        EmbeddedDatabase database = createDatabase();
+        JdbcEventStore store = createStore(100, database);
+        StepVerifier.create(store.append(singletonList(new InstanceRegisteredEvent(id, 0L, registration))))
+                    .verifyComplete();
+
+        JdbcEventStore otherStore = createStore(100, database);
+        InstanceEvent event1 = new InstanceStatusChangedEvent(id, 1L, StatusInfo.ofUp());
+        InstanceEvent event2 = new InstanceStatusChangedEvent(id, 2L, StatusInfo.ofDown());
+
+        StepVerifier.create(otherStore)
+                    .expectSubscription()
+                    .then(() -> StepVerifier.create(store.append(asList(event1, event2))).verifyComplete())
+                    .expectNext(event1, event2)
+                    .thenCancel()
+                    .verify(Duration.ofSeconds(5L));
+
+        StepVerifier.create(store.append(singletonList(event1))).verifyError(OptimisticLockingException.class);
+        StepVerifier.create(otherStore.find(id)).expectNextCount(3L).verifyComplete();
+    }
+
+    @Test
+    public void should_restore_stored_events_by_replay_only() {
+        EmbeddedDatabase database = createDatabase();
+        JdbcEventStore store = createStore(100, database);
+        InstanceEvent event = new InstanceRegisteredEvent(id, 0L, registration);
+        StepVerifier.create(store.append(singletonList(event))).verifyComplete();
+
+        //the restarted server's tail doesn't publish the stored events...
+        JdbcEventStore restartedStore = createStore(100, database);
+        StepVerifier.create(restartedStore)
+                    .expectSubscription()
+                    .expectNoEvent(Duration.ofMillis(200L))
+                    .thenCancel()
+                    .verify();
+
+        //...but the repository restores them on start
+        SnapshottingInstanceRepository repository = new SnapshottingInstanceRepository(restartedStore);
+        repository.start();
+        try {
+            StepVerifier.create(repository.find(id).map(Instance::getRegistration))
+                        .expectNext(registration)
+                        .verifyComplete();
+        } finally {
+            repository.stop();
+        }
+    }
+
+    @Test
+    public void should_replay_all_events_in_pages() {
+        JdbcEventStore store = createStore(1000, createDatabase());
+        List<InstanceEvent> events = new ArrayList<>();
+        for (long version = 0L; version < 250L; version++) {
+            events.add(new InstanceStatusChangedEvent(id, version, StatusInfo.ofUp()));
+        }
+        StepVerifier.create(store.append(events)).verifyComplete();
+
+        //the test stores use pages of 100 events
+        StepVerifier.create(store.findAll()).expectNextSequence(events).verifyComplete();
+    }
+
+    @Test
+    public void should_not_run_queries_on_the_subscriber_thread() {
+        JdbcEventStore store = createStore(100, createDatabase());
+        StepVerifier.create(store.append(singletonList(new InstanceRegisteredEvent(id, 0L, registration)))
+                                 .then(Mono.fromCallable(() -> Thread.currentThread().getName())))
+                    .assertNext(thread -> assertThat(thread).startsWith("jdbc-event-store"))
+                    .verifyComplete();
+        StepVerifier.create(store.findAll().map(event -> Thread.currentThread().getName()))
+                    .assertNext(thread -> assertThat(thread).startsWith("jdbc-event-store"))
+                    .verifyComplete();
+    }
+
+    private EmbeddedDatabase createDatabase() {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder().generateUniqueName(true)
+                                                                 .setType(EmbeddedDatabaseType.H2)
+                                                                 .addScript(SCHEMA)
+                                                                 .build();
+        databases.add(database);
+        return database;
+    }
+
+    private JdbcEventStore createStore(int maxLogSizePerAggregate, EmbeddedDatabase database) {
+        JdbcEventStore store = new JdbcEventStore(maxLogSizePerAggregate,
+            database,
+            Duration.ofMillis(50L),
+            100,
+            Duration.ofSeconds(1L)
+        );
+        stores.add(store);
+        return store;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceDeregisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceStatusChangedEvent;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import reactor.test.publisher.TestPublisher;
+
+import org.junit.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class EndpointResponseCacheEvictionTriggerTest {
+    private final InstanceId id = InstanceId.of("id-1");
+
+    @Test
+    public void should_evict_on_deregistration() throws InterruptedException {
+        //given
+        EndpointResponseCache cache = mock(EndpointResponseCache.class);
+        TestPublisher<InstanceEvent> events = TestPublisher.create();
+        EndpointResponseCacheEvictionTrigger trigger = new EndpointResponseCacheEvictionTrigger(cache, events.flux());
+        trigger.start();
+        Thread.sleep(50L); //wait for subscription
+
+        //when some non-deregistration event is emitted
+        events.next(new InstanceStatusChangedEvent(id, 1L, StatusInfo.ofDown()));
+        //then should not evict
+        verify(cache, never()).evict(any(InstanceId.class));
+
+        //when the instance is deregistered
+        events.next(new InstanceDeregisteredEvent(id, 2L));
+        //then should evict
+        verify(cache, times(1)).evict(id);
+
+        trigger.stop();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EndpointResponseCacheTest {
+    private final EndpointResponseCache cache = new EndpointResponseCache();
+    private final InstanceId id = InstanceId.of("id");
+    private final AtomicInteger conversions = new AtomicInteger();
+    private final Function<ClientResponse, Mono<String>> converter = response -> {
+        this.conversions.incrementAndGet();
+        return response.bodyToMono(String.class);
+    };
+
+    @Test
+    public void should_not_convert_unchanged_body() {
+        StepVerifier.create(this.cache.convert(this.id, "health", response("foo"), this.converter))
+                    .expectNext("foo")
+                    .verifyComplete();
+        StepVerifier.create(this.cache.convert(this.id, "health", response("foo"), this.converter))
+                    .expectNext("foo")
+                    .verifyComplete();
+        assertThat(this.conversions.get()).isEqualTo(1);
+
+        StepVerifier.create(this.cache.convert(this.id, "health", response("bar"), this.converter))
+                    .expectNext("bar")
+                    .verifyComplete();
+        assertThat(this.conversions.get()).isEqualTo(2);
+
+        StepVerifier.create(this.cache.convert(this.id, "info", response("bar"), this.converter))
+                    .expectNext("bar")
+                    .verifyComplete();
+        assertThat(this.conversions.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void should_revalidate_with_etag() {
+        HttpHeaders headers = new HttpHeaders();
+        this.cache.conditionalHeaders(this.id, "health").accept(headers);
+        assertThat(headers.getIfNoneMatch()).isEmpty();
+
+        ClientResponse response = ClientResponse.create(HttpStatus.OK)
+                                                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                                .header(HttpHeaders.ETAG, "\"v1\"")
+                                                .header(HttpHeaders.LAST_MODIFIED, "Wed, 21 Oct 2015 07:28:00 GMT")
+                                                .body("foo")
+                                                .build();
+        StepVerifier.create(this.cache.convert(this.id, "health", response, this.converter))
+                    .expectNext("foo")
+                    .verifyComplete();
+
+        this.cache.conditionalHeaders(this.id, "health").accept(headers);
+        assertThat(headers.getIfNoneMatch()).containsExactly("\"v1\"");
+        assertThat(headers.getIfModifiedSince()).isEqualTo(1445412480000L);
+
+        ClientResponse notModified = ClientResponse.create(HttpStatus.NOT_MODIFIED).build();
+        StepVerifier.create(this.cache.convert(this.id, "health", notModified, this.converter))
+                    .expectNext("foo")
+                    .verifyComplete();
+        assertThat(this.conversions.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_evict_responses() {
+        StepVerifier.create(this.cache.convert(this.id, "health", response("foo"), this.converter))
+                    .expectNext("foo")
+                    .verifyComplete();
+
+        this.cache.evict(this.id);
+
+        StepVerifier.create(this.cache.convert(this.id, "health", ClientResponse.create(HttpStatus.NOT_MODIFIED)
+                                                                              .build(), this.converter))
+                    .verifyComplete();
+        StepVerifier.create(this.cache.convert(this.id, "health", response("foo"), this.converter))
+                    .expectNext("foo")
+                    .verifyComplete();
+        assertThat(this.conversions.get()).isEqualTo(2);
+    }
+
+    private static ClientResponse response(String body) {
+        return ClientResponse.create(HttpStatus.OK)
+                             .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                             .body(body)
+                             .build();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.After;
+import org.junit.Test;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.test.TestHazelcastInstanceFactory;
+
+import static com.hazelcast.test.HazelcastTestSupport.waitAllForSafeState;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HazelcastInstanceOwnershipTest {
+    private final TestHazelcastInstanceFactory factory = new TestHazelcastInstanceFactory(3);
+    private final List<InstanceId> ids = IntStream.range(0, 100)
+                                                  .mapToObj(i -> InstanceId.of("id-" + i))
+                                                  .collect(Collectors.toList());
+
+    @After
+    public void tearDown() {
+        this.factory.shutdownAll();
+    }
+
+    @Test
+    public void should_assign_each_instance_to_one_member() {
+        HazelcastInstance hazelcast1 = this.factory.newHazelcastInstance();
+        HazelcastInstance hazelcast2 = this.factory.newHazelcastInstance();
+        InstanceOwnership ownership1 = new HazelcastInstanceOwnership(hazelcast1);
+        InstanceOwnership ownership2 = new HazelcastInstanceOwnership(hazelcast2);
+        waitAllForSafeState(hazelcast1, hazelcast2);
+
+        for (InstanceId id : this.ids) {
+            assertThat(ownership1.isOwner(id)).as("owner of %s", id).isNotEqualTo(ownership2.isOwner(id));
+        }
+        assertThat(this.ids.stream().filter(ownership1::isOwner)).isNotEmpty();
+        assertThat(this.ids.stream().filter(ownership2::isOwner)).isNotEmpty();
+    }
+
+    @Test
+    public void should_rebalance_when_member_leaves() {
+        HazelcastInstance hazelcast1 = this.factory.newHazelcastInstance();
+        HazelcastInstance hazelcast2 = this.factory.newHazelcastInstance();
+        InstanceOwnership ownership1 = new HazelcastInstanceOwnership(hazelcast1);
+
+        hazelcast2.shutdown();
+        waitAllForSafeState(hazelcast1);
+
+        assertThat(this.ids).allMatch(ownership1::isOwner);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.entities.EventsourcingInstanceRepository;
+import de.codecentric.boot.admin.server.domain.entities.Instance;
+import de.codecentric.boot.admin.server.domain.entities.InstanceRepository;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import de.codecentric.boot.admin.server.eventstore.InMemoryEventStore;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.test.TestHazelcastInstanceFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HazelcastStatusPushReceiverTest {
+    private final TestHazelcastInstanceFactory factory = new TestHazelcastInstanceFactory(2);
+    private final InstanceRepository repository = new EventsourcingInstanceRepository(new InMemoryEventStore());
+    private final Instance instance = Instance.create(InstanceId.of("id"))
+                                              .register(Registration.create("foo", "http://health").build());
+    private StatusPushReceiver receiver1;
+    private StatusPushReceiver receiver2;
+
+    @Before
+    public void setUp() {
+        HazelcastInstance hazelcast1 = this.factory.newHazelcastInstance();
+        HazelcastInstance hazelcast2 = this.factory.newHazelcastInstance();
+        this.receiver1 = new HazelcastStatusPushReceiver(this.repository, hazelcast1.getMap("leases"));
+        this.receiver2 = new HazelcastStatusPushReceiver(this.repository, hazelcast2.getMap("leases"));
+        StepVerifier.create(this.repository.save(this.instance)).expectNextCount(1).verifyComplete();
+    }
+
+    @After
+    public void tearDown() {
+        this.factory.shutdownAll();
+    }
+
+    @Test
+    public void should_share_leases_with_other_members() {
+        StepVerifier.create(this.receiver1.receive(this.instance.getId(), StatusInfo.ofUp(), Duration.ofMinutes(1L)))
+                    .expectNextCount(1)
+                    .verifyComplete();
+        assertThat(this.receiver1.isPushing(this.instance.getId())).isTrue();
+        awaitPushing(this.receiver2, true);
+
+        this.receiver2.revoke(this.instance.getId());
+        assertThat(this.receiver2.isPushing(this.instance.getId())).isFalse();
+        awaitPushing(this.receiver1, false);
+    }
+
+    @Test
+    public void should_lapse_on_all_members() {
+        StepVerifier.create(this.receiver1.receive(this.instance.getId(), StatusInfo.ofUp(), Duration.ofMillis(100L)))
+                    .expectNextCount(1)
+                    .verifyComplete();
+        awaitPushing(this.receiver2, true);
+
+        awaitPushing(this.receiver1, false);
+        awaitPushing(this.receiver2, false);
+    }
+
+    private void awaitPushing(StatusPushReceiver receiver, boolean pushing) {
+        Mono.fromCallable(() -> receiver.isPushing(this.instance.getId()))
+            .filter(value -> value == pushing)
+            .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(10L)))
+            .block(Duration.ofSeconds(5L));
+    }
+}
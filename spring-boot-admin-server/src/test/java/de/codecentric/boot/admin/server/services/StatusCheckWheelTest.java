@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StatusCheckWheelTest {
+    private final StatusCheckWheel wheel = new StatusCheckWheel(10L, 8, 1_000L);
+
+    @Test
+    public void should_return_due_checks_only() {
+        this.wheel.schedule(InstanceId.of("a"), 1_015L);
+        this.wheel.schedule(InstanceId.of("b"), 1_045L);
+        //more than one revolution ahead
+        this.wheel.schedule(InstanceId.of("c"), 1_125L);
+
+        assertThat(this.wheel.poll(1_010L)).isEmpty();
+        assertThat(this.wheel.poll(1_020L)).extracting(StatusCheckWheel.Entry::getId)
+                                           .containsExactly(InstanceId.of("a"));
+        assertThat(this.wheel.poll(1_050L)).extracting(StatusCheckWheel.Entry::getId)
+                                           .containsExactly(InstanceId.of("b"));
+        assertThat(this.wheel.poll(1_100L)).isEmpty();
+        assertThat(this.wheel.size()).isEqualTo(1);
+        assertThat(this.wheel.poll(1_130L)).extracting(StatusCheckWheel.Entry::getId)
+                                           .containsExactly(InstanceId.of("c"));
+        assertThat(this.wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_replace_pending_check() {
+        this.wheel.schedule(InstanceId.of("a"), 1_015L);
+        this.wheel.schedule(InstanceId.of("a"), 1_035L);
+
+        assertThat(this.wheel.poll(1_020L)).isEmpty();
+        assertThat(this.wheel.poll(1_040L)).extracting(StatusCheckWheel.Entry::getDeadlineMillis)
+                                           .containsExactly(1_035L);
+    }
+
+    @Test
+    public void should_cancel_pending_check() {
+        this.wheel.schedule(InstanceId.of("a"), 1_015L);
+        this.wheel.schedule(InstanceId.of("b"), 1_015L);
+
+        this.wheel.cancel(InstanceId.of("a"));
+
+        assertThat(this.wheel.size()).isEqualTo(1);
+        assertThat(this.wheel.poll(1_020L)).extracting(StatusCheckWheel.Entry::getId)
+                                           .containsExactly(InstanceId.of("b"));
+    }
+
+    @Test
+    public void should_return_overdue_checks() {
+        //scheduled in the past and polled after several revolutions
+        this.wheel.schedule(InstanceId.of("a"), 900L);
+        this.wheel.schedule(InstanceId.of("b"), 1_055L);
+
+        assertThat(this.wheel.poll(2_000L)).extracting(StatusCheckWheel.Entry::getId)
+                                           .containsOnly(InstanceId.of("a"), InstanceId.of("b"));
+    }
+
+    @Test
+    public void should_transfer_pending_checks() {
+        this.wheel.schedule(InstanceId.of("a"), 1_015L);
+        StatusCheckWheel target = new StatusCheckWheel(5L, 4, 1_000L);
+
+        this.wheel.transferTo(target);
+
+        assertThat(this.wheel.size()).isEqualTo(0);
+        assertThat(target.poll(1_020L)).extracting(StatusCheckWheel.Entry::getId).containsExactly(InstanceId.of("a"));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import de.codecentric.boot.admin.server.domain.values.Tags;
+
+import java.time.Duration;
+import org.junit.Test;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StatusPollingPolicyTest {
+    private static final Duration LIFETIME = Duration.ofSeconds(10L);
+    private final StatusPollingPolicy policy = new StatusPollingPolicy();
+
+    @Test
+    public void should_back_off_offline_instances() {
+        assertThat(interval(StatusInfo.STATUS_OFFLINE, Duration.ZERO, 0)).isEqualTo(LIFETIME);
+        assertThat(interval(StatusInfo.STATUS_OFFLINE, Duration.ofSeconds(10L), 1)).isEqualTo(Duration.ofSeconds(20L));
+        assertThat(interval(StatusInfo.STATUS_OFFLINE, Duration.ofSeconds(30L), 2)).isEqualTo(Duration.ofSeconds(40L));
+        assertThat(interval(StatusInfo.STATUS_OFFLINE, Duration.ofHours(1L), 1000)).isEqualTo(Duration.ofMinutes(5L));
+    }
+
+    @Test
+    public void should_recheck_quickly_after_transition() {
+        assertThat(interval(StatusInfo.STATUS_DOWN, Duration.ZERO, 0)).isEqualTo(Duration.ofSeconds(2L));
+        assertThat(interval(StatusInfo.STATUS_UP, Duration.ofSeconds(4L), 2)).isEqualTo(Duration.ofSeconds(2L));
+        assertThat(interval(StatusInfo.STATUS_UP, Duration.ofSeconds(6L), 3)).isEqualTo(LIFETIME);
+    }
+
+    @Test
+    public void should_slow_down_for_stable_instances() {
+        assertThat(interval(StatusInfo.STATUS_UP, Duration.ofMinutes(9L), 50)).isEqualTo(LIFETIME);
+        assertThat(interval(StatusInfo.STATUS_UP, Duration.ofMinutes(10L), 60)).isEqualTo(Duration.ofMinutes(1L));
+        assertThat(interval(StatusInfo.STATUS_DOWN, Duration.ofHours(1L), 360)).isEqualTo(LIFETIME);
+    }
+
+    @Test
+    public void should_use_limits_of_application_and_tags() {
+        this.policy.setApplicationLimits(singletonMap("foo",
+            new StatusPollingPolicy.Limits(Duration.ofSeconds(30L), null)
+        ));
+        this.policy.setTagLimits(singletonMap("env:prod",
+            new StatusPollingPolicy.Limits(Duration.ofSeconds(20L), Duration.ofSeconds(15L))
+        ));
+        Tags prod = Tags.from(singletonMap("env", "prod"));
+
+        assertThat(this.policy.getInterval(LIFETIME, StatusInfo.STATUS_UP, Duration.ofHours(1L), 100, "foo",
+            Tags.empty()
+        )).isEqualTo(Duration.ofSeconds(30L));
+        assertThat(this.policy.getInterval(LIFETIME, StatusInfo.STATUS_UP, Duration.ofHours(1L), 100, "foo", prod))
+            .isEqualTo(Duration.ofSeconds(20L));
+        assertThat(this.policy.getInterval(LIFETIME, StatusInfo.STATUS_OFFLINE, Duration.ofHours(1L), 100, "foo",
+            Tags.empty()
+        )).isEqualTo(Duration.ofMinutes(5L));
+        assertThat(this.policy.getInterval(LIFETIME, StatusInfo.STATUS_OFFLINE, Duration.ofHours(1L), 100, "bar",
+            prod
+        )).isEqualTo(Duration.ofSeconds(15L));
+    }
+
+    private Duration interval(String status, Duration timeSinceChange, int checksSinceChange) {
+        return this.policy.getInterval(LIFETIME, status, timeSinceChange, checksSinceChange, "foo", Tags.empty());
+    }
+}
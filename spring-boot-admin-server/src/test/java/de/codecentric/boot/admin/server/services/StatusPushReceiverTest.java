@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.codecentric.boot.admin.server.services;
+
+import de.codecentric.boot.admin.server.domain.entities.EventsourcingInstanceRepository;
+import de.codecentric.boot.admin.server.domain.entities.Instance;
+import de.codecentric.boot.admin.server.domain.entities.InstanceRepository;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import de.codecentric.boot.admin.server.eventstore.InMemoryEventStore;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StatusPushReceiverTest {
+    private final InstanceRepository repository = new EventsourcingInstanceRepository(new InMemoryEventStore());
+    private final StatusPushReceiver receiver = new StatusPushReceiver(this.repository);
+    private final Instance instance = Instance.create(InstanceId.of("id"))
+                                              .register(Registration.create("foo", "http://health").build());
+
+    @Before
+    public void setUp() {
+        StepVerifier.create(this.repository.save(this.instance)).expectNextCount(1).verifyComplete();
+    }
+
+    @Test
+    public void should_apply_pushed_status() {
+        StepVerifier.create(this.receiver.receive(this.instance.getId(), StatusInfo.ofDown(), Duration.ofMinutes(1L)))
+                    .assertNext(instance -> assertThat(instance.getStatusInfo()).isEqualTo(StatusInfo.ofDown()))
+                    .verifyComplete();
+
+        StepVerifier.create(this.repository.find(this.instance.getId()))
+                    .assertNext(instance -> assertThat(instance.getStatusInfo()).isEqualTo(StatusInfo.ofDown()))
+                    .verifyComplete();
+        assertThat(this.receiver.isPushing(this.instance.getId())).isTrue();
+    }
+
+    @Test
+    public void should_ignore_unknown_instances() {
+        InstanceId unknown = InstanceId.of("unknown");
+        StepVerifier.create(this.receiver.receive(unknown, StatusInfo.ofUp(), Duration.ofMinutes(1L)))
+                    .verifyComplete();
+        assertThat(this.receiver.isPushing(unknown)).isFalse();
+    }
+
+    @Test
+    public void should_lapse_after_missed_heartbeats() throws InterruptedException {
+        StepVerifier.create(this.receiver.receive(this.instance.getId(), StatusInfo.ofUp(), Duration.ofMillis(20L)))
+                    .expectNextCount(1)
+                    .verifyComplete();
+        assertThat(this.receiver.isPushing(this.instance.getId())).isTrue();
+
+        Thread.sleep(60L);
+        assertThat(this.receiver.isPushing(this.instance.getId())).isFalse();
+    }
+
+    @Test
+    public void should_limit_heartbeat_interval() throws InterruptedException {
+        this.receiver.setMaxHeartbeatInterval(Duration.ofMillis(20L));
+        StepVerifier.create(this.receiver.receive(this.instance.getId(), StatusInfo.ofUp(), Duration.ofDays(1L)))
+                    .expectNextCount(1)
+                    .verifyComplete();
+
+        Thread.sleep(60L);
+        assertThat(this.receiver.isPushing(this.instance.getId())).isFalse();
+    }
+
+    @Test
+    public void should_revoke_lease() {
+        StepVerifier.create(this.receiver.receive(this.instance.getId(), StatusInfo.ofUp(), Duration.ofMinutes(1L)))
+                    .expectNextCount(1)
+                    .verifyComplete();
+
+        this.receiver.revoke(this.instance.getId());
+        assertThat(this.receiver.isPushing(this.instance.getId())).isFalse();
+    }
+}
@@ -17,6 +17,8 @@
 package de.codecentric.boot.admin.server.services;
 
 import de.codecentric.boot.admin.server.domain.entities.Instance;
+import de.codecentric.boot.admin.server.domain.entities.InstanceRepository;
+import de.codecentric.boot.admin.server.domain.events.InstanceDeregisteredEvent;
 import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
 import de.codecentric.boot.admin.server.domain.events.InstanceInfoChangedEvent;
 import de.codecentric.boot.admin.server.domain.events.InstanceRegisteredEvent;
@@ -24,19 +26,26 @@ import de.codecentric.boot.admin.server.domain.events.InstanceRegistrationUpdate
 import de.codecentric.boot.admin.server.domain.values.Info;
 import de.codecentric.boot.admin.server.domain.values.InstanceId;
 import de.codecentric.boot.admin.server.domain.values.Registration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.publisher.TestPublisher;
 
 import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.atLeast;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -48,12 +57,12 @@ public class StatusUpdateTriggerTest {
     private StatusUpdateTrigger trigger;
 
     @Before
-    public void setUp() throws Exception {
+    public void setUp() {
         when(updater.updateStatus(any(InstanceId.class))).thenReturn(Mono.empty());
 
         trigger = new StatusUpdateTrigger(updater, events.flux());
         trigger.start();
-        Thread.sleep(50L); //wait for subscription
+        awaitSubscription();
     }
 
     @Test
@@ -63,13 +72,12 @@ public class StatusUpdateTriggerTest {
         trigger.setUpdateInterval(Duration.ofMillis(10));
         trigger.setStatusLifetime(Duration.ofMillis(10));
         trigger.start();
-        Thread.sleep(50L); //wait for subscription
+        awaitSubscription();
 
         events.next(new InstanceRegisteredEvent(instance.getId(), 0L, instance.getRegistration()));
 
-        Thread.sleep(50L);
         //then it should start updating one time for registration and at least once for monitor
-        verify(updater, atLeast(2)).updateStatus(instance.getId());
+        verify(updater, timeout(1000L).atLeast(2)).updateStatus(instance.getId());
 
         //given long lifetime
         trigger.setStatusLifetime(Duration.ofSeconds(10));
@@ -90,12 +98,162 @@ public class StatusUpdateTriggerTest {
         verify(updater, never()).updateStatus(any(InstanceId.class));
     }
 
+    @Test
+    public void should_only_update_owned_instances() {
+        //given a trigger owning only the instance "id-1"
+        AtomicBoolean owned = new AtomicBoolean(false);
+        trigger.stop();
+        trigger.setUpdateInterval(Duration.ofMillis(10));
+        trigger.setStatusLifetime(Duration.ofMillis(10));
+        trigger.setOwnership(id -> id.equals(instance.getId()) || owned.get());
+        trigger.start();
+        awaitSubscription();
+
+        //when both instances are registered
+        InstanceId other = InstanceId.of("id-2");
+        events.next(new InstanceRegisteredEvent(instance.getId(), 0L, instance.getRegistration()));
+        events.next(new InstanceRegisteredEvent(other, 0L, instance.getRegistration()));
+
+        //then only the owned instance is updated
+        verify(updater, timeout(1000L).atLeast(2)).updateStatus(instance.getId());
+        verify(updater, never()).updateStatus(other);
+
+        //when the ownership moves to this trigger
+        owned.set(true);
+
+        //then the instance is updated without a new registration
+        verify(updater, timeout(1000L).atLeast(1)).updateStatus(other);
+        trigger.stop();
+    }
+
+    @Test
+    public void should_not_update_instances_pushing_their_status() {
+        //given an instance pushing its status
+        StatusPushReceiver receiver = mock(StatusPushReceiver.class);
+        when(receiver.isPushing(instance.getId())).thenReturn(true);
+        trigger.stop();
+        trigger.setUpdateInterval(Duration.ofMillis(10));
+        trigger.setStatusLifetime(Duration.ofMillis(10));
+        trigger.setStatusPushReceiver(receiver);
+        trigger.start();
+        awaitSubscription();
+
+        //when the instance is registered
+        events.next(new InstanceRegisteredEvent(instance.getId(), 0L, instance.getRegistration()));
+
+        //then it is never polled
+        verify(receiver, timeout(1000L).atLeast(2)).isPushing(instance.getId());
+        verify(updater, never()).updateStatus(instance.getId());
+
+        //when the heartbeat lapses
+        when(receiver.isPushing(instance.getId())).thenReturn(false);
+
+        //then it is polled again
+        verify(updater, timeout(1000L).atLeast(1)).updateStatus(instance.getId());
+        trigger.stop();
+    }
+
+    @Test
+    public void should_not_count_skipped_checks_in_the_polling_state() {
+        //given an instance owned by another trigger
+        StatusPollingPolicy policy = mock(StatusPollingPolicy.class);
+        when(policy.getInterval(any(), any(), any(), anyInt(), any(), any())).thenReturn(Duration.ofMillis(10L));
+        AtomicBoolean owned = new AtomicBoolean(false);
+        trigger.stop();
+        trigger.setUpdateInterval(Duration.ofMillis(10));
+        trigger.setStatusLifetime(Duration.ofMillis(10));
+        trigger.setPollingPolicy(policy);
+        trigger.setOwnership(id -> owned.get());
+        trigger.start();
+        awaitSubscription();
+        events.next(new InstanceRegisteredEvent(instance.getId(), 0L, instance.getRegistration()));
+
+        //when the checks have been skipped a few times before the ownership moves to this trigger
+        verify(policy, after(100L).never()).getInterval(any(), any(), any(), anyInt(), any(), any());
+        owned.set(true);
+
+        //then the first check is counted as the first check since the last status change
+        verify(policy, timeout(1000L)).getInterval(any(), any(), any(), eq(0), any(), any());
+        trigger.stop();
+    }
+
+    @Test
+    public void should_update_registered_instances_on_start() {
+        //given a repository with instances restored from the event log
+        Instance deregistered = Instance.create(InstanceId.of("id-2"))
+                                        .register(instance.getRegistration())
+                                        .deregister();
+        InstanceRepository repository = mock(InstanceRepository.class);
+        when(repository.findAll()).thenReturn(Flux.just(instance, deregistered));
+        trigger.stop();
+        trigger = new StatusUpdateTrigger(updater, events.flux(), repository);
+        trigger.setUpdateInterval(Duration.ofMillis(10));
+        trigger.setStatusLifetime(Duration.ofMillis(10));
+
+        //when the trigger is started
+        trigger.start();
+
+        //then the registered instance is updated without a registration event
+        verify(updater, timeout(1000L).atLeast(2)).updateStatus(instance.getId());
+        verify(updater, never()).updateStatus(deregistered.getId());
+        trigger.stop();
+    }
+
+    @Test
+    public void should_stop_updating_deregistered_instances() {
+        //given a registered instance
+        trigger.stop();
+        trigger.setUpdateInterval(Duration.ofMillis(10));
+        trigger.setStatusLifetime(Duration.ofMillis(10));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        trigger.bindTo(registry);
+        trigger.start();
+        awaitSubscription();
+        events.next(new InstanceRegisteredEvent(instance.getId(), 0L, instance.getRegistration()));
+        verify(updater, timeout(1000L).atLeast(2)).updateStatus(instance.getId());
+
+        //when it is deregistered
+        events.next(new InstanceDeregisteredEvent(instance.getId(), 1L));
+
+        //then it isn't scheduled anymore
+        await(() -> registry.get("spring.boot.admin.status.updates.scheduled").gauge().value() == 0.0);
+        //and not updated anymore, apart from an update which was running during the deregistration
+        clearInvocations(updater);
+        verify(updater, after(100L).atMost(1)).updateStatus(instance.getId());
+        trigger.stop();
+    }
+
+    @Test
+    public void should_limit_concurrent_updates() {
+        //given updates which never complete
+        when(updater.updateStatus(any(InstanceId.class))).thenReturn(Mono.never());
+        trigger.stop();
+        trigger.setUpdateInterval(Duration.ofMillis(10));
+        trigger.setStatusLifetime(Duration.ofMillis(10));
+        trigger.setMaxConcurrentUpdates(2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        trigger.bindTo(registry);
+        trigger.start();
+        awaitSubscription();
+
+        //when five instances are registered
+        for (int i = 0; i < 5; i++) {
+            events.next(new InstanceRegisteredEvent(InstanceId.of("id-" + i), 0L, instance.getRegistration()));
+        }
+
+        //then only two updates run at the same time, including the updates after the registration
+        await(() -> registry.get("spring.boot.admin.status.updates.in-flight").gauge().value() == 2.0);
+        verify(updater, after(100L).times(2)).updateStatus(any(InstanceId.class));
+        assertThat(registry.get("spring.boot.admin.status.updates.in-flight").gauge().value()).isEqualTo(2.0);
+        trigger.stop();
+    }
+
     @Test
     public void should_update_on_instance_registered_event() {
         //when registered event is emitted
         events.next(new InstanceRegisteredEvent(instance.getId(), instance.getVersion(), instance.getRegistration()));
         //then should update
-        verify(updater, times(1)).updateStatus(instance.getId());
+        verify(updater, timeout(1000L).times(1)).updateStatus(instance.getId());
     }
 
     @Test
@@ -104,7 +262,7 @@ public class StatusUpdateTriggerTest {
         events.next(
             new InstanceRegistrationUpdatedEvent(instance.getId(), instance.getVersion(), instance.getRegistration()));
         //then should update
-        verify(updater, times(1)).updateStatus(instance.getId());
+        verify(updater, timeout(1000L).times(1)).updateStatus(instance.getId());
     }
 
     @Test
@@ -124,4 +282,22 @@ public class StatusUpdateTriggerTest {
         //then should not update
         verify(updater, never()).updateStatus(instance.getId());
     }
+
+    private void awaitSubscription() {
+        await(() -> {
+            try {
+                this.events.assertSubscribers(1);
+                return true;
+            } catch (AssertionError ex) {
+                return false;
+            }
+        });
+    }
+
+    private static void await(BooleanSupplier condition) {
+        Mono.fromSupplier(condition::getAsBoolean)
+            .filter(Boolean::booleanValue)
+            .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(10L)))
+            .block(Duration.ofSeconds(5L));
+    }
 }
@@ -42,11 +42,14 @@ import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.ok;
 import static com.github.tomakehurst.wiremock.client.WireMock.okForContentType;
 import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
 import static com.github.tomakehurst.wiremock.client.WireMock.status;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
 import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -125,6 +128,23 @@ public class StatusUpdaterTest {
                     .verifyComplete();
     }
 
+    @Test
+    public void should_revalidate_status_with_etag() {
+        String body = "{ \"status\" : \"DOWN\" }";
+        wireMock.stubFor(get("/health").willReturn(okForContentType(ActuatorMediaType.V2_JSON, body).withHeader("ETag",
+            "\"v1\""
+        )));
+        wireMock.stubFor(get("/health").withHeader("If-None-Match", containing("\"v1")).willReturn(status(304)));
+
+        StepVerifier.create(updater.updateStatus(instance.getId())).verifyComplete();
+        StepVerifier.create(updater.updateStatus(instance.getId())).verifyComplete();
+
+        wireMock.verify(1, getRequestedFor(urlEqualTo("/health")).withHeader("If-None-Match", containing("\"v1")));
+        StepVerifier.create(repository.find(instance.getId()))
+                    .assertNext(app -> assertThat(app.getStatusInfo().getStatus()).isEqualTo("DOWN"))
+                    .verifyComplete();
+    }
+
     @Test
     public void should_not_change_status() {
         String body = "{ \"status\" : \"UNKNOWN\" }";
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.utils.serialization;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceInfoChangedEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceStatusChangedEvent;
+import de.codecentric.boot.admin.server.domain.values.Info;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.nio.serialization.Data;
+
+import static java.util.Collections.singletonMap;
+
+/**
+ * Compares the {@link HazelcastSerializers} with java serialization. Besides the throughput the serialize benchmark
+ * reports the size of the serialized event as {@code bytes}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HazelcastSerializersBenchmark {
+    @Param({"compact", "java"})
+    public String serialization;
+
+    @Param({"registered", "status", "info"})
+    public String event;
+
+    private InternalSerializationService serializationService;
+    private InstanceEvent instanceEvent;
+    private Data data;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.serializationService = HazelcastSerializersTest.createSerializationService("compact".equals(
+            this.serialization));
+        InstanceId id = InstanceId.of("9b6e4f8a2c1d");
+        switch (this.event) {
+            case "registered":
+                this.instanceEvent = new InstanceRegisteredEvent(id,
+                    0L,
+                    Registration.create("customer-service", "http://10.0.0.1:8080/actuator/health")
+                                .managementUrl("http://10.0.0.1:8080/actuator")
+                                .serviceUrl("http://10.0.0.1:8080/")
+                                .metadata("tags.environment", "production")
+                                .build()
+                );
+                break;
+            case "status":
+                this.instanceEvent = new InstanceStatusChangedEvent(id, 1L, StatusInfo.ofDown());
+                break;
+            default:
+                Map<String, Object> build = new HashMap<>();
+                build.put("version", "1.4.2");
+                build.put("artifact", "customer-service");
+                build.put("group", "com.example");
+                this.instanceEvent = new InstanceInfoChangedEvent(id, 2L, Info.from(singletonMap("build", build)));
+                break;
+        }
+        this.data = this.serializationService.toData(this.instanceEvent);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+        public long bytes;
+    }
+
+    @Benchmark
+    public Data serialize(Size size) {
+        Data serialized = this.serializationService.toData(this.instanceEvent);
+        size.bytes = serialized.totalSize();
+        return serialized;
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return this.serializationService.toObject(this.data);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HazelcastSerializersBenchmark.class.getSimpleName())
+                                       .build()).run();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.boot.admin.server.utils.serialization;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceDeregisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceEndpointsDetectedEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceInfoChangedEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegistrationUpdatedEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceStatusChangedEvent;
+import de.codecentric.boot.admin.server.domain.values.Endpoint;
+import de.codecentric.boot.admin.server.domain.values.Endpoints;
+import de.codecentric.boot.admin.server.domain.values.Info;
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import de.codecentric.boot.admin.server.domain.values.Registration;
+import de.codecentric.boot.admin.server.domain.values.StatusInfo;
+import de.codecentric.boot.admin.server.domain.values.Tags;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.nio.serialization.Data;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HazelcastSerializersTest {
+    private final InstanceId id = InstanceId.of("a1b2c3");
+    private final Registration registration = Registration.create("app", "http://app/health")
+                                                          .managementUrl("http://app/actuator")
+                                                          .serviceUrl("http://app")
+                                                          .metadata("tags.env", "prod")
+                                                          .build();
+
+    @Test
+    public void should_roundtrip_events_and_values() {
+        InternalSerializationService serializationService = createSerializationService(true);
+
+        Map<String, Object> details = new HashMap<>();
+        details.put("diskSpace", singletonMap("free", 1024L));
+        details.put("checks", asList("db", "disk"));
+        List<Object> values = asList(new InstanceRegisteredEvent(id, 0L, registration),
+            new InstanceRegistrationUpdatedEvent(id, 1L, registration),
+            new InstanceStatusChangedEvent(id, 2L, StatusInfo.valueOf("DOWN", details)),
+            new InstanceEndpointsDetectedEvent(id, 3L, Endpoints.single(Endpoint.HEALTH, "http://app/health")),
+            new InstanceInfoChangedEvent(id, 4L, Info.from(singletonMap("build", singletonMap("version", "1.0")))),
+            new InstanceDeregisteredEvent(id, 5L),
+            registration,
+            StatusInfo.ofUp(),
+            Info.from(singletonMap("foo", "bar")),
+            Endpoints.single(Endpoint.INFO, "http://app/info"),
+            Tags.from(singletonMap("env", "prod")),
+            id
+        );
+
+        for (Object value : values) {
+            Data data = serializationService.toData(value);
+            assertThat(data.getType()).isBetween(HazelcastSerializers.TYPE_ID_BASE,
+                HazelcastSerializers.TYPE_ID_BASE + 100
+            );
+            assertThat((Object) serializationService.toObject(data)).isEqualTo(value);
+        }
+    }
+
+    @Test
+    public void should_serialize_event_lists() {
+        InternalSerializationService serializationService = createSerializationService(true);
+        List<InstanceEvent> events = new ArrayList<>(asList(new InstanceRegisteredEvent(id, 0L, registration),
+            new InstanceDeregisteredEvent(id, 5L)
+        ));
+
+        List<InstanceEvent> deserialized = serializationService.toObject(serializationService.toData(events));
+        assertThat(deserialized).isEqualTo(events);
+    }
+
+    @Test
+    public void should_be_smaller_than_java_serialization() {
+        InstanceEvent event = new InstanceRegisteredEvent(id, 0L, registration);
+        int compactSize = createSerializationService(true).toData(event).totalSize();
+        int javaSize = createSerializationService(false).toData(event).totalSize();
+        assertThat(compactSize).isLessThan(javaSize / 2);
+    }
+
+    @Test
+    public void should_keep_the_types_of_the_values() throws IOException {
+        Map<String, Object> details = new HashMap<>();
+        details.put("short", (short) 1);
+        details.put("byte", (byte) 2);
+        details.put("float", 3.0f);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryValueCodec.writeMap(new DataOutputStream(bytes), details);
+
+        Map<String, Object> read = BinaryValueCodec.readMap(new DataInputStream(new ByteArrayInputStream(
+            bytes.toByteArray())));
+        assertThat(read).isEqualTo(details);
+    }
+
+    @Test
+    public void should_refuse_values_which_are_not_serializable() {
+        DataOutputStream out = new DataOutputStream(new ByteArrayOutputStream());
+        assertThatThrownBy(() -> BinaryValueCodec.writeValue(out, new Object())).isInstanceOf(
+            NotSerializableException.class);
+    }
+
+    @Test
+    public void should_refuse_other_encoding_versions() {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(new byte[]{BinaryValueCodec.VERSION + 1}));
+        assertThatThrownBy(() -> BinaryValueCodec.readVersion(in)).isInstanceOf(IOException.class)
+                                                                  .hasMessageContaining("version");
+    }
+
+    static InternalSerializationService createSerializationService(boolean compact) {
+        SerializationConfig config = new SerializationConfig();
+        if (compact) {
+            HazelcastSerializers.register(config);
+        }
+        return new DefaultSerializationServiceBuilder().setConfig(config).build();
+    }
+}
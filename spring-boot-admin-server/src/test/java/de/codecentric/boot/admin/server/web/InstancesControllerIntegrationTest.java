@@ -21,6 +21,7 @@ import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
@@ -55,7 +56,11 @@ public class InstancesControllerIntegrationTest {
     public void setUp() {
         instance = new SpringApplicationBuilder().sources(AdminReactiveApplicationTest.TestAdminApplication.class)
                                                  .web(WebApplicationType.REACTIVE)
-                                                 .run("--server.port=0", "--eureka.client.enabled=false");
+                                                 .run("--server.port=0",
+                                                     "--eureka.client.enabled=false",
+                                                     "--spring.boot.admin.monitor.status-push.enabled=true",
+                                                     "--spring.boot.admin.snapshot-history.enabled=true"
+                                                 );
 
         localPort = instance.getEnvironment().getProperty("local.server.port", Integer.class, 0);
 
@@ -89,6 +94,74 @@ public class InstancesControllerIntegrationTest {
                    .isEqualTo(emptyList());
     }
 
+    @Test
+    public void should_return_instances_at_a_point_in_time() {
+        String id = register();
+        String now = Instant.now().toString();
+
+        this.client.get()
+                   .uri("/instances?at=" + now)
+                   .exchange()
+                   .expectStatus()
+                   .isOk()
+                   .expectBody()
+                   .jsonPath("$[0].id")
+                   .isEqualTo(id);
+        this.client.get()
+                   .uri("/instances?at=2000-01-01T00:00:00Z")
+                   .exchange()
+                   .expectStatus()
+                   .isOk()
+                   .expectBody(List.class)
+                   .isEqualTo(emptyList());
+        this.client.get()
+                   .uri("/applications?at=" + now)
+                   .exchange()
+                   .expectStatus()
+                   .isOk()
+                   .expectBody()
+                   .jsonPath("$[0].name")
+                   .isEqualTo("test")
+                   .jsonPath("$[0].instances[0].id")
+                   .isEqualTo(id);
+    }
+
+    @Test
+    public void should_receive_pushed_status() {
+        String id = register();
+        String push = "{ \"status\": \"DOWN\", \"heartbeatInterval\": \"PT1M\" }";
+
+        this.client.post()
+                   .uri(getLocation(id) + "/status")
+                   .contentType(MediaType.APPLICATION_JSON)
+                   .syncBody(push)
+                   .exchange()
+                   .expectStatus()
+                   .isNoContent();
+        this.client.get()
+                   .uri(getLocation(id))
+                   .exchange()
+                   .expectStatus()
+                   .isOk()
+                   .expectBody()
+                   .jsonPath("$.statusInfo.status")
+                   .isEqualTo("DOWN");
+        this.client.post()
+                   .uri("/instances/unknown/status")
+                   .contentType(MediaType.APPLICATION_JSON)
+                   .syncBody(push)
+                   .exchange()
+                   .expectStatus()
+                   .isNotFound();
+        this.client.post()
+                   .uri(getLocation(id) + "/status")
+                   .contentType(MediaType.APPLICATION_JSON)
+                   .syncBody("{ \"status\": \"UP\" }")
+                   .exchange()
+                   .expectStatus()
+                   .isBadRequest();
+    }
+
     @Test
     public void should_return_not_found_when_deleting_unknown_instance() {
         this.client.delete().uri("/instances/unknown").exchange().expectStatus().isNotFound();
@@ -134,6 +207,8 @@ public class InstancesControllerIntegrationTest {
                     .then(() -> {
                         assertInstanceNotFound(id.get());
                         assertEvents(id.get());
+                        assertPagedEvents(id.get());
+                        assertEventsExport(id.get());
                     })
                     .thenCancel()
                     .verify(Duration.ofSeconds(60));
@@ -166,6 +241,67 @@ public class InstancesControllerIntegrationTest {
                    });
     }
 
+    private void assertPagedEvents(String id) {
+        AtomicReference<Long> cursor = new AtomicReference<>();
+        this.client.get()
+                   .uri("/instances/events?limit=2&instance=" + id)
+                   .accept(MediaType.APPLICATION_JSON)
+                   .exchange()
+                   .expectStatus()
+                   .isOk()
+                   .expectBody(String.class)
+                   .consumeWith(response -> {
+                       DocumentContext json = JsonPath.parse(response.getResponseBody());
+                       assertThat(json.read("$.length()", Integer.class)).isEqualTo(2);
+                       assertThat(json.read("$[0].type", String.class)).isEqualTo("REGISTERED");
+                       assertThat(json.read("$[1].type", String.class)).isEqualTo("STATUS_CHANGED");
+                       cursor.set(json.read("$[1].sequence", Long.class));
+                   });
+
+        this.client.get()
+                   .uri("/instances/events?after=" + cursor.get() + "&instance=" + id)
+                   .accept(MediaType.APPLICATION_JSON)
+                   .exchange()
+                   .expectStatus()
+                   .isOk()
+                   .expectBody(String.class)
+                   .consumeWith(response -> {
+                       DocumentContext json = JsonPath.parse(response.getResponseBody());
+                       assertThat(json.read("$.length()", Integer.class)).isEqualTo(2);
+                       assertThat(json.read("$[0].type", String.class)).isEqualTo("REGISTRATION_UPDATED");
+                       assertThat(json.read("$[1].type", String.class)).isEqualTo("DEREGISTERED");
+                   });
+
+        this.client.get()
+                   .uri("/instances/events?limit=0")
+                   .accept(MediaType.APPLICATION_JSON)
+                   .exchange()
+                   .expectStatus()
+                   .isBadRequest();
+
+        this.client.get()
+                   .uri("/instances/events?from=2000-01-01T00:00:00Z&to=2000-01-02T00:00:00Z")
+                   .accept(MediaType.APPLICATION_JSON)
+                   .exchange()
+                   .expectStatus()
+                   .isOk()
+                   .expectBody(List.class)
+                   .isEqualTo(emptyList());
+    }
+
+    private void assertEventsExport(String id) {
+        this.client.get()
+                   .uri("/instances/events?instance=" + id)
+                   .accept(MediaType.APPLICATION_STREAM_JSON)
+                   .exchange()
+                   .expectStatus()
+                   .isOk()
+                   .expectHeader()
+                   .contentTypeCompatibleWith(MediaType.APPLICATION_STREAM_JSON)
+                   .expectBody(String.class)
+                   .consumeWith(response -> assertThat(response.getResponseBody()).hasLineCount(4));
+    }
+
     private void assertInstanceNotFound(String id) {
         this.client.get().uri(getLocation(id)).exchange().expectStatus().isNotFound();
     }